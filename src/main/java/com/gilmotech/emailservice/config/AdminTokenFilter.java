@@ -0,0 +1,74 @@
+package com.gilmotech.emailservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gilmotech.emailservice.dto.MailResponseDto;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Protège les endpoints /api/admin/** et les métriques actuator par un jeton partagé (en-tête X-Admin-Token).
+ * Sans app.admin.token configuré, l'administration est désactivée.
+ */
+@Component
+@Slf4j
+public class AdminTokenFilter implements Filter {
+
+    public static final String HEADER = "X-Admin-Token";
+
+    @Value("${app.admin.token:}")
+    private String adminToken;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (!isProtected(httpRequest.getRequestURI())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!isAuthorized(httpRequest.getHeader(HEADER))) {
+            log.warn("Accès admin refusé pour {} {}", httpRequest.getMethod(), httpRequest.getRequestURI());
+
+            httpResponse.setStatus(HttpStatus.FORBIDDEN.value());
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            httpResponse.getWriter().write(objectMapper.writeValueAsString(
+                    MailResponseDto.error("Accès refusé", "ADMIN_FORBIDDEN")));
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private boolean isProtected(String uri) {
+        return uri.startsWith("/api/admin/")
+                || (uri.startsWith("/actuator/") && !uri.startsWith("/actuator/health"));
+    }
+
+    private boolean isAuthorized(String token) {
+        if (adminToken == null || adminToken.isBlank() || token == null) {
+            return false;
+        }
+        // Comparaison en temps constant
+        return MessageDigest.isEqual(
+                adminToken.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,280 @@
+package com.gilmotech.emailservice.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gilmotech.emailservice.dto.MailResponseDto;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejet des bots avant la désérialisation JSON et la validation :
+ * - IP déjà prise plusieurs fois en flagrant délit : refusée sans lire le corps
+ * - Content-Length au-delà du maximum : refusée sans lire le corps
+ * - honeypot (champ website) rempli : détecté en lisant le corps en streaming,
+ *   sur une fenêtre bornée, et refusé dès que la valeur est connue
+ * Les octets lus pour l'analyse sont rejoués tels quels au contrôleur.
+ * L'IP est l'adresse de la connexion (getRemoteAddr), jamais un en-tête fourni par le client :
+ * X-Forwarded-For n'est pris en compte que derrière un proxy de confiance, par le conteneur
+ * (server.forward-headers-strategy, server.tomcat.remoteip.internal-proxies).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+@Slf4j
+public class BotRejectionFilter implements Filter {
+
+    private static final String HONEYPOT_FIELD = "website";
+    private static final int READ_CHUNK = 4096;
+
+    @Value("${app.mail.bot-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.bot-filter.max-content-length-mb:28}")
+    private long maxContentLengthMb;
+
+    @Value("${app.mail.bot-filter.scan-window-kb:64}")
+    private int scanWindowKb;
+
+    @Value("${app.mail.bot-filter.max-strikes:3}")
+    private int maxStrikes;
+
+    @Value("${app.mail.bot-filter.strike-window-minutes:60}")
+    private long strikeWindowMinutes;
+
+    @Value("${app.mail.bot-filter.max-tracked-ips:10000}")
+    private int maxTrackedIps;
+
+    // Map: IP -> infractions récentes
+    private final Map<String, Strikes> strikes = new ConcurrentHashMap<>();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        // Seulement pour les endpoints d'envoi de mail
+        if (!enabled || !"POST".equals(httpRequest.getMethod())
+                || !httpRequest.getRequestURI().startsWith("/api/mail/send")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String clientIp = httpRequest.getRemoteAddr();
+
+        // 1. Réputation de l'IP
+        if (isBlocked(clientIp)) {
+            log.warn("Requête refusée, IP signalée comme bot: {}", clientIp);
+            reject(httpResponse, HttpStatus.FORBIDDEN, "Requête invalide", "BOT_REJECTED");
+            return;
+        }
+
+        // 2. Taille annoncée
+        long maxContentLength = maxContentLengthMb * 1024 * 1024;
+        if (httpRequest.getContentLengthLong() > maxContentLength) {
+            log.warn("Requête de {} octets refusée (max {}) pour l'IP: {}",
+                    httpRequest.getContentLengthLong(), maxContentLength, clientIp);
+            recordStrike(clientIp);
+            reject(httpResponse, HttpStatus.PAYLOAD_TOO_LARGE, "Requête trop volumineuse", "REQUEST_TOO_LARGE");
+            return;
+        }
+
+        // 3. Honeypot, en lisant le moins d'octets possible. Pas pour l'envoi non bloquant
+        // (profil nonblocking) : la lecture occuperait le thread ; MailService refuse le honeypot ensuite
+        if (httpRequest.getHttpServletMapping() != null
+                && NonBlockingSendConfig.SERVLET_NAME.equals(httpRequest.getHttpServletMapping().getServletName())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ServletInputStream body = httpRequest.getInputStream();
+        ScanResult scan = scanHoneypot(body);
+        if (scan.bot()) {
+            log.warn("Tentative de spam détectée (honeypot rempli) après {} octets lus, IP: {}",
+                    scan.prefix().length, clientIp);
+            recordStrike(clientIp);
+            reject(httpResponse, HttpStatus.BAD_REQUEST, "Requête invalide", "SPAM_DETECTED");
+            return;
+        }
+
+        chain.doFilter(new ReplayedBodyRequest(httpRequest, scan.prefix(), body), response);
+    }
+
+    /**
+     * Lit le corps par blocs jusqu'à connaître la valeur du honeypot (ou atteindre la fenêtre d'analyse)
+     */
+    ScanResult scanHoneypot(InputStream body) throws IOException {
+        byte[] window = new byte[scanWindowKb * 1024];
+        int length = 0;
+
+        try (JsonParser parser = jsonFactory.createNonBlockingByteArrayParser()) {
+            ByteArrayFeeder feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            int depth = 0;
+            boolean honeypotValueNext = false;
+
+            while (length < window.length) {
+                int read = body.read(window, length, Math.min(READ_CHUNK, window.length - length));
+                if (read == -1) {
+                    break;
+                }
+                feeder.feedInput(window, length, length + read);
+                length += read;
+
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                    if (honeypotValueNext) {
+                        return new ScanResult(isFilled(parser, token), Arrays.copyOf(window, length));
+                    }
+                    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                        depth++;
+                    } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                        depth--;
+                    } else if (token == JsonToken.FIELD_NAME && depth == 1) {
+                        honeypotValueNext = HONEYPOT_FIELD.equals(parser.currentName());
+                    }
+                }
+                if (token == null) {
+                    break;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // JSON invalide : laissé à la désérialisation, qui renverra l'erreur habituelle
+            log.debug("Analyse du corps interrompue: {}", e.getOriginalMessage());
+        }
+
+        return new ScanResult(false, Arrays.copyOf(window, length));
+    }
+
+    private boolean isFilled(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NULL -> false;
+            case VALUE_STRING -> !parser.getText().isEmpty();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> true;
+            // Objet ou tableau : rejeté par la désérialisation
+            default -> false;
+        };
+    }
+
+    private boolean isBlocked(String clientIp) {
+        Strikes entry = strikes.get(clientIp);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.isExpired(TimeUnit.MINUTES.toNanos(strikeWindowMinutes))) {
+            strikes.remove(clientIp, entry);
+            return false;
+        }
+        return entry.count() >= maxStrikes;
+    }
+
+    private void recordStrike(String clientIp) {
+        if (strikes.size() >= maxTrackedIps) {
+            long window = TimeUnit.MINUTES.toNanos(strikeWindowMinutes);
+            strikes.values().removeIf(entry -> entry.isExpired(window));
+        }
+        strikes.merge(clientIp, new Strikes(1, System.nanoTime()),
+                (previous, ignored) -> new Strikes(previous.count() + 1, System.nanoTime()));
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message, String errorCode)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(MailResponseDto.error(message, errorCode)));
+    }
+
+    record ScanResult(boolean bot, byte[] prefix) {
+    }
+
+    private record Strikes(int count, long lastStrikeNanos) {
+        boolean isExpired(long windowNanos) {
+            return System.nanoTime() - lastStrikeNanos > windowNanos;
+        }
+    }
+
+    /**
+     * Requête dont le corps = octets déjà lus pour l'analyse + reste du flux d'origine.
+     * Lecture bloquante uniquement : le flux d'origine est déjà consommé en mode bloquant,
+     * setReadListener lève IllegalStateException comme le prévoit l'API Servlet.
+     */
+    private static class ReplayedBodyRequest extends HttpServletRequestWrapper {
+
+        private final ByteArrayInputStream prefix;
+        private final ServletInputStream remaining;
+        private final InputStream replayed;
+
+        ReplayedBodyRequest(HttpServletRequest request, byte[] prefix, ServletInputStream remaining) {
+            super(request);
+            this.prefix = new ByteArrayInputStream(prefix);
+            this.remaining = remaining;
+            this.replayed = new SequenceInputStream(this.prefix, remaining);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return replayed.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    return replayed.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return prefix.available() == 0 && remaining.isFinished();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new IllegalStateException("Corps déjà lu en mode bloquant : lecture asynchrone impossible");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(replayed, charset));
+        }
+    }
+}
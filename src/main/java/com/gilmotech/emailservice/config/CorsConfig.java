@@ -28,7 +28,9 @@ public class CorsConfig {
         configuration.setExposedHeaders(List.of(
                 "Content-Disposition",
                 "Authorization",
-                "X-Total-Count"
+                "X-Total-Count",
+                RequestTimingFilter.CORRELATION_HEADER,
+                "Server-Timing"
         ));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
@@ -0,0 +1,75 @@
+package com.gilmotech.emailservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gilmotech.emailservice.controller.BufferedBodyBudget;
+import com.gilmotech.emailservice.controller.MailController;
+import com.gilmotech.emailservice.controller.NonBlockingSendServlet;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Profil nonblocking : POST /api/mail/send est servi par NonBlockingSendServlet
+ * (mapping exact, prioritaire sur le DispatcherServlet) au lieu de MailController.
+ * Les threads Tomcat ne sont plus retenus par les clients lents ; validation, rendu
+ * et SMTP tournent sur un pool dédié de taille et de file bornées. Les corps en mémoire
+ * sont bornés en octets (body-budget-mb), indépendamment de max-inflight × max-body-mb.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("nonblocking")
+@Slf4j
+public class NonBlockingSendConfig {
+
+    public static final String SERVLET_NAME = "nonBlockingSend";
+
+    @Bean
+    public ServletRegistrationBean<NonBlockingSendServlet> nonBlockingSendServlet(
+            MailController mailController,
+            Validator validator,
+            ObjectMapper objectMapper,
+            @Value("${app.mail.nonblocking.worker-threads:16}") int workerThreads,
+            @Value("${app.mail.nonblocking.queue-capacity:1000}") int queueCapacity,
+            @Value("${app.mail.nonblocking.max-inflight:2000}") int maxInflight,
+            @Value("${app.mail.nonblocking.body-budget-mb:256}") long bodyBudgetMb,
+            @Value("${app.mail.nonblocking.max-body-mb:28}") long maxBodyMb,
+            @Value("${app.mail.nonblocking.timeout-ms:120000}") long timeoutMs,
+            @Value("${app.mail.nonblocking.retry-after-seconds:5}") long retryAfterSeconds
+    ) {
+        NonBlockingSendServlet servlet = new NonBlockingSendServlet(mailController, validator, objectMapper,
+                workers(workerThreads, queueCapacity), maxInflight, new BufferedBodyBudget(bodyBudgetMb * 1024 * 1024),
+                maxBodyMb * 1024 * 1024, timeoutMs, retryAfterSeconds);
+        ServletRegistrationBean<NonBlockingSendServlet> registration =
+                new ServletRegistrationBean<>(servlet, "/api/mail/send");
+        registration.setName(SERVLET_NAME);
+        registration.setAsyncSupported(true);
+        registration.setLoadOnStartup(1);
+        log.info("Envoi non bloquant actif sur /api/mail/send ({} requêtes max en cours, {} Mo de corps en mémoire, {} threads d'envoi)",
+                maxInflight, bodyBudgetMb, workerThreads);
+        return registration;
+    }
+
+    /**
+     * Pool d'envoi : pas de bean ExecutorService, qui remplacerait l'exécuteur par défaut de Spring
+     */
+    private static ExecutorService workers(int workerThreads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "nb-send-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
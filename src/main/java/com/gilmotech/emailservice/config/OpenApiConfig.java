@@ -5,8 +5,11 @@ import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.Contact;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
+// Hors du chemin critique : initialisé au premier accès à /v3/api-docs
 @Configuration
+@Lazy
 public class OpenApiConfig {
 
     @Bean
@@ -0,0 +1,88 @@
+package com.gilmotech.emailservice.config;
+
+import com.gilmotech.emailservice.service.TemplatePreprocessor;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolver Thymeleaf qui sert les templates prétraités (CSS inliné, HTML minifié).
+ * Le prétraitement est fait une seule fois par template, pas à chaque requête.
+ */
+public class PreprocessingTemplateResolver extends SpringResourceTemplateResolver {
+
+    private final TemplatePreprocessor preprocessor;
+
+    private final Map<String, String> processedTemplates = new ConcurrentHashMap<>();
+
+    public PreprocessingTemplateResolver(TemplatePreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+    }
+
+    @Override
+    protected ITemplateResource computeTemplateResource(
+            IEngineConfiguration configuration, String ownerTemplate, String template, String resourceName,
+            String characterEncoding, Map<String, Object> templateResolutionAttributes) {
+
+        ITemplateResource resource = super.computeTemplateResource(
+                configuration, ownerTemplate, template, resourceName, characterEncoding, templateResolutionAttributes);
+
+        if (!resource.exists()) {
+            return resource;
+        }
+        return new PreprocessedResource(resource, template);
+    }
+
+    private class PreprocessedResource implements ITemplateResource {
+
+        private final ITemplateResource delegate;
+        private final String template;
+
+        PreprocessedResource(ITemplateResource delegate, String template) {
+            this.delegate = delegate;
+            this.template = template;
+        }
+
+        @Override
+        public Reader reader() {
+            String content = processedTemplates.computeIfAbsent(delegate.getDescription(), key -> {
+                try (Reader reader = delegate.reader()) {
+                    StringWriter html = new StringWriter();
+                    reader.transferTo(html);
+                    return preprocessor.preprocess(template, html.toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return new StringReader(content);
+        }
+
+        @Override
+        public String getDescription() {
+            return delegate.getDescription();
+        }
+
+        @Override
+        public String getBaseName() {
+            return delegate.getBaseName();
+        }
+
+        @Override
+        public boolean exists() {
+            return delegate.exists();
+        }
+
+        @Override
+        public ITemplateResource relative(String relativeLocation) {
+            return delegate.relative(relativeLocation);
+        }
+    }
+}
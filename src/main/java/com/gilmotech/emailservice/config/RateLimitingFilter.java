@@ -3,9 +3,11 @@ package com.gilmotech.emailservice.config;
 
 import com.gilmotech.emailservice.dto.MailResponseDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gilmotech.emailservice.service.ClusterRateCounter;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -18,6 +20,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class RateLimitingFilter implements Filter {
 
@@ -27,12 +30,19 @@ public class RateLimitingFilter implements Filter {
     @Value("${app.mail.rate-limit.max-per-hour:10}")
     private int maxRequestsPerHour;
 
+    // Déclarations d'upload (POST /api/mail/uploads) : un formulaire en fait une par pièce jointe
+    @Value("${app.mail.rate-limit.max-uploads-per-hour:30}")
+    private int maxUploadsPerHour;
+
     // Map: IP -> List<Timestamp>
     private final Map<String, java.util.Queue<LocalDateTime>> requestCounts =
             new ConcurrentHashMap<>();
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Mode cluster : requêtes reçues par les autres instances (0 si désactivé ou pairs injoignables)
+    private final ClusterRateCounter clusterCounter;
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -45,15 +55,23 @@ public class RateLimitingFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-        // Seulement pour les endpoints d'envoi de mail
-        if (!httpRequest.getRequestURI().startsWith("/api/mail/send")) {
+        // Seulement pour les endpoints d'envoi de mail et les déclarations d'upload
+        String key;
+        int limit;
+        if (httpRequest.getRequestURI().startsWith("/api/mail/send")) {
+            key = getClientIp(httpRequest);
+            limit = maxRequestsPerHour;
+        } else if ("POST".equals(httpRequest.getMethod())
+                && "/api/mail/uploads".equals(httpRequest.getRequestURI())) {
+            key = "upload:" + getClientIp(httpRequest);
+            limit = maxUploadsPerHour;
+        } else {
             chain.doFilter(request, response);
             return;
         }
 
-        String clientIp = getClientIp(httpRequest);
-
-        if (isRateLimited(clientIp)) {
+        if (isRateLimited(key, limit)) {
+            String clientIp = getClientIp(httpRequest);
             log.warn("Rate limit dépassé pour l'IP: {}", clientIp);
 
             httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
@@ -70,37 +88,36 @@ public class RateLimitingFilter implements Filter {
             return;
         }
 
-        recordRequest(clientIp);
+        recordRequest(key);
         chain.doFilter(request, response);
     }
 
+    /**
+     * Adresse de la connexion : l'en-tête d'IP client (server.tomcat.remoteip.remote-ip-header)
+     * n'est appliqué par le conteneur que pour les proxies de confiance (internal-proxies)
+     */
     private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getRemoteAddr();
-        }
-        return ip;
+        return request.getRemoteAddr();
     }
 
-    private boolean isRateLimited(String clientIp) {
-        java.util.Queue<LocalDateTime> requests = requestCounts.get(clientIp);
+    private boolean isRateLimited(String key, int limit) {
+        java.util.Queue<LocalDateTime> requests = requestCounts.get(key);
+        long remoteRequests = clusterCounter.remoteCount(key);
 
         if (requests == null) {
-            return false;
+            return remoteRequests >= limit;
         }
 
         // Nettoyer les requêtes de plus d'une heure
         LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
         requests.removeIf(timestamp -> timestamp.isBefore(oneHourAgo));
 
-        return requests.size() >= maxRequestsPerHour;
+        return requests.size() + remoteRequests >= limit;
     }
 
-    private void recordRequest(String clientIp) {
-        requestCounts.computeIfAbsent(clientIp, k -> new java.util.LinkedList<>())
+    private void recordRequest(String key) {
+        requestCounts.computeIfAbsent(key, k -> new java.util.LinkedList<>())
                 .add(LocalDateTime.now());
+        clusterCounter.record(key);
     }
 }
\ No newline at end of file
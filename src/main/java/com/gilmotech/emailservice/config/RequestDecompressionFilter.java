@@ -0,0 +1,314 @@
+package com.gilmotech.emailservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gilmotech.emailservice.dto.MailResponseDto;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Corps de requête compressés (Content-Encoding: gzip ou deflate) sur les endpoints d'envoi :
+ * décompressés à la volée, directement dans la lecture JSON (et l'analyse anti-bot), sans
+ * copie intermédiaire. Protection contre les bombes de décompression :
+ * - taille décompressée plafonnée (max-decompressed-mb)
+ * - ratio décompressé / compressé plafonné (max-ratio), au-delà du premier Mo
+ * Placé avant BotRejectionFilter, qui voit ainsi le JSON en clair.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 50)
+@Slf4j
+public class RequestDecompressionFilter implements Filter {
+
+    /**
+     * Présent sur la requête quand le corps est décompressé à la lecture (donc en lecture bloquante)
+     */
+    public static final String DECOMPRESSED_ATTRIBUTE = RequestDecompressionFilter.class.getName() + ".DECOMPRESSED";
+
+    private static final long RATIO_CHECK_FLOOR = 1024 * 1024;
+
+    @Value("${app.mail.decompression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.decompression.max-decompressed-mb:28}")
+    private long maxDecompressedMb;
+
+    @Value("${app.mail.decompression.max-ratio:100}")
+    private int maxRatio;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String encoding = httpRequest.getHeader(HttpHeaders.CONTENT_ENCODING);
+
+        if (!enabled || encoding == null || encoding.isBlank() || "identity".equalsIgnoreCase(encoding.trim())
+                || !"POST".equals(httpRequest.getMethod())
+                || !httpRequest.getRequestURI().startsWith("/api/mail/send")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String coding = encoding.trim().toLowerCase(Locale.ROOT);
+        if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("deflate")) {
+            log.warn("Content-Encoding non supporté: {}", encoding);
+            reject(httpResponse, HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "Encodage non supporté (gzip ou deflate uniquement)", "UNSUPPORTED_CONTENT_ENCODING");
+            return;
+        }
+
+        httpRequest.setAttribute(DECOMPRESSED_ATTRIBUTE, coding);
+        try {
+            chain.doFilter(new DecompressedRequest(httpRequest, coding), response);
+        } catch (DecompressionLimitException e) {
+            // Limite atteinte avant la désérialisation (analyse anti-bot)
+            log.warn("Corps compressé refusé: {}", e.getMessage());
+            if (!httpResponse.isCommitted()) {
+                reject(httpResponse, HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage(), DecompressionLimitException.ERROR_CODE);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message, String errorCode)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(MailResponseDto.error(message, errorCode)));
+    }
+
+    /**
+     * Limite de décompression dépassée : levée pendant la lecture du corps
+     */
+    public static class DecompressionLimitException extends IOException {
+
+        public static final String ERROR_CODE = "DECOMPRESSED_BODY_TOO_LARGE";
+
+        DecompressionLimitException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Requête vue sans compression : corps décompressé, sans Content-Encoding ni Content-Length
+     */
+    private class DecompressedRequest extends HttpServletRequestWrapper {
+
+        private final String coding;
+        private ServletInputStream inputStream;
+
+        DecompressedRequest(HttpServletRequest request, String coding) {
+            super(request);
+            this.coding = coding;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new DecompressedInputStream(super.getInputStream(), coding);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isRemoved(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isRemoved(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isRemoved(name))
+                    .toList());
+        }
+
+        private boolean isRemoved(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * Flux décompressé, qui compte les octets consommés et produits pour appliquer les limites.
+     * Lecture bloquante uniquement (l'inflater lit le flux d'origine à la demande) : isReady
+     * vaut toujours true et setReadListener lève IllegalStateException, comme le prévoit
+     * l'API Servlet ; les lecteurs non bloquants testent DECOMPRESSED_ATTRIBUTE.
+     */
+    private class DecompressedInputStream extends ServletInputStream {
+
+        private final ServletInputStream raw;
+        private final long maxBytes = maxDecompressedMb * 1024 * 1024;
+        private final String coding;
+        private long compressedBytes;
+        private long decompressedBytes;
+        private InputStream decompressed;
+        // Créé ici (deflate) : InflaterInputStream ne libère pas la mémoire zlib d'un Inflater fourni
+        private Inflater inflater;
+        private boolean finished;
+        private DecompressionLimitException limitExceeded;
+
+        DecompressedInputStream(ServletInputStream raw, String coding) {
+            this.raw = raw;
+            this.coding = coding;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (limitExceeded != null) {
+                throw limitExceeded;
+            }
+            if (finished) {
+                return -1;
+            }
+            if (decompressed == null) {
+                decompressed = open();
+            }
+            int read = decompressed.read(buffer, offset, length);
+            if (read == -1) {
+                finished = true;
+                // Le corps n'est pas toujours fermé par le lecteur : mémoire native libérée dès la fin
+                endInflater();
+                return -1;
+            }
+            decompressedBytes += read;
+            if (decompressedBytes > maxBytes) {
+                throw limitExceeded("Corps décompressé trop volumineux (max " + maxDecompressedMb + " Mo)");
+            }
+            if (decompressedBytes > RATIO_CHECK_FLOOR && decompressedBytes > compressedBytes * maxRatio) {
+                throw limitExceeded("Taux de compression anormal (max " + maxRatio + ":1)");
+            }
+            return read;
+        }
+
+        private DecompressionLimitException limitExceeded(String message) {
+            // Lecture abandonnée : l'Inflater est libéré sans attendre close()
+            limitExceeded = new DecompressionLimitException(message);
+            endInflater();
+            return limitExceeded;
+        }
+
+        private InputStream open() throws IOException {
+            InputStream counted = new FilterInputStream(raw) {
+                @Override
+                public int read() throws IOException {
+                    int value = super.read();
+                    if (value != -1) {
+                        compressedBytes++;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        compressedBytes += read;
+                    }
+                    return read;
+                }
+            };
+            if (!coding.equals("deflate")) {
+                return new GZIPInputStream(counted, 8192);
+            }
+            // deflate : normalement enveloppé zlib, mais certains clients envoient le flux brut
+            PushbackInputStream input = new PushbackInputStream(counted, 2);
+            byte[] header = input.readNBytes(2);
+            input.unread(header);
+            boolean zlib = header.length == 2 && (header[0] & 0x0F) == 8
+                    && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+            inflater = new Inflater(!zlib);
+            return new InflaterInputStream(input, inflater, 8192);
+        }
+
+        private void endInflater() {
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Corps décompressé à la lecture : lecture asynchrone impossible");
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (decompressed != null) {
+                    decompressed.close();
+                } else {
+                    raw.close();
+                }
+            } finally {
+                endInflater();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.gilmotech.emailservice.config;
+
+import com.gilmotech.emailservice.monitoring.RequestTiming;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Chronométrage des requêtes d'envoi, avant tous les autres filtres :
+ * - identifiant de corrélation (repris de X-Correlation-Id s'il est valide, sinon généré),
+ *   placé dans le MDC et renvoyé dans la réponse
+ * - RequestTiming attaché au thread : MailService y mesure ses étapes, MailController
+ *   en renvoie le détail dans l'en-tête Server-Timing
+ * - requête lente (au-delà de slow-threshold-ms) journalisée avec le détail des étapes
+ * Timing-Allow-Origin n'est renvoyé qu'aux origines autorisées par la configuration CORS.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class RequestTimingFilter implements Filter {
+
+    public static final String CORRELATION_HEADER = "X-Correlation-Id";
+
+    private static final Pattern VALID_CORRELATION_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Value("${app.mail.timing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.timing.slow-threshold-ms:3000}")
+    private long slowThresholdMs;
+
+    @Value("${app.mail.timing.slow-sample-rate:1.0}")
+    private double slowSampleRate;
+
+    private final CorsConfigurationSource corsConfigurationSource;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        // Seulement pour les endpoints d'envoi de mail
+        if (!enabled || !"POST".equals(httpRequest.getMethod())
+                || !httpRequest.getRequestURI().startsWith("/api/mail/send")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String correlationId = httpRequest.getHeader(CORRELATION_HEADER);
+        if (correlationId == null || !VALID_CORRELATION_ID.matcher(correlationId).matches()) {
+            correlationId = UUID.randomUUID().toString();
+        }
+        httpResponse.setHeader(CORRELATION_HEADER, correlationId);
+
+        // Server-Timing lisible par les applications Angular (Resource Timing API, cross-origin),
+        // pour les seules origines que CORS accepte
+        String origin = httpRequest.getHeader(HttpHeaders.ORIGIN);
+        if (origin != null) {
+            CorsConfiguration cors = corsConfigurationSource.getCorsConfiguration(httpRequest);
+            String allowed = cors != null ? cors.checkOrigin(origin) : null;
+            if (allowed != null) {
+                httpResponse.setHeader("Timing-Allow-Origin", allowed);
+            }
+        }
+
+        RequestTiming timing = new RequestTiming(correlationId, slowThresholdMs, slowSampleRate);
+        request.setAttribute(RequestTiming.ATTRIBUTE, timing);
+        timing.bind();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            timing.unbind();
+            // Envoi non bloquant : terminé plus tard, par NonBlockingSendServlet
+            if (!request.isAsyncStarted()) {
+                timing.complete(httpResponse.getStatus());
+            }
+        }
+    }
+}
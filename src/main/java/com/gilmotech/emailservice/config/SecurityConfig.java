@@ -21,6 +21,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/**").permitAll()
                         .requestMatchers(
                                 "/actuator/health",
+                                // Protégées par AdminTokenFilter
+                                "/actuator/metrics/**",
                                 "/v3/api-docs/**",
                                 "/swagger-ui.html",
                                 "/swagger-ui/**"
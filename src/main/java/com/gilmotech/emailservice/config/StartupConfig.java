@@ -0,0 +1,66 @@
+package com.gilmotech.emailservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Réduit le temps de démarrage (scale-to-zero) : les beans qui ne servent pas
+ * à l'envoi de mails (springdoc, Swagger UI...) sont initialisés à la demande.
+ */
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class StartupConfig {
+
+    private static final List<String> DEFAULT_LAZY_PACKAGES = List.of("org.springdoc.");
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        boolean enabled = environment.getProperty("app.startup.lazy-non-critical-beans", Boolean.class, true);
+        List<String> packages = Binder.get(environment)
+                .bind("app.startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(DEFAULT_LAZY_PACKAGES);
+
+        return beanFactory -> {
+            if (!enabled) {
+                return;
+            }
+            int count = markLazy(beanFactory, packages);
+            log.debug("{} bean(s) hors chemin critique initialisé(s) à la demande", count);
+        };
+    }
+
+    private static int markLazy(ConfigurableListableBeanFactory beanFactory, List<String> packages) {
+        int count = 0;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            String declaringClass = getDeclaringClassName(definition);
+            if (declaringClass != null && packages.stream().anyMatch(declaringClass::startsWith)) {
+                definition.setLazyInit(true);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Classe qui déclare le bean : la classe @Configuration pour une méthode @Bean,
+     * sinon la classe du bean elle-même
+     */
+    private static String getDeclaringClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated
+                && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getDeclaringClassName();
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -0,0 +1,42 @@
+package com.gilmotech.emailservice.config;
+
+import com.gilmotech.emailservice.service.TemplatePreprocessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+
+/**
+ * Remplace le resolver Thymeleaf par défaut de Spring Boot par une version
+ * qui inline le CSS et minifie les templates au chargement.
+ * Désactivable avec app.mail.templates.preprocess=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.mail.templates.preprocess", havingValue = "true", matchIfMissing = true)
+public class TemplateConfig {
+
+    @Bean
+    public SpringResourceTemplateResolver defaultTemplateResolver(
+            ThymeleafProperties properties,
+            ApplicationContext applicationContext,
+            TemplatePreprocessor preprocessor
+    ) {
+        // Même configuration que le resolver auto-configuré par Spring Boot
+        PreprocessingTemplateResolver resolver = new PreprocessingTemplateResolver(preprocessor);
+        resolver.setApplicationContext(applicationContext);
+        resolver.setPrefix(properties.getPrefix());
+        resolver.setSuffix(properties.getSuffix());
+        resolver.setTemplateMode(properties.getMode());
+        if (properties.getEncoding() != null) {
+            resolver.setCharacterEncoding(properties.getEncoding().name());
+        }
+        resolver.setCacheable(properties.isCache());
+        if (properties.getTemplateResolverOrder() != null) {
+            resolver.setOrder(properties.getTemplateResolverOrder());
+        }
+        resolver.setCheckExistence(properties.isCheckTemplate());
+        return resolver;
+    }
+}
@@ -0,0 +1,10 @@
+package com.gilmotech.emailservice.config;
+
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({TenantProperties.class, MailProperties.class})
+public class TenantConfig {
+}
@@ -0,0 +1,63 @@
+package com.gilmotech.emailservice.config;
+
+import com.gilmotech.emailservice.model.MailConfiguration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tenants (applications clientes) déclarés sous app.tenants.
+ * Chaque tenant a son propre serveur SMTP, son pool de connexions et sa limite de concurrence.
+ */
+@Data
+@ConfigurationProperties(prefix = "app")
+public class TenantProperties {
+
+    // Code du tenant (ex: ASSURANTIS) -> configuration
+    private Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    @Data
+    public static class Tenant {
+        // Paramètres SMTP propres au tenant, chaque valeur absente est reprise de spring.mail
+        private Smtp smtp = new Smtp();
+
+        // Relais SMTP alternatifs, essayés du plus rapide au plus lent. Vide = smtp seul.
+        // Chaque valeur absente d'un relais est reprise de smtp, puis de spring.mail
+        private List<Smtp> relays = new ArrayList<>();
+
+        // Durée d'écartement d'un relais après un échec (doublée à chaque échec consécutif)
+        private long relayCooldownMs = 30000;
+
+        // Demi-vie du score (latence) d'un relais sans nouvelle mesure : un relais délaissé est réessayé
+        private long relayScoreHalfLifeMs = 60000;
+
+        // Envois SMTP simultanés max = taille du pool de connexions
+        private int maxConcurrentSends = 4;
+
+        // Attente max d'une connexion libre avant de refuser (503)
+        private long acquireTimeoutMs = 2000;
+
+        // Connexion inutilisée plus longtemps : fermée au lieu d'être réutilisée
+        private long idleTimeoutMs = 30000;
+
+        // Images de marque jointes en ligne : nom logique (ex: logo) -> emplacement (classpath:, file:)
+        private Map<String, String> brandAssets = new LinkedHashMap<>();
+
+        private List<MailConfiguration> mailConfigurations = new ArrayList<>();
+    }
+
+    @Data
+    public static class Smtp {
+        private String host;
+        private Integer port;
+        private String username;
+        private String password;
+        private String protocol;
+        private Map<String, String> properties = new HashMap<>();
+    }
+}
@@ -0,0 +1,69 @@
+package com.gilmotech.emailservice.controller;
+
+import com.gilmotech.emailservice.dto.MailResponseDto;
+import com.gilmotech.emailservice.service.ConfirmationRedeliveryService;
+import com.gilmotech.emailservice.service.ScheduledMailService;
+import com.gilmotech.emailservice.service.SuppressionList;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Administration (protégée par X-Admin-Token, voir AdminTokenFilter)
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminController {
+
+    private final ConfirmationRedeliveryService redeliveryService;
+    private final ScheduledMailService scheduledMailService;
+    private final SuppressionList suppressionList;
+
+    /**
+     * Emails abandonnés après épuisement des tentatives de renvoi (kind : CONFIRMATION ou ADMIN_DIGEST)
+     */
+    @GetMapping("/dead-letters")
+    public ResponseEntity<List<ConfirmationRedeliveryService.DeadLetter>> deadLetters() {
+        return ResponseEntity.ok(redeliveryService.getDeadLetters());
+    }
+
+    /**
+     * Remet en file de renvoi les dead letters indiquées, ou toutes si aucun id n'est fourni
+     */
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<MailResponseDto> replay(@RequestBody(required = false) List<String> ids) {
+        int replayed = redeliveryService.replayDeadLetters(ids);
+        log.info("Rejeu de {} dead letter(s) demandé", replayed);
+        return ResponseEntity.ok(MailResponseDto.success(replayed + " email(s) remis en file de renvoi"));
+    }
+
+    /**
+     * Annule un envoi programmé (sendAt) encore en attente
+     */
+    @DeleteMapping("/scheduled/{reference}")
+    public ResponseEntity<MailResponseDto> cancelScheduled(@PathVariable String reference) {
+        if (!scheduledMailService.cancel(reference)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(MailResponseDto.error(
+                    "Aucun envoi programmé en attente pour la référence " + reference, "SCHEDULED_MAIL_NOT_FOUND"));
+        }
+        return ResponseEntity.ok(MailResponseDto.success("Envoi programmé " + reference + " annulé"));
+    }
+
+    /**
+     * Retire de la liste de suppression une adresse corrigée par le client
+     */
+    @DeleteMapping("/suppressions/{email}")
+    public ResponseEntity<MailResponseDto> unsuppress(@PathVariable String email) {
+        if (!suppressionList.remove(email)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(MailResponseDto.error(
+                    "Adresse absente de la liste de suppression", "SUPPRESSION_NOT_FOUND"));
+        }
+        return ResponseEntity.ok(MailResponseDto.success("Adresse " + email + " retirée de la liste de suppression"));
+    }
+}
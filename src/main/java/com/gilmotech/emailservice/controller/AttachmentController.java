@@ -0,0 +1,53 @@
+package com.gilmotech.emailservice.controller;
+
+import com.gilmotech.emailservice.service.AttachmentStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Téléchargement des pièces jointes déportées, via les liens signés de l'email admin
+ */
+@RestController
+@RequestMapping("/api/attachments")
+@RequiredArgsConstructor
+@Slf4j
+public class AttachmentController {
+
+    private final AttachmentStore attachmentStore;
+
+    @GetMapping("/{hash}")
+    public ResponseEntity<Resource> download(
+            @PathVariable String hash,
+            @RequestParam String name,
+            @RequestParam String type,
+            @RequestParam long expires,
+            @RequestParam String sig
+    ) {
+        Optional<Path> file = attachmentStore.resolve(hash, name, type, expires, sig);
+        if (file.isEmpty()) {
+            log.warn("Lien de pièce jointe invalide ou expiré: {}", hash);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(type))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .header("X-Content-Type-Options", "nosniff")
+                .body(new FileSystemResource(file.get()));
+    }
+}
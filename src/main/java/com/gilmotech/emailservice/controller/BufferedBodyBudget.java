@@ -0,0 +1,85 @@
+package com.gilmotech.emailservice.controller;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Octets de corps de requête gardés en mémoire par NonBlockingSendServlet, toutes requêtes
+ * confondues. Ne bloque jamais : une lecture qui ne trouve pas de place est suspendue
+ * (plus de lecture sur la socket, le client est freiné par TCP) et reprise à la prochaine libération.
+ */
+public class BufferedBodyBudget {
+
+    private final long capacityBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    public BufferedBodyBudget(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Réserve sans attendre ; une demande plus grosse que le budget passe seule
+     */
+    public boolean tryReserve(long bytes) {
+        long requested = clamp(bytes);
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + requested > capacityBytes && used > 0) {
+                return false;
+            }
+        } while (!usedBytes.compareAndSet(used, used + requested));
+        return true;
+    }
+
+    /**
+     * Réserve, ou inscrit onAvailable pour être rappelé à la prochaine libération
+     * @return true si la réservation est faite, false si la lecture doit être suspendue
+     */
+    public boolean reserveOrWait(long bytes, Runnable onAvailable) {
+        if (tryReserve(bytes)) {
+            return true;
+        }
+        waiting.add(onAvailable);
+        // Libération survenue entre les deux : personne d'autre ne rappellerait
+        if (tryReserve(bytes)) {
+            if (waiting.remove(onAvailable)) {
+                return true;
+            }
+            // Déjà rappelé par une libération concurrente : la reprise refera la demande
+            release(bytes);
+        }
+        return false;
+    }
+
+    public void release(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        usedBytes.addAndGet(-clamp(bytes));
+        // Chaque lecture suspendue retente sa réservation ; celles sans place se réinscrivent
+        Runnable next;
+        int woken = waiting.size();
+        while (woken-- > 0 && (next = waiting.poll()) != null) {
+            next.run();
+        }
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    private long clamp(long bytes) {
+        return Math.min(bytes, capacityBytes);
+    }
+}
@@ -3,10 +3,15 @@ package com.gilmotech.emailservice.controller;
 import com.gilmotech.emailservice.dto.MailRequestDto;
 import com.gilmotech.emailservice.dto.MailResponseDto;
 import com.gilmotech.emailservice.exception.MailSendingException;
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import com.gilmotech.emailservice.monitoring.MailRequestEvent;
+import com.gilmotech.emailservice.monitoring.RequestTiming;
 import com.gilmotech.emailservice.service.MailService;
+import com.gilmotech.emailservice.service.ScheduledMailService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,21 +23,64 @@ import org.springframework.web.bind.annotation.*;
 public class MailController {
 
     private final MailService mailService;
+    private final ScheduledMailService scheduledMailService;
 
     @PostMapping("/send")
     public ResponseEntity<MailResponseDto> sendMail(
             @Valid @RequestBody MailRequestDto request
     ) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.validated();
+        }
+
+        MailRequestEvent event = new MailRequestEvent();
+        event.start(request.getAppCode(), request.getMailType(), null);
+
+        ResponseEntity<MailResponseDto> response = handleSend(request, event);
+
+        event.setStatus(response.getStatusCode().value());
+        event.finish(request.getAttachments() != null
+                ? request.getAttachments().stream().mapToLong(a -> a.getContent() != null ? a.getContent().length() : 0).sum()
+                : 0);
+
+        // Détail des étapes pour le client (devtools, Resource Timing API)
+        if (timing != null) {
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .header("Server-Timing", timing.serverTiming())
+                    .body(response.getBody());
+        }
+        return response;
+    }
+
+    private ResponseEntity<MailResponseDto> handleSend(MailRequestDto request, MailRequestEvent event) {
         try {
             log.info("Réception d'une demande d'envoi de mail: {} / {}",
                     request.getAppCode(), request.getMailType());
 
-            mailService.sendMail(request);
+            // Envoi programmé : accepté maintenant, envoyé à la date demandée
+            if (scheduledMailService.shouldDefer(request)) {
+                String reference = scheduledMailService.schedule(request);
+                event.setReference(reference);
+                return ResponseEntity
+                        .status(HttpStatus.ACCEPTED)
+                        .body(MailResponseDto.scheduled("Email programmé pour le " + request.getSendAt(), reference));
+            }
+
+            event.setReference(mailService.sendMail(request));
 
             return ResponseEntity.ok(
                     MailResponseDto.success("Email envoyé avec succès")
             );
 
+        } catch (ServiceOverloadedException e) {
+            log.warn("Service surchargé: {}", e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(MailResponseDto.error(e.getMessage(), e.getErrorCode()));
+
         } catch (MailSendingException e) {
             log.error("Erreur lors de l'envoi: {}", e.getMessage());
             return ResponseEntity
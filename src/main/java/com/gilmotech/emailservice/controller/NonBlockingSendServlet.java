@@ -0,0 +1,455 @@
+package com.gilmotech.emailservice.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.gilmotech.emailservice.config.RequestDecompressionFilter;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.dto.MailResponseDto;
+import com.gilmotech.emailservice.monitoring.RequestTiming;
+import com.gilmotech.emailservice.validation.AdditionalDataRejectedException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Variante non bloquante de POST /api/mail/send (profil nonblocking, voir NonBlockingSendConfig).
+ * Aucun thread n'est occupé pendant qu'un client lent envoie son corps : les octets sont lus
+ * quand le conteneur les signale disponibles (ReadListener) et poussés dans le parser JSON
+ * asynchrone de Jackson. Une fois le corps complet, désérialisation, validation, rendu et SMTP
+ * passent sur un pool borné, via MailController (mêmes réponses, mêmes événements JFR).
+ * Le nombre de corps en cours est plafonné : au-delà, refus immédiat en 503 avant toute lecture.
+ * La mémoire aussi (BufferedBodyBudget) : un corps de taille annoncée n'est accepté que si elle
+ * tient dans le budget, un corps sans Content-Length réserve chaque bloc avant de le lire et
+ * sa lecture est suspendue, sans occuper de thread, tant que le budget est épuisé.
+ */
+@Slf4j
+public class NonBlockingSendServlet extends HttpServlet {
+
+    private static final int READ_CHUNK = 16 * 1024;
+
+    private final transient MailController mailController;
+    private final transient Validator validator;
+    private final transient ObjectMapper objectMapper;
+    private final transient ExecutorService workers;
+    private final transient Semaphore inflight;
+    private final int maxInflight;
+    private final transient BufferedBodyBudget budget;
+    private final long maxBodyBytes;
+    private final long timeoutMs;
+    private final long retryAfterSeconds;
+
+    public NonBlockingSendServlet(MailController mailController, Validator validator, ObjectMapper objectMapper,
+                                  ExecutorService workers, int maxInflight, BufferedBodyBudget budget,
+                                  long maxBodyBytes, long timeoutMs, long retryAfterSeconds) {
+        this.mailController = mailController;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.workers = workers;
+        this.inflight = new Semaphore(maxInflight);
+        this.maxInflight = maxInflight;
+        this.budget = budget;
+        this.maxBodyBytes = maxBodyBytes;
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            write(response, HttpStatus.PAYLOAD_TOO_LARGE, MailResponseDto.error("Requête trop volumineuse", "REQUEST_TOO_LARGE"));
+            return;
+        }
+        if (!inflight.tryAcquire()) {
+            log.warn("Envoi refusé: {} requêtes déjà en cours", maxInflight);
+            overloaded(response);
+            return;
+        }
+
+        // Taille annoncée : réservée en entier avant la première lecture
+        long contentLength = request.getContentLengthLong();
+        boolean compressed = request.getAttribute(RequestDecompressionFilter.DECOMPRESSED_ATTRIBUTE) != null;
+        long reserved = 0;
+        if (contentLength >= 0 && !compressed) {
+            if (!budget.tryReserve(contentLength)) {
+                inflight.release();
+                log.warn("Envoi de {} octets refusé: budget mémoire des corps épuisé ({} / {} octets)",
+                        contentLength, budget.getUsedBytes(), budget.getCapacityBytes());
+                overloaded(response);
+                return;
+            }
+            reserved = contentLength;
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(timeoutMs);
+        Exchange exchange = new Exchange(async, reserved, contentLength >= 0 && !compressed);
+        async.addListener(exchange);
+
+        if (compressed) {
+            // Corps compressé : décompression en flux (bloquante), faite sur le pool d'envoi
+            exchange.submit(exchange::readDecompressed);
+        } else {
+            request.getInputStream().setReadListener(exchange);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdown();
+    }
+
+    private void overloaded(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        write(response, HttpStatus.SERVICE_UNAVAILABLE, MailResponseDto.error(
+                "Service momentanément surchargé. Veuillez réessayer dans quelques instants.", "SERVICE_OVERLOADED"));
+    }
+
+    private void write(HttpServletResponse response, HttpStatus status, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(json.length);
+        response.getOutputStream().write(json);
+    }
+
+    /**
+     * Une requête : lecture non bloquante du corps, puis traitement sur le pool
+     */
+    private class Exchange implements ReadListener, AsyncListener {
+
+        private final AsyncContext async;
+        private final RequestTiming timing;
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final TokenBuffer tokens;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicBoolean allRead = new AtomicBoolean();
+        // Octets réservés dans le budget, rendus une fois la réponse envoyée
+        private final AtomicLong reserved;
+        // Content-Length connu : tout est déjà réservé
+        private final boolean sized;
+        private long received;
+
+        Exchange(AsyncContext async, long reserved, boolean sized) throws IOException {
+            this.async = async;
+            this.reserved = new AtomicLong(reserved);
+            this.sized = sized;
+            this.timing = (RequestTiming) async.getRequest().getAttribute(RequestTiming.ATTRIBUTE);
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.tokens = new TokenBuffer(objectMapper, false);
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            ServletInputStream input = async.getRequest().getInputStream();
+            byte[] chunk = new byte[READ_CHUNK];
+            try {
+                while (!finished.get() && input.isReady()) {
+                    // Sans place dans le budget : plus de lecture, reprise à la prochaine libération
+                    if (!sized && !reserveChunk()) {
+                        return;
+                    }
+                    int read = input.read(chunk);
+                    if (!sized) {
+                        giveBack(READ_CHUNK - Math.max(read, 0));
+                    }
+                    if (read == -1 || !feed(chunk, read)) {
+                        break;
+                    }
+                }
+                // Fin du corps lue depuis une reprise : le conteneur ne rappellerait pas forcément
+                if (input.isFinished()) {
+                    onAllDataRead();
+                }
+            } catch (JsonProcessingException e) {
+                unreadable(e);
+            }
+        }
+
+        private boolean reserveChunk() {
+            if (!budget.reserveOrWait(READ_CHUNK, this::resume)) {
+                return false;
+            }
+            reserved.addAndGet(READ_CHUNK);
+            if (finished.get()) {
+                // Réponse déjà partie (délai, erreur) pendant la réservation
+                budget.release(reserved.getAndSet(0));
+                return false;
+            }
+            return true;
+        }
+
+        private void giveBack(long bytes) {
+            if (bytes > 0) {
+                reserved.addAndGet(-bytes);
+                budget.release(bytes);
+            }
+        }
+
+        private void resume() {
+            if (finished.get()) {
+                return;
+            }
+            try {
+                async.start(() -> {
+                    try {
+                        onDataAvailable();
+                    } catch (IOException e) {
+                        onError(e);
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // Requête déjà terminée
+                log.debug("Reprise de lecture impossible: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (!allRead.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                feeder.endOfInput();
+                drain();
+            } catch (IOException e) {
+                unreadable(e);
+                return;
+            }
+            submit(this::process);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Client parti en cours d'envoi
+            log.debug("Lecture du corps interrompue: {}", t.getMessage());
+            if (finished.compareAndSet(false, true)) {
+                release();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            log.warn("Requête d'envoi abandonnée après {} ms ({} octets reçus)", timeoutMs, received);
+            respond(HttpStatus.REQUEST_TIMEOUT, null,
+                    MailResponseDto.error("Délai de requête dépassé", "REQUEST_TIMEOUT"));
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            onError(event.getThrowable());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        /**
+         * Corps décompressé par RequestDecompressionFilter : lu par blocs sur le pool
+         */
+        void readDecompressed() {
+            byte[] chunk = new byte[READ_CHUNK];
+            try (InputStream input = async.getRequest().getInputStream()) {
+                int read;
+                while ((read = input.read(chunk)) != -1) {
+                    // Taille décompressée inconnue à l'avance : comptée au fil de la lecture
+                    if (!budget.tryReserve(read)) {
+                        log.warn("Corps décompressé refusé: budget mémoire des corps épuisé");
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                        respond(HttpStatus.SERVICE_UNAVAILABLE, headers, MailResponseDto.error(
+                                "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                                "SERVICE_OVERLOADED"));
+                        return;
+                    }
+                    reserved.addAndGet(read);
+                    if (!feed(chunk, read)) {
+                        return;
+                    }
+                }
+                feeder.endOfInput();
+                drain();
+            } catch (RequestDecompressionFilter.DecompressionLimitException e) {
+                respond(HttpStatus.PAYLOAD_TOO_LARGE, null,
+                        MailResponseDto.error(e.getMessage(), RequestDecompressionFilter.DecompressionLimitException.ERROR_CODE));
+                return;
+            } catch (IOException e) {
+                unreadable(e);
+                return;
+            }
+            process();
+        }
+
+        /**
+         * @return false si le corps dépasse la taille maximale (réponse déjà envoyée)
+         */
+        private boolean feed(byte[] chunk, int read) throws IOException {
+            received += read;
+            if (received > maxBodyBytes) {
+                respond(HttpStatus.PAYLOAD_TOO_LARGE, null,
+                        MailResponseDto.error("Requête trop volumineuse", "REQUEST_TOO_LARGE"));
+                return false;
+            }
+            feeder.feedInput(chunk, 0, read);
+            drain();
+            return true;
+        }
+
+        /**
+         * Copie les jetons complets ; le parser a consommé tout le bloc en rendant NOT_AVAILABLE
+         */
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                tokens.copyCurrentEvent(parser);
+            }
+        }
+
+        private void process() {
+            // Thread d'envoi : chronométrage et identifiant de corrélation (MDC) de la requête
+            if (timing == null) {
+                handle();
+                return;
+            }
+            timing.bind();
+            try {
+                handle();
+            } finally {
+                timing.unbind();
+            }
+        }
+
+        private void handle() {
+            MailRequestDto request;
+            try (JsonParser buffered = tokens.asParser(objectMapper)) {
+                request = objectMapper.readValue(buffered, MailRequestDto.class);
+            } catch (AdditionalDataRejectedException e) {
+                log.warn("additionalData refusé à la lecture: {}", e.getOriginalMessage());
+                respond(HttpStatus.BAD_REQUEST, null,
+                        validationError(Map.of("additionalData", e.getOriginalMessage())));
+                return;
+            } catch (IOException e) {
+                unreadable(e);
+                return;
+            }
+
+            if (timing != null) {
+                timing.bodyRead();
+            }
+            Map<String, String> fieldErrors = new HashMap<>();
+            for (ConstraintViolation<MailRequestDto> violation : validator.validate(request)) {
+                fieldErrors.put(violation.getPropertyPath().toString(), violation.getMessage());
+            }
+            if (!fieldErrors.isEmpty()) {
+                respond(HttpStatus.BAD_REQUEST, null, validationError(fieldErrors));
+                return;
+            }
+
+            ResponseEntity<MailResponseDto> response = mailController.sendMail(request);
+            respond(HttpStatus.valueOf(response.getStatusCode().value()), response.getHeaders(), response.getBody());
+        }
+
+        private void submit(Runnable task) {
+            try {
+                workers.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        log.error("Erreur interne", e);
+                        respond(HttpStatus.INTERNAL_SERVER_ERROR, null, MailResponseDto.error(
+                                "Une erreur s'est produite lors de l'envoi", "INTERNAL_ERROR"));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("File d'envoi non bloquante pleine, requête refusée");
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                respond(HttpStatus.SERVICE_UNAVAILABLE, headers, MailResponseDto.error(
+                        "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                        "SERVICE_OVERLOADED"));
+            }
+        }
+
+        private void unreadable(IOException e) {
+            log.debug("Corps de requête illisible: {}", e.getMessage());
+            Map<String, Object> body = new HashMap<>();
+            body.put("success", false);
+            body.put("errorCode", "INVALID_REQUEST_BODY");
+            body.put("message", "Corps de requête illisible");
+            respond(HttpStatus.BAD_REQUEST, null, body);
+        }
+
+        private Map<String, Object> validationError(Map<String, String> fieldErrors) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("success", false);
+            body.put("errorCode", "VALIDATION_ERROR");
+            body.put("errors", fieldErrors);
+            return body;
+        }
+
+        /**
+         * Réponse unique : la première (traitement, dépassement, délai) l'emporte
+         */
+        private void respond(HttpStatus status, HttpHeaders headers, Object body) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                HttpServletResponse response = (HttpServletResponse) async.getResponse();
+                if (headers != null) {
+                    headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+                }
+                write(response, status, body);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Réponse non transmise: {}", e.getMessage());
+            } finally {
+                release();
+                async.complete();
+                if (timing != null) {
+                    timing.complete(status.value());
+                }
+            }
+        }
+
+        private void release() {
+            inflight.release();
+            budget.release(reserved.getAndSet(0));
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // rien à libérer de plus
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.gilmotech.emailservice.controller;
+
+import com.gilmotech.emailservice.dto.UploadRequestDto;
+import com.gilmotech.emailservice.dto.UploadStatusDto;
+import com.gilmotech.emailservice.service.UploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Envoi des pièces jointes avant la soumission du formulaire :
+ * 1. POST /api/mail/uploads déclare le fichier et renvoie un jeton
+ * 2. PUT /api/mail/uploads/{token}/chunks/{index} envoie chaque morceau (en parallèle, dans n'importe quel ordre)
+ * 3. le jeton est transmis dans attachments[].uploadToken de /api/mail/send
+ */
+@RestController
+@RequestMapping("/api/mail/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+
+    private final UploadService uploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadStatusDto> create(@Valid @RequestBody UploadRequestDto request,
+                                                  HttpServletRequest httpRequest) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(uploadService.create(request, httpRequest.getRemoteAddr()));
+    }
+
+    /**
+     * Corps de la requête : octets bruts du morceau (application/octet-stream)
+     */
+    @PutMapping("/{token}/chunks/{index}")
+    public ResponseEntity<UploadStatusDto> chunk(
+            @PathVariable String token,
+            @PathVariable int index,
+            HttpServletRequest request
+    ) throws IOException {
+        return ResponseEntity.ok(uploadService.writeChunk(token, index, request.getInputStream()));
+    }
+
+    /**
+     * État de l'upload, pour ne renvoyer que les morceaux manquants après une coupure
+     */
+    @GetMapping("/{token}")
+    public ResponseEntity<UploadStatusDto> status(@PathVariable String token) {
+        return ResponseEntity.ok(uploadService.status(token));
+    }
+
+    @DeleteMapping("/{token}")
+    public ResponseEntity<Void> cancel(@PathVariable String token) {
+        uploadService.cancel(token);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.gilmotech.emailservice.dto;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -13,9 +15,12 @@ public class FileAttachmentDto {
     @Size(max = 255, message = "Le nom du fichier ne peut pas dépasser 255 caractères")
     private String filename;
 
-    @NotBlank(message = "Le contenu du fichier est obligatoire")
     private String content; // Base64 encoded
 
+    // Fichier déjà envoyé via /api/mail/uploads : remplace le contenu
+    @Pattern(regexp = "^[A-Za-z0-9_-]{22}$", message = "Jeton d'upload invalide")
+    private String uploadToken;
+
     @NotBlank(message = "Le type MIME est obligatoire")
     @Pattern(
             regexp = "^(image/(jpeg|jpg|png|gif|webp)|application/pdf|application/(vnd\\.openxmlformats-officedocument\\.(wordprocessingml\\.document|spreadsheetml\\.sheet)))$",
@@ -25,4 +30,10 @@ public class FileAttachmentDto {
 
     @Size(max = 500, message = "La description ne peut pas dépasser 500 caractères")
     private String description;
+
+    @JsonIgnore
+    @AssertTrue(message = "Le contenu du fichier ou un jeton d'upload est obligatoire")
+    public boolean isContentProvided() {
+        return (content != null && !content.isBlank()) != (uploadToken != null);
+    }
 }
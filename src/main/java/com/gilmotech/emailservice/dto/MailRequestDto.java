@@ -1,18 +1,24 @@
 package com.gilmotech.emailservice.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.gilmotech.emailservice.validation.BoundedAdditionalDataDeserializer;
+import com.gilmotech.emailservice.validation.ValidAdditionalData;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @Data
+@ValidAdditionalData
 public class MailRequestDto {
 
     @NotBlank(message = "Le code application est obligatoire")
-    @Pattern(regexp = "ASSURANTIS|GILMOTECH",
+    // Les tenants existants sont définis en configuration (app.tenants)
+    @Pattern(regexp = "^[A-Za-z][A-Za-z0-9_]{1,31}$",
             message = "Code application invalide")
     private String appCode;
 
@@ -50,9 +56,15 @@ public class MailRequestDto {
     @Size(max = 15, message = "Maximum 15 fichiers autorisés")
     private List<FileAttachmentDto> attachments = new ArrayList<>();
 
-    // Données additionnelles spécifiques
+    // Données additionnelles spécifiques : bornées à la lecture, puis contrôlées
+    // par le schéma additional-data de la configuration (mail-configs.yml)
+    @JsonDeserialize(using = BoundedAdditionalDataDeserializer.class)
     private Map<String, Object> additionalData;
 
     // Token reCAPTCHA (optionnel)
     private String recaptchaToken;
+
+    // Envoi programmé (optionnel, ISO-8601 avec fuseau, ex: 2025-01-06T09:00:00+01:00)
+    // Une date déjà passée est envoyée immédiatement
+    private OffsetDateTime sendAt;
 }
\ No newline at end of file
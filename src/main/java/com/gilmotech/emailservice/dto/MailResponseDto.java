@@ -1,5 +1,6 @@
 package com.gilmotech.emailservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,11 +16,19 @@ public class MailResponseDto {
     private LocalDateTime timestamp;
     private String errorCode;
 
+    // Référence d'un envoi programmé, pour l'annuler
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String reference;
+
     public static MailResponseDto success(String message) {
-        return new MailResponseDto(true, message, LocalDateTime.now(), null);
+        return new MailResponseDto(true, message, LocalDateTime.now(), null, null);
+    }
+
+    public static MailResponseDto scheduled(String message, String reference) {
+        return new MailResponseDto(true, message, LocalDateTime.now(), null, reference);
     }
 
     public static MailResponseDto error(String message, String errorCode) {
-        return new MailResponseDto(false, message, LocalDateTime.now(), errorCode);
+        return new MailResponseDto(false, message, LocalDateTime.now(), errorCode, null);
     }
 }
\ No newline at end of file
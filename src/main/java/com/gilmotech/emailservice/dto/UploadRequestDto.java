@@ -0,0 +1,29 @@
+package com.gilmotech.emailservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * Déclaration d'un fichier avant son envoi par morceaux
+ */
+@Data
+public class UploadRequestDto {
+
+    @NotBlank(message = "Le code application est obligatoire")
+    @Pattern(regexp = "^[A-Za-z][A-Za-z0-9_]{1,31}$",
+            message = "Code application invalide")
+    private String appCode;
+
+    @NotBlank(message = "Le nom du fichier est obligatoire")
+    @Size(max = 255, message = "Le nom du fichier ne peut pas dépasser 255 caractères")
+    private String filename;
+
+    @NotBlank(message = "Le type MIME est obligatoire")
+    private String mimeType;
+
+    @Positive(message = "La taille du fichier est obligatoire")
+    private long size;
+}
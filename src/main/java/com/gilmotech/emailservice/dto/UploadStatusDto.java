@@ -0,0 +1,23 @@
+package com.gilmotech.emailservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * État d'un upload : le client renvoie uniquement les morceaux manquants pour reprendre
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatusDto {
+    private String token;
+    private int chunkSize;
+    private int chunkCount;
+    private List<Integer> missingChunks;
+    private boolean complete;
+    private LocalDateTime expiresAt;
+}
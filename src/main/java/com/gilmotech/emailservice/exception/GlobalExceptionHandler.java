@@ -1,9 +1,13 @@
 package com.gilmotech.emailservice.exception;
 
+import com.gilmotech.emailservice.config.RequestDecompressionFilter;
 import com.gilmotech.emailservice.dto.MailResponseDto;
+import com.gilmotech.emailservice.validation.AdditionalDataRejectedException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -35,4 +39,47 @@ public class GlobalExceptionHandler {
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, Object>> handleUnreadableBody(HttpMessageNotReadableException ex) {
+        Map<String, Object> errors = new HashMap<>();
+        errors.put("success", false);
+
+        // Corps compressé : limite de décompression atteinte pendant la lecture
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof RequestDecompressionFilter.DecompressionLimitException limit) {
+                log.warn("Corps compressé refusé à la lecture: {}", limit.getMessage());
+                errors.put("errorCode", RequestDecompressionFilter.DecompressionLimitException.ERROR_CODE);
+                errors.put("message", limit.getMessage());
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errors);
+            }
+        }
+
+        // Limites de additionalData dépassées pendant la lecture : même format que la validation
+        if (ex.getCause() instanceof AdditionalDataRejectedException rejected) {
+            log.warn("additionalData refusé à la lecture: {}", rejected.getOriginalMessage());
+            errors.put("errorCode", "VALIDATION_ERROR");
+            errors.put("errors", Map.of("additionalData", rejected.getOriginalMessage()));
+        } else {
+            errors.put("errorCode", "INVALID_REQUEST_BODY");
+            errors.put("message", "Corps de requête illisible");
+        }
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<MailResponseDto> handleOverloaded(ServiceOverloadedException ex) {
+        log.warn("Service surchargé: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(MailResponseDto.error(ex.getMessage(), ex.getErrorCode()));
+    }
+
+    @ExceptionHandler(MailSendingException.class)
+    public ResponseEntity<MailResponseDto> handleMailSending(MailSendingException ex) {
+        log.warn("Requête refusée: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(MailResponseDto.error(ex.getMessage(), ex.getErrorCode()));
+    }
+}
@@ -0,0 +1,16 @@
+package com.gilmotech.emailservice.exception;
+
+import lombok.Getter;
+
+/**
+ * Service temporairement saturé : renvoyé au client en 503 avec un en-tête Retry-After
+ */
+@Getter
+public class ServiceOverloadedException extends MailSendingException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String errorCode, String message, long retryAfterSeconds) {
+        super(errorCode, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,54 @@
+package com.gilmotech.emailservice.model;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Contenu autorisé de additionalData pour une configuration de mail :
+ * clés, types, longueurs et profondeur. Compilé au chargement (AdditionalDataValidator).
+ */
+@Data
+public class AdditionalDataSchema {
+
+    // Niveaux d'objets / listes imbriqués, additionalData compris (1 = valeurs simples uniquement)
+    private int maxDepth = 3;
+
+    // Nombre total de valeurs, toutes profondeurs confondues
+    private int maxEntries = 100;
+
+    // Longueur des chaînes sans limite propre (champs sans max-length, champs inconnus autorisés)
+    private int maxStringLength = 1000;
+
+    // Champs non déclarés : refusés sauf si autorisés explicitement
+    private boolean allowUnknownKeys = false;
+
+    private Map<String, Field> fields = new LinkedHashMap<>();
+
+    @Data
+    public static class Field {
+        private FieldType type = FieldType.STRING;
+        private boolean required = false;
+
+        // Chaînes
+        private Integer maxLength;
+
+        // Listes : nombre d'éléments et schéma de chaque élément (texte par défaut)
+        private int maxItems = 20;
+        private Field items;
+
+        // Objets
+        private Map<String, Field> fields = new LinkedHashMap<>();
+    }
+
+    public enum FieldType {
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        // Texte, nombre ou booléen
+        SCALAR,
+        OBJECT,
+        ARRAY
+    }
+}
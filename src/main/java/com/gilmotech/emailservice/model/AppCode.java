@@ -1,14 +1,27 @@
 package com.gilmotech.emailservice.model;
 
-public enum AppCode {
-    ASSURANTIS,
-    GILMOTECH;
+import java.util.Locale;
 
-    public static AppCode fromString(String code) {
-        try {
-            return AppCode.valueOf(code.toUpperCase());
-        } catch (IllegalArgumentException e) {
+/**
+ * Code d'une application cliente (tenant).
+ * Les tenants sont définis en configuration (app.tenants dans mail-configs.yml) :
+ * en ajouter un ne demande aucun changement de code.
+ */
+public record AppCode(String code) {
+
+    public AppCode {
+        if (code == null || code.isBlank()) {
             throw new IllegalArgumentException("Code application invalide: " + code);
         }
+        code = code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static AppCode fromString(String code) {
+        return new AppCode(code);
+    }
+
+    @Override
+    public String toString() {
+        return code;
     }
 }
@@ -24,4 +24,31 @@ public class MailConfiguration {
     private String templatePath;
     private String templatePathConfirmation;
     private boolean active = true;
+
+    // Ordonnancement des envois : part de débit relative (poids) et priorité (plus élevée = servie d'abord)
+    private int sendWeight = 1;
+    private int sendPriority = 0;
+
+    // Notifications admin regroupées en un email récapitulatif (désactivé par défaut)
+    private Digest digest = new Digest();
+
+    // Contenu autorisé de additionalData (absent : seules les limites globales s'appliquent)
+    private AdditionalDataSchema additionalData;
+
+    public boolean isDigestEnabled() {
+        return digest != null && digest.isEnabled();
+    }
+
+    @Data
+    public static class Digest {
+        private boolean enabled = false;
+
+        // Envoi du récapitulatif dès que maxEntries notifications sont en attente...
+        private int maxEntries = 50;
+
+        // ... ou que la plus ancienne attend depuis maxDelaySeconds
+        private long maxDelaySeconds = 300;
+
+        private String templatePath = "email/digest/admin_digest";
+    }
 }
\ No newline at end of file
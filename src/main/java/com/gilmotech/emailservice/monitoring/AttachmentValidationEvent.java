@@ -0,0 +1,18 @@
+package com.gilmotech.emailservice.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gilmotech.email.AttachmentValidation")
+@Label("Validation des pièces jointes")
+@Description("Vérification du type, décodage et réservation mémoire des pièces jointes")
+public class AttachmentValidationEvent extends MailStageEvent {
+
+    @Label("Pièces jointes")
+    int attachmentCount;
+
+    public void setAttachmentCount(int attachmentCount) {
+        this.attachmentCount = attachmentCount;
+    }
+}
@@ -0,0 +1,18 @@
+package com.gilmotech.emailservice.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gilmotech.email.MailRequest")
+@Label("Requête d'envoi")
+@Description("Traitement complet d'une requête /api/mail/send, de l'acceptation à la réponse")
+public class MailRequestEvent extends MailStageEvent {
+
+    @Label("Statut HTTP")
+    int status;
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,55 @@
+package com.gilmotech.emailservice.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base des événements JFR du pipeline d'envoi : chaque étape porte l'application,
+ * le type de mail, la référence et le volume traité.
+ * Quand aucun enregistrement JFR n'est actif, le coût est négligeable.
+ */
+@Category({"Gilmotech", "Email Service"})
+@StackTrace(false)
+public abstract class MailStageEvent extends Event {
+
+    @Label("Application")
+    String appCode;
+
+    @Label("Type de mail")
+    String mailType;
+
+    @Label("Référence")
+    String reference;
+
+    @Label("Octets")
+    @DataAmount
+    long bytes;
+
+    /**
+     * Démarre la mesure de l'étape
+     */
+    public void start(Object appCode, Object mailType, String reference) {
+        this.appCode = appCode != null ? appCode.toString() : null;
+        this.mailType = mailType != null ? mailType.toString() : null;
+        this.reference = reference;
+        begin();
+    }
+
+    /**
+     * Termine la mesure et enregistre l'événement s'il dépasse le seuil configuré
+     */
+    public void finish(long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            commit();
+        }
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+}
@@ -0,0 +1,18 @@
+package com.gilmotech.emailservice.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gilmotech.email.MimeAssembly")
+@Label("Construction MIME")
+@Description("Construction du message MIME (en-têtes, corps, pièces jointes)")
+public class MimeAssemblyEvent extends MailStageEvent {
+
+    @Label("Destinataire")
+    String recipientKind;
+
+    public void setRecipientKind(String recipientKind) {
+        this.recipientKind = recipientKind;
+    }
+}
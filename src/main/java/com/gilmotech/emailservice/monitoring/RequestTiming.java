@@ -0,0 +1,161 @@
+package com.gilmotech.emailservice.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Décomposition de la latence d'une requête d'envoi, par étape : renvoyée au client dans
+ * l'en-tête Server-Timing et journalisée (échantillonnée) quand la requête est lente.
+ * Attachée au thread qui traite la requête, avec l'identifiant de corrélation placé dans le MDC.
+ * Hors requête (envois programmés, renvois), start() renvoie 0 et stop() ne fait rien :
+ * le coût se limite à une lecture de ThreadLocal.
+ */
+@Slf4j
+public final class RequestTiming {
+
+    public static final String ATTRIBUTE = RequestTiming.class.getName();
+    public static final String MDC_KEY = "correlationId";
+
+    public enum Stage {
+        VALIDATE("validate"),
+        ATTACHMENTS("attachments"),
+        CONFIG("config"),
+        RENDER_ADMIN("render-admin"),
+        RENDER_CONFIRM("render-confirm"),
+        SMTP_ADMIN("smtp-admin"),
+        SMTP_CONFIRM("smtp-confirm");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final String correlationId;
+    private final long slowThresholdNanos;
+    private final double slowSampleRate;
+    private final long startNanos = System.nanoTime();
+    private final long[] stageNanos = new long[STAGES.length];
+    private long bodyReadNanos;
+
+    public RequestTiming(String correlationId, long slowThresholdMs, double slowSampleRate) {
+        this.correlationId = correlationId;
+        this.slowThresholdNanos = slowThresholdMs * 1_000_000;
+        this.slowSampleRate = slowSampleRate;
+    }
+
+    /**
+     * Chronomètre de la requête en cours sur ce thread (null hors requête d'envoi)
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return l'instant de début, ou 0 hors requête d'envoi
+     */
+    public static long start() {
+        return CURRENT.get() != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Ajoute la durée écoulée depuis start() à l'étape (une étape peut être mesurée en plusieurs fois)
+     */
+    public static void stop(Stage stage, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.stageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    public void bind() {
+        CURRENT.set(this);
+        MDC.put(MDC_KEY, correlationId);
+    }
+
+    public void unbind() {
+        CURRENT.remove();
+        MDC.remove(MDC_KEY);
+    }
+
+    /**
+     * Corps de la requête désérialisé : la validation commence
+     */
+    public void bodyRead() {
+        bodyReadNanos = System.nanoTime();
+    }
+
+    /**
+     * Validation des contraintes terminée (entrée dans le contrôleur)
+     */
+    public void validated() {
+        long readAt = bodyReadNanos;
+        if (readAt != 0) {
+            stageNanos[Stage.VALIDATE.ordinal()] += System.nanoTime() - readAt;
+            bodyReadNanos = 0;
+        }
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Valeur de l'en-tête Server-Timing, ex: validate;dur=0.21, ..., total;dur=152.40
+     */
+    public String serverTiming() {
+        StringBuilder header = new StringBuilder(192);
+        for (Stage stage : STAGES) {
+            appendMillis(header.append(stage.metricName).append(";dur="), stageNanos[stage.ordinal()]);
+            header.append(", ");
+        }
+        return appendMillis(header.append("total;dur="), System.nanoTime() - startNanos).toString();
+    }
+
+    /**
+     * Fin de la requête : journalisée avec le détail des étapes si elle dépasse le seuil (échantillonnée)
+     */
+    public void complete(int status) {
+        long totalNanos = System.nanoTime() - startNanos;
+        if (slowThresholdNanos <= 0 || totalNanos < slowThresholdNanos
+                || (slowSampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= slowSampleRate)) {
+            return;
+        }
+        StringBuilder breakdown = new StringBuilder(160);
+        for (Stage stage : STAGES) {
+            appendMillis(breakdown.append(stage.metricName).append('='), stageNanos[stage.ordinal()]).append("ms ");
+        }
+        log.warn("Requête d'envoi lente [{}] : {} ms au total, statut {} — {}",
+                correlationId, String.format(Locale.ROOT, "%.1f", totalNanos / 1e6), status,
+                breakdown.toString().trim());
+    }
+
+    private static StringBuilder appendMillis(StringBuilder target, long nanos) {
+        // Millisecondes avec deux décimales, sans String.format sur le chemin de chaque requête
+        long hundredths = nanos / 10_000;
+        target.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            target.append('0');
+        }
+        return target.append(fraction);
+    }
+}
@@ -0,0 +1,25 @@
+package com.gilmotech.emailservice.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gilmotech.email.SmtpSend")
+@Label("Envoi SMTP")
+@Description("Transmission du message au relais SMTP (connexion comprise)")
+public class SmtpSendEvent extends MailStageEvent {
+
+    @Label("Destinataire")
+    String recipientKind;
+
+    @Label("Succès")
+    boolean success;
+
+    public void setRecipientKind(String recipientKind) {
+        this.recipientKind = recipientKind;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
@@ -0,0 +1,18 @@
+package com.gilmotech.emailservice.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gilmotech.email.TemplateRender")
+@Label("Rendu de template")
+@Description("Rendu Thymeleaf d'un template email")
+public class TemplateRenderEvent extends MailStageEvent {
+
+    @Label("Template")
+    String templatePath;
+
+    public void setTemplatePath(String templatePath) {
+        this.templatePath = templatePath;
+    }
+}
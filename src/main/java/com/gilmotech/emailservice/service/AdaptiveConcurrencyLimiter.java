@@ -0,0 +1,195 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite adaptative du nombre d'envois simultanés (attente dans l'ordonnanceur + SMTP),
+ * ajustée d'après la latence mesurée, sur le principe des limiteurs à gradient :
+ * - latence courte (fenêtre récente) proche de la latence longue : la limite augmente de √limite
+ * - latence courte qui dépasse tolerance × latence longue : la limite baisse proportionnellement
+ * - échec d'envoi (timeout, relais indisponible) : baisse immédiate de backoff-ratio
+ * Au-delà de la limite, l'envoi est refusé tout de suite (503 SEND_CONCURRENCY_LIMITED)
+ * plutôt que d'attendre jusqu'au timeout du client.
+ */
+@Service
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int LONG_WINDOW_SAMPLES = 600;
+    private static final int SHORT_WINDOW_SAMPLES = 10;
+    private static final long SHORT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final long retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    private volatile double limit;
+
+    // Fenêtre courante, protégée par le verrou de l'instance
+    private double longRttNanos;
+    private long longSamples;
+    private long windowSumNanos;
+    private int windowSamples;
+    private long windowStartNanos = System.nanoTime();
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimiter(
+            @Value("${app.mail.concurrency.enabled:true}") boolean enabled,
+            @Value("${app.mail.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${app.mail.concurrency.min-limit:2}") int minLimit,
+            @Value("${app.mail.concurrency.max-limit:200}") int maxLimit,
+            @Value("${app.mail.concurrency.tolerance:1.5}") double tolerance,
+            @Value("${app.mail.concurrency.smoothing:0.2}") double smoothing,
+            @Value("${app.mail.concurrency.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${app.mail.concurrency.retry-after-seconds:2}") long retryAfterSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder("mail.send.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Limite courante d'envois simultanés")
+                .register(meterRegistry);
+        Gauge.builder("mail.send.concurrency.inflight", inFlight, AtomicInteger::get)
+                .description("Envois en cours (file d'attente + SMTP)")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("mail.send.concurrency.rejected")
+                .description("Envois refusés au-delà de la limite")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Réserve une place, ou refuse immédiatement si la limite est atteinte
+     */
+    public Permit acquire() {
+        int current = inFlight.incrementAndGet();
+        if (enabled && current > (int) limit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            log.warn("Envoi refusé : {} envois en cours pour une limite de {}", current - 1, (int) limit);
+            throw new ServiceOverloadedException(
+                    "SEND_CONCURRENCY_LIMITED",
+                    "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                    retryAfterSeconds
+            );
+        }
+        synchronized (this) {
+            windowMaxInFlight = Math.max(windowMaxInFlight, current);
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos) {
+        // Référence longue : moyenne simple pendant le démarrage, puis moyenne mobile exponentielle
+        longSamples++;
+        double longFactor = longSamples <= SHORT_WINDOW_SAMPLES
+                ? 1.0 / longSamples
+                : 2.0 / (LONG_WINDOW_SAMPLES + 1);
+        longRttNanos += (rttNanos - longRttNanos) * longFactor;
+
+        windowSumNanos += rttNanos;
+        windowSamples++;
+        long now = System.nanoTime();
+        if (windowSamples < SHORT_WINDOW_SAMPLES && now - windowStartNanos < SHORT_WINDOW_NANOS) {
+            return;
+        }
+
+        double shortRttNanos = (double) windowSumNanos / windowSamples;
+
+        // Après une période dégradée, la référence longue redescend vers la latence actuelle
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        // Limite non atteinte pendant la fenêtre : la mesure ne dit rien d'une limite plus haute
+        if (windowMaxInFlight < limit / 2) {
+            newLimit = Math.min(newLimit, limit);
+        }
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        setLimit(newLimit);
+
+        windowSumNanos = 0;
+        windowSamples = 0;
+        windowStartNanos = now;
+        windowMaxInFlight = inFlight.get();
+    }
+
+    private synchronized void onDrop() {
+        setLimit(limit * backoffRatio);
+    }
+
+    private void setLimit(double newLimit) {
+        double bounded = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if ((int) bounded != (int) limit) {
+            log.debug("Limite d'envois simultanés: {} -> {}", (int) limit, (int) bounded);
+        }
+        limit = bounded;
+    }
+
+    /**
+     * Place réservée : exactement une des méthodes doit être appelée à la fin de l'envoi
+     */
+    public final class Permit {
+
+        private final long startNanos;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Envoi réussi : sa durée alimente le calcul de la limite
+         */
+        public void success() {
+            inFlight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Envoi en échec lié à la charge (timeout, relais saturé) : la limite baisse
+         */
+        public void dropped() {
+            inFlight.decrementAndGet();
+            onDrop();
+        }
+
+        /**
+         * Envoi en échec sans rapport avec la charge (destinataire refusé)
+         */
+        public void ignore() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
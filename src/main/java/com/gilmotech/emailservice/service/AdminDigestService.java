@@ -0,0 +1,248 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import com.gilmotech.emailservice.model.MailConfiguration;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.UnsupportedEncodingException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mode digest : pour les configurations qui l'activent, les notifications admin sont
+ * mises en attente puis envoyées en un seul email récapitulatif dès qu'un seuil
+ * (nombre de notifications ou délai) est atteint. Les confirmations client ne passent pas par ici.
+ */
+@Service
+@Slf4j
+public class AdminDigestService {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final TenantMailSenderRegistry mailSenderRegistry;
+    private final TemplateService templateService;
+    private final ConfirmationRedeliveryService redeliveryService;
+
+    // Clé : APP_TYPE -> notifications en attente
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    // Envoi des digests hors du thread de la requête et du planificateur partagé
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "admin-digest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AdminDigestService(TenantMailSenderRegistry mailSenderRegistry,
+                              TemplateService templateService,
+                              ConfirmationRedeliveryService redeliveryService) {
+        this.mailSenderRegistry = mailSenderRegistry;
+        this.templateService = templateService;
+        this.redeliveryService = redeliveryService;
+    }
+
+    /**
+     * Ajoute une notification admin au digest de sa configuration
+     * @param variables variables du template ; additionalData peut en remplacer certaines par
+     *                  des valeurs non textuelles, d'où la conversion en chaîne
+     */
+    public void add(MailConfiguration config, Map<String, Object> variables) {
+        DigestEntry entry = new DigestEntry(
+                Objects.toString(variables.get("reference"), null),
+                LocalDateTime.now().format(TIME_FORMAT),
+                Objects.toString(variables.get("name"), null),
+                Objects.toString(variables.get("email"), null),
+                Objects.toString(variables.get("phone"), null),
+                Objects.toString(variables.get("company"), null),
+                Objects.toString(variables.get("subject"), null),
+                Objects.toString(variables.get("message"), null)
+        );
+
+        Buffer buffer = buffers.computeIfAbsent(config.getAppCode() + "_" + config.getMailType(),
+                key -> new Buffer(config));
+        List<DigestEntry> batch = buffer.add(entry);
+        log.info("Notification admin {} ajoutée au digest {} / {}",
+                entry.getReference(), config.getAppCode(), config.getMailType());
+
+        if (batch != null) {
+            flusher.execute(() -> send(config, batch));
+        }
+    }
+
+    /**
+     * Envoie les digests dont la plus ancienne notification a atteint le délai maximum
+     */
+    @Scheduled(fixedDelayString = "${app.mail.digest.check-interval-ms:5000}")
+    public void flushDue() {
+        long now = System.nanoTime();
+        buffers.values().forEach(buffer -> {
+            List<DigestEntry> batch = buffer.drainIfDue(now);
+            if (batch != null) {
+                flusher.execute(() -> send(buffer.config, batch));
+            }
+        });
+    }
+
+    /**
+     * À l'arrêt, rien ne doit rester en attente
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        buffers.values().forEach(buffer -> {
+            List<DigestEntry> batch = buffer.drainAll();
+            if (batch != null) {
+                send(buffer.config, batch);
+            }
+        });
+    }
+
+    public int getPendingCount() {
+        return buffers.values().stream().mapToInt(Buffer::size).sum();
+    }
+
+    private void send(MailConfiguration config, List<DigestEntry> entries) {
+        String reference = entries.get(0).getReference() + ".." + entries.get(entries.size() - 1).getReference();
+        JavaMailSender mailSender = mailSenderRegistry.senderFor(config.getAppCode());
+        MimeMessage message;
+
+        try {
+            message = buildDigest(mailSender, config, entries);
+        } catch (MessagingException | UnsupportedEncodingException | RuntimeException e) {
+            log.error("Impossible de construire le digest {} / {}, notifications perdues: {}",
+                    config.getAppCode(), config.getMailType(),
+                    entries.stream().map(DigestEntry::getReference).toList(), e);
+            return;
+        }
+
+        try {
+            mailSender.send(message);
+            log.info("Digest envoyé pour {} / {} : {} notification(s)",
+                    config.getAppCode(), config.getMailType(), entries.size());
+        } catch (MailException | ServiceOverloadedException e) {
+            log.warn("Échec de l'envoi du digest {}, renvoi en arrière-plan: {}", reference, e.getMessage());
+            redeliveryService.enqueue(ConfirmationRedeliveryService.Kind.ADMIN_DIGEST, config.getAppCode(),
+                    config.getMailType(), reference, String.join(", ", config.getToAddresses()), message, e);
+        }
+    }
+
+    private MimeMessage buildDigest(JavaMailSender mailSender, MailConfiguration config, List<DigestEntry> entries)
+            throws MessagingException, UnsupportedEncodingException {
+
+        String subject = String.format("%s (récapitulatif de %d message(s))", config.getSubject(), entries.size());
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("entries", entries);
+        variables.put("count", entries.size());
+        variables.put("title", subject);
+        variables.put("appCode", config.getAppCode().code());
+        variables.put("firstReceivedAt", entries.get(0).getReceivedAt());
+        variables.put("lastReceivedAt", entries.get(entries.size() - 1).getReceivedAt());
+
+        String htmlContent = templateService.generateHtmlContent(config.getDigest().getTemplatePath(), variables);
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(new InternetAddress(config.getFromAddress(), config.getFromName()));
+        helper.setTo(config.getToAddresses().toArray(new String[0]));
+        if (config.getCcAddresses() != null && !config.getCcAddresses().isEmpty()) {
+            helper.setCc(config.getCcAddresses().toArray(new String[0]));
+        }
+        if (config.getBccAddresses() != null && !config.getBccAddresses().isEmpty()) {
+            helper.setBcc(config.getBccAddresses().toArray(new String[0]));
+        }
+        helper.setSubject(subject);
+        helper.setText(generateTextContent(entries), htmlContent);
+        return message;
+    }
+
+    private String generateTextContent(List<DigestEntry> entries) {
+        StringBuilder text = new StringBuilder();
+        text.append(entries.size()).append(" nouveau(x) message(s)\n");
+        for (DigestEntry entry : entries) {
+            text.append("\n[").append(entry.getReference()).append("] ").append(entry.getReceivedAt()).append('\n')
+                    .append(entry.getName()).append(" <").append(entry.getEmail()).append(">\n")
+                    .append(entry.getMessage()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Notification en attente dans un digest
+     */
+    @Value
+    public static class DigestEntry {
+        String reference;
+        String receivedAt;
+        String name;
+        String email;
+        String phone;
+        String company;
+        String subject;
+        String message;
+    }
+
+    private static class Buffer {
+
+        private final MailConfiguration config;
+        private final List<DigestEntry> entries = new ArrayList<>();
+        private long oldestNanos;
+
+        Buffer(MailConfiguration config) {
+            this.config = config;
+        }
+
+        /**
+         * @return le lot à envoyer si le digest est plein, sinon null
+         */
+        synchronized List<DigestEntry> add(DigestEntry entry) {
+            if (entries.isEmpty()) {
+                oldestNanos = System.nanoTime();
+            }
+            entries.add(entry);
+            return entries.size() >= config.getDigest().getMaxEntries() ? drain() : null;
+        }
+
+        synchronized List<DigestEntry> drainIfDue(long nowNanos) {
+            if (entries.isEmpty()) {
+                return null;
+            }
+            long maxDelayNanos = TimeUnit.SECONDS.toNanos(config.getDigest().getMaxDelaySeconds());
+            return nowNanos - oldestNanos >= maxDelayNanos ? drain() : null;
+        }
+
+        synchronized List<DigestEntry> drainAll() {
+            return entries.isEmpty() ? null : drain();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        private List<DigestEntry> drain() {
+            List<DigestEntry> batch = new ArrayList<>(entries);
+            entries.clear();
+            return batch;
+        }
+    }
+}
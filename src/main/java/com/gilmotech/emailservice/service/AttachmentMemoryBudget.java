@@ -0,0 +1,148 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Budget mémoire global des pièces jointes en cours de traitement (Base64 + contenu décodé),
+ * toutes requêtes confondues. Quand le budget est épuisé, la requête attend brièvement
+ * puis est refusée (503 + Retry-After) pour garder le heap borné sous charge.
+ */
+@Component
+@Slf4j
+public class AttachmentMemoryBudget {
+
+    private final long capacityBytes;
+    private final long admissionTimeoutMs;
+    private final long retryAfterSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private long inFlightBytes;
+
+    public AttachmentMemoryBudget(
+            @Value("${app.mail.attachments.memory-budget-mb:256}") long budgetMb,
+            @Value("${app.mail.attachments.admission-timeout-ms:2000}") long admissionTimeoutMs,
+            @Value("${app.mail.attachments.retry-after-seconds:5}") long retryAfterSeconds
+    ) {
+        this.capacityBytes = budgetMb * 1024 * 1024;
+        this.admissionTimeoutMs = admissionTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Réserve des octets dans le budget, en attendant au plus admission-timeout-ms
+     */
+    public Reservation reserve(long bytes) {
+        // Une requête plus grosse que le budget passe seule
+        long requested = Math.min(bytes, capacityBytes);
+
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMs);
+            while (inFlightBytes + requested > capacityBytes) {
+                if (remainingNanos <= 0) {
+                    log.warn("Budget mémoire des pièces jointes épuisé ({} / {} octets), requête de {} octets refusée",
+                            inFlightBytes, capacityBytes, requested);
+                    throw new ServiceOverloadedException(
+                            "SERVICE_OVERLOADED",
+                            "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                            retryAfterSeconds
+                    );
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+            inFlightBytes += requested;
+            return new Reservation(this, requested);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("SERVICE_OVERLOADED", "Requête interrompue", retryAfterSeconds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            inFlightBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajuste sans attendre : l'estimation initiale est remplacée par la taille réelle
+     */
+    private void resize(long delta) {
+        lock.lock();
+        try {
+            inFlightBytes += delta;
+            if (delta < 0) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Octets réservés pour une requête, à libérer après l'envoi
+     */
+    public static final class Reservation implements AutoCloseable {
+
+        public static final Reservation NONE = new Reservation(null, 0);
+
+        private final AttachmentMemoryBudget budget;
+        private long bytes;
+        private boolean closed;
+
+        private Reservation(AttachmentMemoryBudget budget, long bytes) {
+            this.budget = budget;
+            this.bytes = bytes;
+        }
+
+        public synchronized void adjust(long actualBytes) {
+            if (budget == null || closed) {
+                return;
+            }
+            long actual = Math.min(actualBytes, budget.capacityBytes);
+            budget.resize(actual - bytes);
+            bytes = actual;
+        }
+
+        public synchronized long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (budget == null || closed) {
+                return;
+            }
+            closed = true;
+            budget.release(bytes);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.gilmotech.emailservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stockage local des pièces jointes volumineuses, adressé par contenu (SHA-256) :
+ * un même fichier envoyé plusieurs fois n'est écrit qu'une fois.
+ * Les fichiers sont servis via des liens signés (HMAC) qui expirent, puis supprimés
+ * par une tâche planifiée une fois la durée de conservation écoulée.
+ * Activé, il exige une URL publique et une clé de signature partagée par les instances :
+ * sans elles, les liens pointeraient vers localhost ou deviendraient invalides au redémarrage.
+ */
+@Service
+@Slf4j
+public class AttachmentStore {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Pattern HASH_FORMAT = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final boolean enabled;
+    private final long thresholdBytes;
+    private final Duration linkTtl;
+    private final Path directory;
+    private final String publicBaseUrl;
+    private final SecretKeySpec signingKey;
+    private final boolean signingKeyConfigured;
+
+    public AttachmentStore(
+            @Value("${app.mail.attachments.offload.enabled:false}") boolean enabled,
+            @Value("${app.mail.attachments.offload.threshold-kb:2048}") long thresholdKb,
+            @Value("${app.mail.attachments.offload.link-ttl-hours:168}") long linkTtlHours,
+            @Value("${app.mail.attachments.offload.directory:${java.io.tmpdir}/email-service/attachments}") String directory,
+            @Value("${app.mail.attachments.offload.public-base-url:}") String publicBaseUrl,
+            @Value("${app.mail.attachments.offload.signing-key:}") String signingKey
+    ) {
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdKb * 1024;
+        this.linkTtl = Duration.ofHours(linkTtlHours);
+        this.directory = Path.of(directory);
+        this.publicBaseUrl = publicBaseUrl.replaceAll("/+$", "");
+
+        byte[] key = signingKey.getBytes(StandardCharsets.UTF_8);
+        this.signingKeyConfigured = key.length > 0;
+        if (!signingKeyConfigured) {
+            // Stockage désactivé : clé aléatoire, aucun lien n'est émis
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        }
+        this.signingKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (enabled) {
+            if (publicBaseUrl.isBlank() || !signingKeyConfigured) {
+                throw new IllegalStateException("Pièces jointes déportées : app.mail.attachments.offload.public-base-url "
+                        + "(PUBLIC_BASE_URL) et signing-key (ATTACHMENT_SIGNING_KEY) sont obligatoires, "
+                        + "ou ATTACHMENT_OFFLOAD_ENABLED=false");
+            }
+            Files.createDirectories(directory);
+            log.info("Pièces jointes > {} Ko déportées dans {} (liens valables {} h)",
+                    thresholdBytes / 1024, directory, linkTtl.toHours());
+        }
+    }
+
+    /**
+     * La pièce jointe doit-elle être remplacée par un lien ?
+     */
+    public boolean shouldOffload(long sizeBytes) {
+        return enabled && sizeBytes > thresholdBytes;
+    }
+
+    /**
+     * Enregistre le contenu (une seule fois par hash) et renvoie un lien signé
+     */
+    public StoredAttachment store(byte[] content, String filename, String mimeType) {
+        String hash = sha256(content);
+        Path path = pathFor(hash);
+
+        try {
+            if (Files.exists(path)) {
+                // Déjà présent : on prolonge simplement sa conservation
+                Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+            } else {
+                Files.createDirectories(path.getParent());
+                Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+                Files.write(temp, content);
+                try {
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'enregistrer la pièce jointe " + filename, e);
+        }
+
+        long expires = Instant.now().plus(linkTtl).getEpochSecond();
+        String url = publicBaseUrl + "/api/attachments/" + hash
+                + "?name=" + encode(filename)
+                + "&type=" + encode(mimeType)
+                + "&expires=" + expires
+                + "&sig=" + sign(hash, filename, mimeType, expires);
+
+        log.info("Pièce jointe {} ({} octets) déportée: {}", filename, content.length, hash);
+        return new StoredAttachment(filename, mimeType, content.length, url,
+                LocalDateTime.ofInstant(Instant.ofEpochSecond(expires), ZoneId.systemDefault()));
+    }
+
+    /**
+     * Fichier correspondant à un lien, si la signature est valide et le lien non expiré
+     */
+    public Optional<Path> resolve(String hash, String filename, String mimeType, long expires, String signature) {
+        if (!HASH_FORMAT.matcher(hash).matches() || signature == null) {
+            return Optional.empty();
+        }
+        byte[] expected = sign(hash, filename, mimeType, expires).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))
+                || Instant.now().getEpochSecond() > expires) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Supprime les fichiers dont la durée de conservation est écoulée
+     */
+    @Scheduled(fixedDelayString = "${app.mail.attachments.offload.eviction-interval-ms:3600000}")
+    public void evictExpired() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(linkTtl);
+        try (Stream<Path> files = Files.walk(directory)) {
+            long evicted = files.filter(Files::isRegularFile)
+                    .filter(path -> isOlderThan(path, cutoff))
+                    .filter(this::deleteQuietly)
+                    .count();
+            if (evicted > 0) {
+                log.info("{} pièce(s) jointe(s) expirée(s) supprimée(s)", evicted);
+            }
+        } catch (IOException e) {
+            log.warn("Erreur lors du nettoyage des pièces jointes: {}", e.getMessage());
+        }
+    }
+
+    private Path pathFor(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private String sign(String hash, String filename, String mimeType, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal(String.join("\n", hash, String.valueOf(filename),
+                    String.valueOf(mimeType), String.valueOf(expires)).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC indisponible", e);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isOlderThan(Path path, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean deleteQuietly(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Pièce jointe déportée, remplacée par un lien dans l'email admin
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class StoredAttachment {
+        private final String filename;
+        private final String mimeType;
+        private final long size;
+        private final String url;
+        private final LocalDateTime expiresAt;
+
+        @Override
+        public String toString() {
+            return filename + " : " + url;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gilmotech.emailservice.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom à mémoire fixe, lu et mis à jour sans verrou.
+ * mightContain ne renvoie jamais false pour une clé ajoutée ; un true peut être un faux
+ * positif (taux visé à la construction, tant que expectedInsertions n'est pas dépassé).
+ */
+public class BloomFilter {
+
+    private final int hashCount;
+    private final long bitMask;
+    private final AtomicLongArray words;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions doit être positif et le taux entre 0 et 1");
+        }
+        // Taille et nombre de hachages optimaux : m = -n ln(p) / ln(2)², k = m/n ln(2)
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long bits = Long.highestOneBit(Math.max(64, optimalBits - 1)) << 1;
+        if (bits > (long) Integer.MAX_VALUE * Long.SIZE) {
+            throw new IllegalArgumentException("Filtre de Bloom trop grand");
+        }
+        this.hashCount = Math.max(1, (int) Math.round((double) optimalBits / expectedInsertions * Math.log(2)));
+        this.bitMask = bits - 1;
+        this.words = new AtomicLongArray((int) (bits / Long.SIZE));
+    }
+
+    public void put(long keyHash) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(keyHash, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long keyHash) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(keyHash, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitMask + 1;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private long index(long keyHash, int i) {
+        // Double hachage (Kirsch-Mitzenmacher) : h1 + i * h2
+        long h1 = keyHash;
+        long h2 = Long.rotateLeft(keyHash, 32) | 1;
+        return (h1 + i * h2) & bitMask;
+    }
+}
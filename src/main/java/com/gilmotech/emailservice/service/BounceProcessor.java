@@ -0,0 +1,179 @@
+package com.gilmotech.emailservice.service;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+import jakarta.mail.internet.InternetHeaders;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Lecture des avis de non-remise (DSN, RFC 3464) dans la boîte qui reçoit les retours
+ * (IMAP ou POP3). Les destinataires en échec définitif (Action: failed, Status: 5.x.x)
+ * rejoignent la liste de suppression ; les échecs temporaires sont ignorés.
+ * Les DSN traités sont supprimés (ou marqués lus), les autres messages restent intacts.
+ */
+@Service
+@Slf4j
+public class BounceProcessor {
+
+    private final SuppressionList suppressionList;
+    private final boolean enabled;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final String folder;
+    private final boolean deleteProcessed;
+
+    public BounceProcessor(
+            SuppressionList suppressionList,
+            @Value("${app.mail.suppression.bounces.enabled:false}") boolean enabled,
+            @Value("${app.mail.suppression.bounces.protocol:imaps}") String protocol,
+            @Value("${app.mail.suppression.bounces.host:localhost}") String host,
+            @Value("${app.mail.suppression.bounces.port:993}") int port,
+            @Value("${app.mail.suppression.bounces.username:}") String username,
+            @Value("${app.mail.suppression.bounces.password:}") String password,
+            @Value("${app.mail.suppression.bounces.folder:INBOX}") String folder,
+            @Value("${app.mail.suppression.bounces.delete-processed:true}") boolean deleteProcessed
+    ) {
+        this.suppressionList = suppressionList;
+        this.enabled = enabled;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.folder = folder;
+        this.deleteProcessed = deleteProcessed;
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.suppression.bounces.poll-interval-ms:300000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int added = processMailbox();
+            if (added > 0) {
+                log.info("{} adresse(s) en échec définitif ajoutée(s) à la liste de suppression", added);
+            }
+        } catch (MessagingException e) {
+            log.warn("Lecture de la boîte des retours {}://{}:{} impossible: {}", protocol, host, port, e.getMessage());
+        }
+    }
+
+    /**
+     * @return le nombre d'adresses nouvellement supprimées
+     */
+    public int processMailbox() throws MessagingException {
+        Store store = Session.getInstance(new Properties()).getStore(protocol);
+        store.connect(host, port, username, password);
+        try {
+            Folder inbox = store.getFolder(folder);
+            inbox.open(Folder.READ_WRITE);
+            int added = 0;
+            try {
+                for (Message message : inbox.getMessages()) {
+                    if (message.isSet(Flags.Flag.SEEN) && !deleteProcessed) {
+                        continue;
+                    }
+                    List<String> failed;
+                    try {
+                        failed = hardBounces(message);
+                    } catch (IOException | MessagingException e) {
+                        log.warn("Message {} de la boîte des retours illisible: {}",
+                                message.getMessageNumber(), e.getMessage());
+                        continue;
+                    }
+                    if (failed == null) {
+                        // Pas un DSN : laissé tel quel
+                        continue;
+                    }
+                    for (String address : failed) {
+                        if (suppressionList.add(address, "DSN " + protocol + "://" + host)) {
+                            added++;
+                        }
+                    }
+                    message.setFlag(deleteProcessed ? Flags.Flag.DELETED : Flags.Flag.SEEN, true);
+                }
+            } finally {
+                inbox.close(deleteProcessed);
+            }
+            return added;
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Destinataires en échec définitif d'un DSN
+     * @return null si le message n'est pas un DSN
+     */
+    static List<String> hardBounces(Part message) throws MessagingException, IOException {
+        if (!message.isMimeType("multipart/report") || !(message.getContent() instanceof Multipart report)) {
+            return null;
+        }
+        for (int i = 0; i < report.getCount(); i++) {
+            BodyPart part = report.getBodyPart(i);
+            if (part.isMimeType("message/delivery-status") || part.isMimeType("message/global-delivery-status")) {
+                try (InputStream status = part.getInputStream()) {
+                    return parseDeliveryStatus(status);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Champs du message, puis un bloc de champs par destinataire (séparés par une ligne vide)
+     */
+    static List<String> parseDeliveryStatus(InputStream status) throws MessagingException, IOException {
+        BufferedInputStream input = new BufferedInputStream(status);
+        new InternetHeaders(input);
+
+        List<String> failed = new ArrayList<>();
+        while (hasMore(input)) {
+            InternetHeaders recipient = new InternetHeaders(input);
+            String action = recipient.getHeader("Action", null);
+            String code = recipient.getHeader("Status", null);
+            String address = recipient.getHeader("Final-Recipient", null);
+            if (address == null) {
+                address = recipient.getHeader("Original-Recipient", null);
+            }
+            if (address != null && "failed".equalsIgnoreCase(trim(action)) && trim(code).startsWith("5")) {
+                // Format "type; adresse", ex: rfc822; client@example.com
+                String value = address.substring(address.indexOf(';') + 1).trim();
+                failed.add(value.replaceAll("^<|>$", ""));
+            }
+        }
+        return failed;
+    }
+
+    private static boolean hasMore(BufferedInputStream input) throws IOException {
+        input.mark(1);
+        int next = input.read();
+        input.reset();
+        return next != -1;
+    }
+
+    private static String trim(String value) {
+        return value == null ? "" : value.trim();
+    }
+}
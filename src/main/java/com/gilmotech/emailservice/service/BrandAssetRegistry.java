@@ -0,0 +1,199 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.config.TenantProperties;
+import com.gilmotech.emailservice.model.AppCode;
+import jakarta.activation.DataHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.IllegalWriteException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.internet.PreencodedMimeBodyPart;
+import jakarta.mail.util.ByteArrayDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Images de marque (logos, bandeaux) par application, jointes en ligne (cid:) aux emails.
+ * Les fichiers sont lus et encodés en Base64 une seule fois au démarrage : chaque email
+ * réutilise les mêmes parties MIME, sans lecture ni encodage à l'envoi.
+ * Les templates y accèdent par leur nom logique : ${assets?.get('logo')}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BrandAssetRegistry {
+
+    private static final Base64.Encoder MIME_ENCODER = Base64.getMimeEncoder();
+
+    private final TenantProperties tenantProperties;
+    private final ResourceLoader resourceLoader;
+    private final ContentTypeSniffer contentTypeSniffer;
+
+    private final Map<AppCode, List<InlineAsset>> assets = new HashMap<>();
+
+    /**
+     * Charge et encode les images déclarées sous app.tenants.*.brand-assets
+     */
+    @PostConstruct
+    public void init() {
+        tenantProperties.getTenants().forEach((code, tenant) -> {
+            if (tenant.getBrandAssets().isEmpty()) {
+                return;
+            }
+            AppCode appCode = AppCode.fromString(code);
+            List<InlineAsset> loaded = tenant.getBrandAssets().entrySet().stream()
+                    .map(entry -> load(appCode, entry.getKey(), entry.getValue()))
+                    .toList();
+            assets.put(appCode, loaded);
+        });
+
+        log.info("Images de marque chargées: {}", assets.values().stream().mapToInt(List::size).sum());
+    }
+
+    /**
+     * Nom logique -> URL cid: à utiliser dans les templates de l'application
+     */
+    public Map<String, String> urlsFor(AppCode appCode) {
+        List<InlineAsset> appAssets = assets.getOrDefault(appCode, List.of());
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (InlineAsset asset : appAssets) {
+            urls.put(asset.name(), asset.url());
+        }
+        return Collections.unmodifiableMap(urls);
+    }
+
+    /**
+     * Ajoute à la partie multipart/related les images référencées par le HTML rendu.
+     * Les images inutilisées ne sont pas jointes.
+     * @return nombre d'octets ajoutés au message
+     */
+    public long attachReferenced(AppCode appCode, MimeMultipart related, String htmlContent)
+            throws MessagingException {
+        long bytes = 0;
+        for (InlineAsset asset : assets.getOrDefault(appCode, List.of())) {
+            if (htmlContent.contains(asset.url())) {
+                related.addBodyPart(asset.part());
+                bytes += asset.encodedLength();
+            }
+        }
+        return bytes;
+    }
+
+    private InlineAsset load(AppCode appCode, String name, String location) {
+        Resource resource = resourceLoader.getResource(location);
+        try {
+            byte[] content = resource.getContentAsByteArray();
+            String contentType = contentTypeSniffer.detect(content)
+                    .filter(type -> type.startsWith("image/"))
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Image de marque " + name + " (" + location + ") : format non reconnu"));
+
+            byte[] encoded = MIME_ENCODER.encode(content);
+            String contentId = name + "." + appCode.code().toLowerCase(Locale.ROOT) + "@brand";
+            String filename = resource.getFilename() != null ? resource.getFilename() : name;
+
+            log.debug("Image de marque {} pour {}: {} ({} octets, {} encodés)",
+                    name, appCode, location, content.length, encoded.length);
+            return new InlineAsset(name, "cid:" + contentId, encoded.length,
+                    new SharedInlinePart(encoded, contentType, contentId, filename));
+        } catch (IOException | MessagingException e) {
+            throw new IllegalStateException(
+                    "Image de marque " + name + " illisible pour " + appCode + ": " + location, e);
+        }
+    }
+
+    private record InlineAsset(String name, String url, long encodedLength, SharedInlinePart part) {
+    }
+
+    /**
+     * Partie MIME déjà encodée, figée après construction : elle peut être ajoutée
+     * telle quelle à plusieurs messages envoyés en parallèle
+     */
+    static final class SharedInlinePart extends PreencodedMimeBodyPart {
+
+        private final boolean frozen;
+
+        SharedInlinePart(byte[] encoded, String contentType, String contentId, String filename)
+                throws MessagingException {
+            super("base64");
+            setDataHandler(new DataHandler(new ByteArrayDataSource(encoded, contentType)));
+            setHeader("Content-Type", contentType);
+            setHeader("Content-Transfer-Encoding", "base64");
+            setHeader("Content-ID", "<" + contentId + ">");
+            setDisposition(Part.INLINE);
+            setFileName(filename);
+            super.updateHeaders();
+            frozen = true;
+        }
+
+        @Override
+        protected void updateHeaders() throws MessagingException {
+            // En-têtes calculés une fois pour toutes à la construction
+            if (!frozen) {
+                super.updateHeaders();
+            }
+        }
+
+        @Override
+        public void setDataHandler(DataHandler dh) throws MessagingException {
+            checkWritable();
+            super.setDataHandler(dh);
+        }
+
+        @Override
+        public void setContent(Object o, String type) throws MessagingException {
+            checkWritable();
+            super.setContent(o, type);
+        }
+
+        @Override
+        public void setContent(Multipart mp) throws MessagingException {
+            checkWritable();
+            super.setContent(mp);
+        }
+
+        @Override
+        public void setHeader(String name, String value) throws MessagingException {
+            checkWritable();
+            super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) throws MessagingException {
+            checkWritable();
+            super.addHeader(name, value);
+        }
+
+        @Override
+        public void removeHeader(String name) throws MessagingException {
+            checkWritable();
+            super.removeHeader(name);
+        }
+
+        @Override
+        public void addHeaderLine(String line) throws MessagingException {
+            checkWritable();
+            super.addHeaderLine(line);
+        }
+
+        private void checkWritable() throws IllegalWriteException {
+            if (frozen) {
+                throw new IllegalWriteException("Image de marque partagée : partie MIME en lecture seule");
+            }
+        }
+    }
+}
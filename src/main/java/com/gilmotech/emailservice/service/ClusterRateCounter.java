@@ -0,0 +1,381 @@
+package com.gilmotech.emailservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs de rate limit partagés entre instances, sans stockage externe.
+ * Chaque instance compte ses propres requêtes par (clé, tranche de 5 minutes) : compteur
+ * croissant (G-counter), fusionné chez les pairs par maximum, donc insensible aux paquets
+ * perdus, dupliqués ou désordonnés. Les tranches modifiées sont envoyées en UDP aux pairs
+ * configurés à chaque tour, l'état complet tous les full-sync-every tours.
+ * Un pair silencieux depuis plus de peer-timeout-ms n'est plus compté : en cas de
+ * partition, chaque instance retombe sur ses propres compteurs (fail open).
+ * Chaque instance liste toutes les autres dans peers (pas de relais entre pairs).
+ * Les tours de gossip ont leur propre thread, comme la réception : un envoi SMTP ou un
+ * relevé IMAP lent sur le planificateur partagé ne doit pas faire passer cette instance
+ * pour silencieuse auprès des pairs.
+ */
+@Service
+@Slf4j
+public class ClusterRateCounter {
+
+    static final long SLOT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // Tranches couvrant la dernière heure (tranche courante incluse)
+    static final int WINDOW_SLOTS = 12;
+
+    private static final int MAGIC = 0x524C4731;
+    private static final int MAX_PACKET_BYTES = 1200;
+    private static final int MAX_KEY_BYTES = 200;
+    private static final int MAX_KEYS_PER_PEER = 100_000;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_BYTES = 32;
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final int bindPort;
+    private final List<String> peerSpecs;
+    private final long peerTimeoutMillis;
+    private final int fullSyncEvery;
+    private final long gossipIntervalMillis;
+    private final SecretKeySpec secret;
+
+    private final Map<SlotKey, AtomicLong> local = new ConcurrentHashMap<>();
+    private final Set<SlotKey> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<String, PeerState> peers = new ConcurrentHashMap<>();
+
+    private final List<InetSocketAddress> peerAddresses = new ArrayList<>();
+    private DatagramSocket socket;
+    private Thread receiver;
+    private ScheduledExecutorService heartbeat;
+    private long rounds;
+
+    public ClusterRateCounter(
+            @Value("${app.mail.rate-limit.cluster.enabled:false}") boolean enabled,
+            @Value("${app.mail.rate-limit.cluster.bind-port:7946}") int bindPort,
+            @Value("${app.mail.rate-limit.cluster.peers:}") List<String> peerSpecs,
+            @Value("${app.mail.rate-limit.cluster.peer-timeout-ms:5000}") long peerTimeoutMillis,
+            @Value("${app.mail.rate-limit.cluster.full-sync-every:10}") int fullSyncEvery,
+            @Value("${app.mail.rate-limit.cluster.gossip-interval-ms:1000}") long gossipIntervalMillis,
+            @Value("${app.mail.rate-limit.cluster.secret:}") String secret,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        // Identifiant propre à chaque démarrage : les compteurs repartent de zéro sans
+        // être masqués par les valeurs (plus élevées) de l'exécution précédente
+        this.nodeId = UUID.randomUUID().toString().substring(0, 8);
+        this.bindPort = bindPort;
+        this.peerSpecs = peerSpecs.stream().filter(spec -> !spec.isBlank()).toList();
+        this.peerTimeoutMillis = peerTimeoutMillis;
+        this.fullSyncEvery = Math.max(1, fullSyncEvery);
+        this.gossipIntervalMillis = gossipIntervalMillis;
+        this.secret = secret.isEmpty()
+                ? null
+                : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+
+        Gauge.builder("mail.rate-limit.cluster.live-peers", this, ClusterRateCounter::getLivePeerCount)
+                .description("Pairs du rate limit partagé joignables")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws SocketException {
+        if (!enabled) {
+            return;
+        }
+        for (String spec : peerSpecs) {
+            int separator = spec.lastIndexOf(':');
+            peerAddresses.add(new InetSocketAddress(
+                    spec.substring(0, separator).trim(), Integer.parseInt(spec.substring(separator + 1).trim())));
+        }
+        if (secret == null) {
+            log.warn("Rate limit partagé sans secret : les paquets des pairs ne sont pas authentifiés");
+        }
+        socket = new DatagramSocket(bindPort);
+        receiver = new Thread(this::receiveLoop, "rate-limit-gossip");
+        receiver.setDaemon(true);
+        receiver.start();
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::gossipSafely,
+                gossipIntervalMillis, gossipIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Rate limit partagé: noeud {} sur le port {}, {} pair(s)",
+                nodeId, socket.getLocalPort(), peerAddresses.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Comptabilise une requête acceptée par cette instance
+     */
+    public void record(String key) {
+        if (!enabled || key.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_BYTES) {
+            return;
+        }
+        SlotKey slotKey = new SlotKey(key, slotOf(System.currentTimeMillis()));
+        local.computeIfAbsent(slotKey, k -> new AtomicLong()).incrementAndGet();
+        dirty.add(slotKey);
+    }
+
+    /**
+     * Requêtes de la dernière heure vues par les pairs joignables (hors cette instance)
+     */
+    public long remoteCount(String key) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long currentSlot = slotOf(now);
+        long total = 0;
+        for (PeerState peer : peers.values()) {
+            if (now - peer.lastSeenMillis > peerTimeoutMillis) {
+                continue;
+            }
+            for (long slot = currentSlot - WINDOW_SLOTS + 1; slot <= currentSlot; slot++) {
+                Long count = peer.counts.get(new SlotKey(key, slot));
+                if (count != null) {
+                    total += count;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Tour de gossip : envoie les compteurs modifiés (ou tous, périodiquement) à chaque pair.
+     * Un message vide sert de signe de vie.
+     */
+    public synchronized void gossip() {
+        if (!enabled || socket == null) {
+            return;
+        }
+        long oldestSlot = slotOf(System.currentTimeMillis()) - WINDOW_SLOTS + 1;
+        local.keySet().removeIf(key -> key.slot() < oldestSlot);
+        peers.values().forEach(peer -> peer.counts.keySet().removeIf(key -> key.slot() < oldestSlot));
+        // Pairs disparus (redémarrés sous un autre identifiant) : oubliés une fois leurs tranches expirées
+        long now = System.currentTimeMillis();
+        peers.values().removeIf(peer -> peer.counts.isEmpty() && now - peer.lastSeenMillis > peerTimeoutMillis);
+
+        Collection<SlotKey> keys;
+        if (++rounds % fullSyncEvery == 0) {
+            dirty.clear();
+            keys = local.keySet();
+        } else {
+            keys = new ArrayList<>(dirty);
+            dirty.removeAll(keys);
+        }
+
+        List<byte[]> packets;
+        try {
+            packets = encode(keys);
+        } catch (IOException | GeneralSecurityException e) {
+            log.error("Encodage du gossip impossible", e);
+            return;
+        }
+        for (InetSocketAddress address : peerAddresses) {
+            for (byte[] packet : packets) {
+                try {
+                    socket.send(new DatagramPacket(packet, packet.length, address));
+                } catch (IOException e) {
+                    log.debug("Gossip vers {} en échec: {}", address, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void gossipSafely() {
+        // Une exception annulerait les tours suivants
+        try {
+            gossip();
+        } catch (RuntimeException e) {
+            log.error("Tour de gossip en échec", e);
+        }
+    }
+
+    public int getLivePeerCount() {
+        long now = System.currentTimeMillis();
+        return (int) peers.values().stream()
+                .filter(peer -> now - peer.lastSeenMillis <= peerTimeoutMillis)
+                .count();
+    }
+
+    private List<byte[]> encode(Collection<SlotKey> keys) throws IOException, GeneralSecurityException {
+        List<byte[]> packets = new ArrayList<>();
+        List<SlotKey> batch = new ArrayList<>();
+        int batchBytes = 0;
+        for (SlotKey key : keys) {
+            AtomicLong count = local.get(key);
+            if (count == null) {
+                continue;
+            }
+            int entryBytes = key.key().getBytes(StandardCharsets.UTF_8).length + 18;
+            if (!batch.isEmpty() && batchBytes + entryBytes > MAX_PACKET_BYTES - 100) {
+                packets.add(encodePacket(batch));
+                batch.clear();
+                batchBytes = 0;
+            }
+            batch.add(key);
+            batchBytes += entryBytes;
+        }
+        if (!batch.isEmpty() || packets.isEmpty()) {
+            packets.add(encodePacket(batch));
+        }
+        return packets;
+    }
+
+    private byte[] encodePacket(List<SlotKey> batch) throws IOException, GeneralSecurityException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(MAX_PACKET_BYTES);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeUTF(nodeId);
+        out.writeShort(batch.size());
+        for (SlotKey key : batch) {
+            AtomicLong count = local.get(key);
+            out.writeUTF(key.key());
+            out.writeLong(key.slot());
+            out.writeLong(count != null ? count.get() : 0);
+        }
+        if (secret != null) {
+            out.write(sign(buffer.toByteArray(), buffer.size()));
+        }
+        return buffer.toByteArray();
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[MAX_PACKET_BYTES + HMAC_BYTES];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                merge(Arrays.copyOf(packet.getData(), packet.getLength()), packet.getAddress());
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.debug("Réception du gossip en échec: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.debug("Paquet de gossip invalide ignoré: {}", e.getMessage());
+            }
+        }
+    }
+
+    void merge(byte[] data, InetAddress sender) throws IOException {
+        if (!isConfiguredPeer(sender)) {
+            return;
+        }
+        int length = data.length;
+        if (secret != null) {
+            length -= HMAC_BYTES;
+            try {
+                if (length <= 0 || !MessageDigest.isEqual(
+                        sign(data, length), Arrays.copyOfRange(data, length, data.length))) {
+                    log.debug("Paquet de gossip non authentifié ignoré ({})", sender);
+                    return;
+                }
+            } catch (GeneralSecurityException e) {
+                return;
+            }
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, length));
+        if (in.readInt() != MAGIC) {
+            return;
+        }
+        String peerId = in.readUTF();
+        if (peerId.equals(nodeId)) {
+            return;
+        }
+        int entries = in.readUnsignedShort();
+        PeerState peer = peers.computeIfAbsent(peerId, id -> new PeerState());
+        long oldestSlot = slotOf(System.currentTimeMillis()) - WINDOW_SLOTS + 1;
+        for (int i = 0; i < entries; i++) {
+            SlotKey key = new SlotKey(in.readUTF(), in.readLong());
+            long count = in.readLong();
+            if (key.slot() < oldestSlot) {
+                continue;
+            }
+            if (peer.counts.size() >= MAX_KEYS_PER_PEER && !peer.counts.containsKey(key)) {
+                continue;
+            }
+            peer.counts.merge(key, count, Math::max);
+        }
+        peer.lastSeenMillis = System.currentTimeMillis();
+    }
+
+    private boolean isConfiguredPeer(InetAddress sender) {
+        for (InetSocketAddress address : peerAddresses) {
+            InetAddress peerAddress = address.getAddress();
+            if (peerAddress != null && (peerAddress.equals(sender)
+                    || (peerAddress.isLoopbackAddress() && sender.isLoopbackAddress()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] sign(byte[] data, int length) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(secret);
+        mac.update(data, 0, length);
+        return mac.doFinal();
+    }
+
+    private static long slotOf(long epochMillis) {
+        return epochMillis / SLOT_MILLIS;
+    }
+
+    record SlotKey(String key, long slot) {
+    }
+
+    private static final class PeerState {
+        private final Map<SlotKey, Long> counts = new ConcurrentHashMap<>();
+        private volatile long lastSeenMillis;
+    }
+}
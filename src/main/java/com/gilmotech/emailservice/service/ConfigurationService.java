@@ -1,80 +1,49 @@
 package com.gilmotech.emailservice.service;
 
+import com.gilmotech.emailservice.config.TenantProperties;
 import com.gilmotech.emailservice.model.AppCode;
 import com.gilmotech.emailservice.model.MailConfiguration;
 import com.gilmotech.emailservice.model.MailType;
+import com.gilmotech.emailservice.validation.AdditionalDataValidator;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ConfigurationService {
 
+    private final TenantProperties tenantProperties;
+
     private final Map<String, MailConfiguration> configurations = new HashMap<>();
 
+    // Schémas additionalData compilés, par configuration
+    private final Map<String, AdditionalDataValidator> additionalDataValidators = new HashMap<>();
+
+    /**
+     * Charge les configurations de tous les tenants déclarés sous app.tenants
+     */
     @PostConstruct
     public void init() {
-        // Configuration Assurantis - Contact
-        MailConfiguration assurantisContact = new MailConfiguration();
-        assurantisContact.setAppCode(AppCode.ASSURANTIS);
-        assurantisContact.setMailType(MailType.CONTACT_FORM);
-        assurantisContact.setFromAddress("contact@assurantis.be");
-        assurantisContact.setFromName("Assurantis");
-        assurantisContact.setToAddresses(List.of("contact@assurantis.be"));
-        assurantisContact.setReplyTo("contact@assurantis.be");
-        assurantisContact.setSubject("Nouveau message de contact - Assurantis");
-        assurantisContact.setTemplatePath("email/assurantis/contact_admin");
-        assurantisContact.setTemplatePathConfirmation("email/assurantis/contact_confirmation");
-        assurantisContact.setActive(true);
-
-        // Configuration Assurantis - Demande de Devis
-        MailConfiguration assurantisQuote = new MailConfiguration();
-        assurantisQuote.setAppCode(AppCode.ASSURANTIS);
-        assurantisQuote.setMailType(MailType.QUOTE_REQUEST);
-        assurantisQuote.setFromAddress("contact@assurantis.be");
-        assurantisQuote.setFromName("Assurantis - Demandes de Devis");
-        assurantisQuote.setToAddresses(List.of("contact@assurantis.be"));
-        assurantisQuote.setReplyTo("contact@assurantis.be");
-        assurantisQuote.setSubject("Nouvelle demande de devis - Assurantis");
-        assurantisQuote.setTemplatePath("email/assurantis/quote_admin");
-        assurantisQuote.setTemplatePathConfirmation("email/assurantis/quote_confirmation");
-        assurantisQuote.setActive(true);
-
-        // Configuration Assurantis - Déclaration de Sinistre
-        MailConfiguration assurantisClaim = new MailConfiguration();
-        assurantisClaim.setAppCode(AppCode.ASSURANTIS);
-        assurantisClaim.setMailType(MailType.CLAIM_REQUEST);
-        assurantisClaim.setFromAddress("contact@assurantis.be");
-        assurantisClaim.setFromName("Assurantis - Déclarations de Sinistre");
-        assurantisClaim.setToAddresses(List.of("contact@assurantis.be"));
-        assurantisClaim.setReplyTo("contact@assurantis.be");
-        assurantisClaim.setSubject("Nouvelle déclaration de sinistre - Assurantis");
-        assurantisClaim.setTemplatePath("email/assurantis/claim_admin");
-        assurantisClaim.setTemplatePathConfirmation("email/assurantis/claim_confirmation");
-        assurantisClaim.setActive(true);
+        tenantProperties.getTenants().forEach((code, tenant) -> {
+            AppCode appCode = AppCode.fromString(code);
+            for (MailConfiguration config : tenant.getMailConfigurations()) {
+                config.setAppCode(appCode);
+                configurations.put(getKey(appCode, config.getMailType()), config);
+                if (config.getAdditionalData() != null) {
+                    additionalDataValidators.put(getKey(appCode, config.getMailType()),
+                            AdditionalDataValidator.compile(config.getAdditionalData()));
+                }
+            }
+        });
 
-        // Configuration Gilmotech - Contact
-        MailConfiguration gilmotechContact = new MailConfiguration();
-        gilmotechContact.setAppCode(AppCode.GILMOTECH);
-        gilmotechContact.setMailType(MailType.CONTACT_FORM);
-        gilmotechContact.setFromAddress("contact@gilmotech.be");
-        gilmotechContact.setFromName("Gilmotech");
-        gilmotechContact.setToAddresses(List.of("contact@gilmotech.be"));
-        gilmotechContact.setReplyTo("contact@gilmotech.be");
-        gilmotechContact.setSubject("Nouveau message de contact - Gilmotech");
-        gilmotechContact.setTemplatePath("email/gilmotech/contact");
-        gilmotechContact.setActive(true);
-
-        // Ajouter à la map
-        configurations.put(getKey(AppCode.ASSURANTIS, MailType.CONTACT_FORM), assurantisContact);
-        configurations.put(getKey(AppCode.ASSURANTIS, MailType.QUOTE_REQUEST), assurantisQuote);
-        configurations.put(getKey(AppCode.ASSURANTIS, MailType.CLAIM_REQUEST), assurantisClaim);
-        configurations.put(getKey(AppCode.GILMOTECH, MailType.CONTACT_FORM), gilmotechContact);
-
-        log.info("Configurations chargées: {}", configurations.size());
+        log.info("Configurations chargées: {} pour {} tenant(s)",
+                configurations.size(), tenantProperties.getTenants().size());
     }
 
     public MailConfiguration getConfiguration(AppCode appCode, MailType mailType) {
@@ -90,6 +59,13 @@ public class ConfigurationService {
         return config;
     }
 
+    /**
+     * Schéma additionalData compilé, ou null si la configuration n'en déclare pas
+     */
+    public AdditionalDataValidator findAdditionalDataValidator(AppCode appCode, MailType mailType) {
+        return additionalDataValidators.get(getKey(appCode, mailType));
+    }
+
     private String getKey(AppCode appCode, MailType mailType) {
         return appCode + "_" + mailType;
     }
@@ -0,0 +1,322 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailType;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renvoi en arrière-plan des emails dont l'envoi a échoué : confirmations client et
+ * digests admin (voir {@link Kind}).
+ * La requête HTTP n'attend jamais : le message est mis en file, retenté avec un délai
+ * croissant, puis placé dans une file de messages morts (dead letters) consultable
+ * et rejouable via l'API d'administration.
+ * Un destinataire refusé arrête les renvois d'une confirmation ; pour un digest (plusieurs
+ * destinataires admin), seules les adresses refusées sont retirées et le renvoi continue.
+ */
+@Service
+@Slf4j
+public class ConfirmationRedeliveryService {
+
+    private final TenantMailSenderRegistry mailSenderRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxQueueSize;
+    private final int maxDeadLetters;
+
+    /**
+     * Nature de l'email renvoyé, exposée dans les dead letters
+     */
+    public enum Kind {
+        CONFIRMATION,
+        ADMIN_DIGEST
+    }
+
+    private final DelayQueue<PendingMail> queue = new DelayQueue<>();
+
+    // Ordre d'arrivée conservé, les plus anciens sont supprimés au-delà de maxDeadLetters
+    private final Map<String, PendingMail> deadLetters = new LinkedHashMap<>();
+
+    public ConfirmationRedeliveryService(
+            TenantMailSenderRegistry mailSenderRegistry,
+            @Value("${app.mail.redelivery.max-attempts:5}") int maxAttempts,
+            @Value("${app.mail.redelivery.initial-backoff-ms:30000}") long initialBackoffMs,
+            @Value("${app.mail.redelivery.max-backoff-ms:900000}") long maxBackoffMs,
+            @Value("${app.mail.redelivery.max-queue-size:1000}") int maxQueueSize,
+            @Value("${app.mail.redelivery.max-dead-letters:1000}") int maxDeadLetters
+    ) {
+        this.mailSenderRegistry = mailSenderRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.maxQueueSize = maxQueueSize;
+        this.maxDeadLetters = maxDeadLetters;
+    }
+
+    /**
+     * Met en file un email dont le premier envoi a échoué
+     * @param recipient destinataire(s), pour les logs et l'API d'administration
+     */
+    public void enqueue(Kind kind, AppCode appCode, MailType mailType, String reference, String recipient,
+                        MimeMessage message, Exception cause) {
+        PendingMail pending = new PendingMail(kind, appCode, mailType, reference, recipient, message);
+        pending.recordFailure(cause);
+
+        if (isUndeliverable(pending, cause)) {
+            // Adresse refusée : inutile de réessayer
+            moveToDeadLetters(pending);
+        } else if (queue.size() >= maxQueueSize) {
+            log.warn("File de renvoi pleine ({}), email {} {} placé directement en dead letter",
+                    maxQueueSize, kind, reference);
+            moveToDeadLetters(pending);
+        } else {
+            schedule(pending);
+            log.info("Email {} {} pour {} mis en file de renvoi", kind, reference, pending.recipient);
+        }
+    }
+
+    /**
+     * Renvoie les emails dont le délai d'attente est écoulé
+     */
+    @Scheduled(fixedDelayString = "${app.mail.redelivery.poll-interval-ms:5000}")
+    public void redeliverDue() {
+        // Un message remis en file pendant ce passage attend le suivant
+        List<PendingMail> due = new ArrayList<>();
+        queue.drainTo(due);
+        for (PendingMail pending : due) {
+            // Une erreur inattendue ne doit pas faire perdre le reste du lot
+            try {
+                redeliver(pending);
+            } catch (RuntimeException e) {
+                log.error("Erreur inattendue au renvoi de l'email {} {}", pending.kind, pending.reference, e);
+                failed(pending, e);
+            }
+        }
+    }
+
+    /**
+     * Remet en file les dead letters (toutes si ids est vide)
+     * @return le nombre de messages remis en file
+     */
+    public int replayDeadLetters(Collection<String> ids) {
+        List<PendingMail> replayed = new ArrayList<>();
+        synchronized (deadLetters) {
+            if (ids == null || ids.isEmpty()) {
+                replayed.addAll(deadLetters.values());
+                deadLetters.clear();
+            } else {
+                for (String id : ids) {
+                    PendingMail pending = deadLetters.remove(id);
+                    if (pending != null) {
+                        replayed.add(pending);
+                    }
+                }
+            }
+        }
+
+        for (PendingMail pending : replayed) {
+            pending.attempts = 0;
+            pending.nextAttemptNanos = System.nanoTime();
+            queue.add(pending);
+        }
+        log.info("{} email(s) remis en file de renvoi", replayed.size());
+        return replayed.size();
+    }
+
+    public List<DeadLetter> getDeadLetters() {
+        synchronized (deadLetters) {
+            return deadLetters.values().stream().map(PendingMail::toDeadLetter).toList();
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void redeliver(PendingMail pending) {
+        try {
+            mailSenderRegistry.senderFor(pending.appCode).send(pending.message);
+            log.info("Email {} {} renvoyé à {} (tentative {})",
+                    pending.kind, pending.reference, pending.recipient, pending.attempts + 1);
+        } catch (ServiceOverloadedException e) {
+            // Connexions SMTP du tenant toutes occupées (TENANT_BUSY) : pas une tentative, juste un report
+            pending.lastError = e.getMessage();
+            long delay = Math.min(TimeUnit.SECONDS.toMillis(e.getRetryAfterSeconds()), maxBackoffMs);
+            pending.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            queue.add(pending);
+            log.info("Renvoi de l'email {} {} reporté de {} ms: {}",
+                    pending.kind, pending.reference, delay, e.getErrorCode());
+        } catch (MailException | IllegalArgumentException e) {
+            failed(pending, e);
+        }
+    }
+
+    private void failed(PendingMail pending, Exception e) {
+        pending.recordFailure(e);
+        if (pending.attempts >= maxAttempts || isUndeliverable(pending, e)) {
+            moveToDeadLetters(pending);
+        } else {
+            schedule(pending);
+            log.warn("Échec du renvoi de l'email {} {} (tentative {}/{}): {}",
+                    pending.kind, pending.reference, pending.attempts, maxAttempts, e.getMessage());
+        }
+    }
+
+    /**
+     * Destinataire refusé : définitif pour une confirmation. Pour un digest, les adresses
+     * refusées sont retirées du message, qui reste à renvoyer aux autres administrateurs.
+     */
+    private boolean isUndeliverable(PendingMail pending, Exception e) {
+        if (!PooledMailSender.isRecipientFailure(e)) {
+            return false;
+        }
+        if (pending.kind != Kind.ADMIN_DIGEST) {
+            return true;
+        }
+        List<Address> invalid = invalidAddresses(e);
+        try {
+            List<String> remaining = new ArrayList<>();
+            for (Message.RecipientType type : List.of(Message.RecipientType.TO, Message.RecipientType.CC,
+                    Message.RecipientType.BCC)) {
+                Address[] current = pending.message.getRecipients(type);
+                if (current != null) {
+                    Address[] kept = Arrays.stream(current).filter(address -> !invalid.contains(address))
+                            .toArray(Address[]::new);
+                    pending.message.setRecipients(type, kept.length > 0 ? kept : null);
+                    Arrays.stream(kept).map(Address::toString).forEach(remaining::add);
+                }
+            }
+            if (remaining.isEmpty()) {
+                return true;
+            }
+            log.warn("Digest {} : adresse(s) refusée(s) {} retirée(s), renvoi à {}",
+                    pending.reference, invalid, remaining);
+            pending.recipient = String.join(", ", remaining);
+            return false;
+        } catch (MessagingException ex) {
+            log.warn("Impossible de retirer les adresses refusées du digest {}: {}", pending.reference, ex.getMessage());
+            return true;
+        }
+    }
+
+    private static List<Address> invalidAddresses(Exception e) {
+        List<Address> invalid = new ArrayList<>();
+        if (e instanceof MailSendException sendException) {
+            sendException.getFailedMessages().values().forEach(failure -> invalid.addAll(invalidAddresses(failure)));
+        } else if (e instanceof SendFailedException sendFailed && sendFailed.getInvalidAddresses() != null) {
+            invalid.addAll(List.of(sendFailed.getInvalidAddresses()));
+        }
+        return invalid;
+    }
+
+    private void schedule(PendingMail pending) {
+        long backoff = Math.min(initialBackoffMs << Math.min(pending.attempts - 1, 20), maxBackoffMs);
+        pending.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        queue.add(pending);
+    }
+
+    private void moveToDeadLetters(PendingMail pending) {
+        log.error("Email {} {} pour {} abandonné après {} tentative(s): {}",
+                pending.kind, pending.reference, pending.recipient, pending.attempts, pending.lastError);
+        synchronized (deadLetters) {
+            deadLetters.put(pending.id, pending);
+            while (deadLetters.size() > maxDeadLetters) {
+                String oldest = deadLetters.keySet().iterator().next();
+                deadLetters.remove(oldest);
+                log.warn("Dead letter {} supprimée (capacité {} atteinte)", oldest, maxDeadLetters);
+            }
+        }
+    }
+
+    /**
+     * Vue d'un email abandonné, exposée par l'API d'administration
+     */
+    public record DeadLetter(
+            String id,
+            Kind kind,
+            String appCode,
+            String mailType,
+            String reference,
+            String recipient,
+            int attempts,
+            Instant firstFailureAt,
+            Instant lastFailureAt,
+            String lastError
+    ) {
+    }
+
+    private static class PendingMail implements Delayed {
+
+        private final String id = UUID.randomUUID().toString();
+        private final Kind kind;
+        private final AppCode appCode;
+        private final MailType mailType;
+        private final String reference;
+        private final MimeMessage message;
+        // Réduit aux adresses encore valides pour un digest
+        private String recipient;
+
+        private int attempts;
+        private long nextAttemptNanos;
+        private Instant firstFailureAt;
+        private Instant lastFailureAt;
+        private String lastError;
+
+        PendingMail(Kind kind, AppCode appCode, MailType mailType, String reference, String recipient,
+                    MimeMessage message) {
+            this.kind = kind;
+            this.appCode = appCode;
+            this.mailType = mailType;
+            this.reference = reference;
+            this.recipient = recipient;
+            this.message = message;
+        }
+
+        void recordFailure(Exception e) {
+            attempts++;
+            lastFailureAt = Instant.now();
+            if (firstFailureAt == null) {
+                firstFailureAt = lastFailureAt;
+            }
+            lastError = e.getMessage();
+        }
+
+        DeadLetter toDeadLetter() {
+            return new DeadLetter(id, kind, appCode.code(), mailType.name(), reference, recipient,
+                    attempts, firstFailureAt, lastFailureAt, lastError);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextAttemptNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(nextAttemptNanos, ((PendingMail) other).nextAttemptNanos);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.gilmotech.emailservice.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Détection du type réel d'un fichier à partir de ses premiers octets (magic bytes).
+ * Seul le début du flux Base64 est décodé : le fichier n'est jamais matérialisé.
+ */
+@Component
+public class ContentTypeSniffer {
+
+    // Assez pour toutes les signatures supportées (WEBP : 12 octets)
+    private static final int HEADER_LENGTH = 16;
+
+    private static final byte[] PDF = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] GIF87A = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GIF89A = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RIFF = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBP = "WEBP".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZIP = {'P', 'K', 0x03, 0x04};
+
+    private static final String ZIP_CONTAINER = "application/zip";
+
+    // Type déclaré -> type détecté attendu (DOCX / XLSX sont des archives ZIP)
+    private static final Map<String, String> EXPECTED_CONTENT_TYPES = Map.of(
+            "image/jpeg", "image/jpeg",
+            "image/jpg", "image/jpeg",
+            "image/png", "image/png",
+            "image/gif", "image/gif",
+            "image/webp", "image/webp",
+            "application/pdf", "application/pdf",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document", ZIP_CONTAINER,
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", ZIP_CONTAINER
+    );
+
+    /**
+     * Vérifie que le contenu Base64 correspond au type MIME déclaré
+     * @throws IllegalArgumentException si le début du contenu n'est pas du Base64 valide
+     */
+    public boolean matchesDeclaredType(String declaredMimeType, String base64Content) {
+        String expected = EXPECTED_CONTENT_TYPES.get(declaredMimeType);
+        return expected != null && detect(readHeader(base64Content)).map(expected::equals).orElse(false);
+    }
+
+    /**
+     * Vérifie que les premiers octets (déjà décodés) correspondent au type MIME déclaré
+     */
+    public boolean matchesDeclaredType(String declaredMimeType, byte[] header) {
+        String expected = EXPECTED_CONTENT_TYPES.get(declaredMimeType);
+        return expected != null && detect(header).map(expected::equals).orElse(false);
+    }
+
+    /**
+     * Type détecté à partir des premiers octets
+     */
+    public Optional<String> detect(byte[] header) {
+        if (startsWith(header, PDF)) return Optional.of("application/pdf");
+        if (startsWith(header, PNG)) return Optional.of("image/png");
+        if (startsWith(header, JPEG)) return Optional.of("image/jpeg");
+        if (startsWith(header, GIF87A) || startsWith(header, GIF89A)) return Optional.of("image/gif");
+        if (startsWith(header, RIFF) && header.length >= 12
+                && Arrays.equals(header, 8, 12, WEBP, 0, WEBP.length)) return Optional.of("image/webp");
+        if (startsWith(header, ZIP)) return Optional.of(ZIP_CONTAINER);
+        return Optional.empty();
+    }
+
+    /**
+     * Décode uniquement les premiers octets du contenu Base64
+     */
+    byte[] readHeader(String base64Content) {
+        if (base64Content == null) {
+            throw new IllegalArgumentException("Contenu absent");
+        }
+        try (InputStream decoded = Base64.getDecoder().wrap(new AsciiCharSequenceInputStream(base64Content))) {
+            return decoded.readNBytes(HEADER_LENGTH);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Contenu Base64 invalide", e);
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return data.length >= prefix.length && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Lit une chaîne ASCII (Base64) comme un flux d'octets, sans la copier
+     */
+    private static final class AsciiCharSequenceInputStream extends InputStream {
+
+        private final CharSequence chars;
+        private int position;
+
+        AsciiCharSequenceInputStream(CharSequence chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read() {
+            return position < chars.length() ? chars.charAt(position++) & 0xFF : -1;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.gilmotech.emailservice.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch à mémoire fixe (depth x width compteurs), mis à jour sans verrou.
+ * L'estimation d'une clé n'est jamais inférieure à son nombre réel d'occurrences ;
+ * elle peut le dépasser en cas de collisions, d'autant moins que width est grand.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int widthMask;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param width arrondi à la puissance de 2 supérieure
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException("depth et width doivent être positifs");
+        }
+        int roundedWidth = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.widthMask = roundedWidth - 1;
+        this.counters = new AtomicLongArray(depth * roundedWidth);
+    }
+
+    /**
+     * Compte une occurrence de la clé et renvoie son estimation mise à jour
+     */
+    public long addAndEstimate(long keyHash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(keyHash, row)));
+        }
+        return estimate;
+    }
+
+    public long estimate(long keyHash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(keyHash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Divise tous les compteurs par deux : les occurrences anciennes pèsent de moins en moins
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, value -> value >>> 1);
+        }
+    }
+
+    public int getCounterCount() {
+        return counters.length();
+    }
+
+    private int index(long keyHash, int row) {
+        // Double hachage (Kirsch-Mitzenmacher) : h1 + row * h2
+        int h1 = (int) keyHash;
+        int h2 = (int) (keyHash >>> 32) | 1;
+        return row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+    }
+
+    /**
+     * Hash 64 bits (FNV-1a suivi d'un mélange final)
+     */
+    public static long hash(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -2,6 +2,7 @@ package com.gilmotech.emailservice.service;
 
 import com.gilmotech.emailservice.dto.FileAttachmentDto;
 import com.gilmotech.emailservice.exception.MailSendingException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -10,9 +11,13 @@ import java.util.List;
 import java.util.Set;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FileValidationService {
 
+    private final AttachmentMemoryBudget memoryBudget;
+    private final ContentTypeSniffer contentTypeSniffer;
+
     // Types MIME autorisés
     private static final Set<String> ALLOWED_MIME_TYPES = Set.of(
             "image/jpeg",
@@ -32,26 +37,37 @@ public class FileValidationService {
     private static final long MAX_TOTAL_SIZE = 20 * 1024 * 1024;
 
     /**
-     * Valide tous les fichiers joints
+     * Valide tous les fichiers joints.
+     * La mémoire nécessaire est réservée dans le budget global avant tout décodage :
+     * la réservation retournée doit être fermée une fois l'email envoyé.
      */
-    public void validateAttachments(List<FileAttachmentDto> attachments) {
+    public AttachmentMemoryBudget.Reservation validateAttachments(List<FileAttachmentDto> attachments) {
         if (attachments == null || attachments.isEmpty()) {
-            return;
+            return AttachmentMemoryBudget.Reservation.NONE;
         }
 
         log.info("Validation de {} fichier(s) joint(s)", attachments.size());
 
+        // Contrôle peu coûteux (type déclaré + premiers octets) avant tout décodage complet
+        for (FileAttachmentDto attachment : attachments) {
+            validateContentType(attachment);
+        }
+
+        AttachmentMemoryBudget.Reservation reservation = memoryBudget.reserve(estimateInFlightBytes(attachments));
+        try {
+            long totalSize = validateContents(attachments);
+            reservation.adjust(totalSize + base64Length(attachments));
+            return reservation;
+        } catch (RuntimeException e) {
+            reservation.close();
+            throw e;
+        }
+    }
+
+    private long validateContents(List<FileAttachmentDto> attachments) {
         long totalSize = 0;
 
         for (FileAttachmentDto attachment : attachments) {
-            // Validation du type MIME
-            if (!ALLOWED_MIME_TYPES.contains(attachment.getMimeType())) {
-                throw new MailSendingException(
-                        "INVALID_FILE_TYPE",
-                        "Type de fichier non autorisé: " + attachment.getMimeType()
-                );
-            }
-
             // Validation du contenu Base64
             byte[] decodedContent;
             try {
@@ -65,13 +81,7 @@ public class FileValidationService {
 
             // Validation de la taille individuelle
             long fileSize = decodedContent.length;
-            if (fileSize > MAX_FILE_SIZE) {
-                throw new MailSendingException(
-                        "FILE_TOO_LARGE",
-                        String.format("Le fichier '%s' dépasse la taille maximale de 5MB (taille: %.2f MB)",
-                                attachment.getFilename(), fileSize / (1024.0 * 1024.0))
-                );
-            }
+            checkFileSize(attachment.getFilename(), fileSize);
 
             totalSize += fileSize;
 
@@ -89,6 +99,88 @@ public class FileValidationService {
         }
 
         log.info("Tous les fichiers sont valides. Taille totale: {} bytes", totalSize);
+        return totalSize;
+    }
+
+    /**
+     * Vérifie le type MIME déclaré puis le type réel d'après les premiers octets du contenu
+     */
+    private void validateContentType(FileAttachmentDto attachment) {
+        checkAllowedType(attachment.getMimeType());
+
+        boolean matches;
+        try {
+            matches = contentTypeSniffer.matchesDeclaredType(attachment.getMimeType(), attachment.getContent());
+        } catch (IllegalArgumentException e) {
+            throw new MailSendingException(
+                    "INVALID_FILE_CONTENT",
+                    "Le contenu du fichier n'est pas en Base64 valide: " + attachment.getFilename()
+            );
+        }
+
+        if (!matches) {
+            log.warn("Contenu incohérent avec le type déclaré: {} ({})",
+                    attachment.getFilename(), attachment.getMimeType());
+            throw new MailSendingException(
+                    "FILE_CONTENT_MISMATCH",
+                    "Le contenu du fichier ne correspond pas à son type: " + attachment.getFilename()
+            );
+        }
+    }
+
+    /**
+     * Contrôles possibles dès la déclaration d'un upload : type autorisé et taille annoncée
+     */
+    public void validateUploadDeclaration(String filename, String mimeType, long size) {
+        checkAllowedType(mimeType);
+        checkFileSize(filename, size);
+    }
+
+    /**
+     * Contrôle du type réel d'un fichier uploadé d'après ses premiers octets
+     */
+    public void validateUploadedContent(String filename, String mimeType, byte[] header) {
+        if (!contentTypeSniffer.matchesDeclaredType(mimeType, header)) {
+            log.warn("Contenu uploadé incohérent avec le type déclaré: {} ({})", filename, mimeType);
+            throw new MailSendingException(
+                    "FILE_CONTENT_MISMATCH",
+                    "Le contenu du fichier ne correspond pas à son type: " + filename
+            );
+        }
+    }
+
+    private void checkAllowedType(String mimeType) {
+        if (!ALLOWED_MIME_TYPES.contains(mimeType)) {
+            throw new MailSendingException(
+                    "INVALID_FILE_TYPE",
+                    "Type de fichier non autorisé: " + mimeType
+            );
+        }
+    }
+
+    private void checkFileSize(String filename, long fileSize) {
+        if (fileSize > MAX_FILE_SIZE) {
+            throw new MailSendingException(
+                    "FILE_TOO_LARGE",
+                    String.format("Le fichier '%s' dépasse la taille maximale de 5MB (taille: %.2f MB)",
+                            filename, fileSize / (1024.0 * 1024.0))
+            );
+        }
+    }
+
+    /**
+     * Mémoire occupée par une pièce jointe pendant le traitement :
+     * la chaîne Base64 reçue + le contenu décodé (~3/4 de la chaîne)
+     */
+    private long estimateInFlightBytes(List<FileAttachmentDto> attachments) {
+        long base64Length = base64Length(attachments);
+        return base64Length + base64Length * 3 / 4;
+    }
+
+    private long base64Length(List<FileAttachmentDto> attachments) {
+        return attachments.stream()
+                .mapToLong(attachment -> attachment.getContent() != null ? attachment.getContent().length() : 0)
+                .sum();
     }
 
     /**
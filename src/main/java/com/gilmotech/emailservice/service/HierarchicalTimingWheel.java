@@ -0,0 +1,197 @@
+package com.gilmotech.emailservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Roue temporelle hiérarchique (hashed timing wheel) : ajout et annulation en O(1),
+ * expiration en O(1) amorti, quel que soit le nombre d'échéances en attente.
+ * Le niveau 0 compte wheelSize ticks ; chaque case du niveau n couvre wheelSize^n ticks.
+ * Quand l'horloge entre dans une case d'un niveau supérieur, ses échéances redescendent
+ * vers un niveau plus fin. Une échéance n'expire jamais avant sa date : elle est arrondie
+ * au tick suivant. Non thread-safe : l'appelant synchronise.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+    private final int bits;
+    private final long mask;
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    private final Bucket<T> expired = new Bucket<>();
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param wheelSize arrondi à la puissance de 2 supérieure
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs doit être positif et wheelSize au moins 2");
+        }
+        this.tickMs = tickMs;
+        this.bits = Integer.SIZE - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1L << bits) - 1;
+        this.currentTick = Math.floorDiv(startMs, tickMs);
+    }
+
+    /**
+     * Programme value pour deadlineMs (une date passée expire au prochain advance)
+     */
+    public Timer<T> schedule(long deadlineMs, T value) {
+        Timer<T> timer = new Timer<>(Math.ceilDiv(deadlineMs, tickMs), value);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * @return false si l'échéance a déjà été rendue par advance ou annulée
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer.bucket == null) {
+            return false;
+        }
+        timer.bucket.remove(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Avance l'horloge jusqu'à nowMs et renvoie les valeurs arrivées à échéance
+     */
+    public List<T> advance(long nowMs) {
+        long targetTick = Math.floorDiv(nowMs, tickMs);
+        while (currentTick < targetTick) {
+            if (size == expired.count) {
+                // Rien en attente dans la roue : inutile de parcourir les ticks
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            // Les niveaux supérieurs d'abord : leurs échéances peuvent redescendre jusqu'au niveau 0
+            for (int level = levels.size() - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(bucketFor(level, currentTick));
+                }
+            }
+            if (!levels.isEmpty()) {
+                cascade(bucketFor(0, currentTick));
+            }
+        }
+
+        List<T> values = new ArrayList<>(expired.count);
+        for (Timer<T> timer = expired.detach(); timer != null; timer = timer.next) {
+            values.add(timer.value);
+        }
+        size -= values.size();
+        return values;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void cascade(Bucket<T> bucket) {
+        Timer<T> timer = bucket.detach();
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            expired.add(timer);
+            return;
+        }
+        int level = 0;
+        while (bits * (level + 1) < Long.SIZE - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        bucketFor(level, timer.deadlineTick).add(timer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Bucket<T> bucketFor(int level, long tick) {
+        while (levels.size() <= level) {
+            Bucket<T>[] buckets = new Bucket[1 << bits];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket<>();
+            }
+            levels.add(buckets);
+        }
+        return levels.get(level)[(int) ((tick >>> (bits * level)) & mask)];
+    }
+
+    /**
+     * Échéance programmée, à conserver pour l'annuler
+     */
+    public static final class Timer<T> {
+
+        private final long deadlineTick;
+        private final T value;
+        private Bucket<T> bucket;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(long deadlineTick, T value) {
+            this.deadlineTick = deadlineTick;
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Liste doublement chaînée : retrait en O(1) à l'annulation
+     */
+    private static final class Bucket<T> {
+
+        private Timer<T> head;
+        private int count;
+
+        void add(Timer<T> timer) {
+            timer.bucket = this;
+            timer.prev = null;
+            timer.next = head;
+            if (head != null) {
+                head.prev = timer;
+            }
+            head = timer;
+            count++;
+        }
+
+        void remove(Timer<T> timer) {
+            if (timer.prev != null) {
+                timer.prev.next = timer.next;
+            } else {
+                head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.prev = timer.prev;
+            }
+            timer.bucket = null;
+            timer.prev = null;
+            timer.next = null;
+            count--;
+        }
+
+        /**
+         * Vide la case et renvoie sa chaîne (les liens next restent valides pour le parcours)
+         */
+        Timer<T> detach() {
+            Timer<T> first = head;
+            for (Timer<T> timer = first; timer != null; timer = timer.next) {
+                timer.bucket = null;
+            }
+            head = null;
+            count = 0;
+            return first;
+        }
+    }
+}
@@ -3,9 +3,15 @@ package com.gilmotech.emailservice.service;
 import com.gilmotech.emailservice.dto.FileAttachmentDto;
 import com.gilmotech.emailservice.dto.MailRequestDto;
 import com.gilmotech.emailservice.exception.MailSendingException;
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
 import com.gilmotech.emailservice.model.AppCode;
 import com.gilmotech.emailservice.model.MailConfiguration;
 import com.gilmotech.emailservice.model.MailType;
+import com.gilmotech.emailservice.monitoring.AttachmentValidationEvent;
+import com.gilmotech.emailservice.monitoring.MimeAssemblyEvent;
+import com.gilmotech.emailservice.monitoring.RequestTiming;
+import com.gilmotech.emailservice.monitoring.SmtpSendEvent;
+import com.gilmotech.emailservice.monitoring.TemplateRenderEvent;
 import jakarta.activation.DataSource;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.InternetAddress;
@@ -13,11 +19,14 @@ import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.util.ByteArrayDataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
@@ -28,82 +37,253 @@ import java.util.Map;
 @Slf4j
 public class MailService {
 
-    private final JavaMailSender mailSender;
+    private final TenantMailSenderRegistry mailSenderRegistry;
     private final ConfigurationService configService;
     private final TemplateService templateService;
     private final FileValidationService fileValidationService;
+    private final ConfirmationRedeliveryService redeliveryService;
+    private final SpamHeavyHitterDetector heavyHitterDetector;
+    private final AdminDigestService adminDigestService;
+    private final AttachmentStore attachmentStore;
+    private final SendScheduler sendScheduler;
+    private final BrandAssetRegistry brandAssetRegistry;
+    private final UploadService uploadService;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final SuppressionList suppressionList;
+
+    private static final String ADMIN = "ADMIN";
+    private static final String CONFIRMATION = "CONFIRMATION";
 
     /**
      * Envoie un email basé sur la requête
      * @return le numéro de référence généré
      */
     public String sendMail(MailRequestDto request) {
+        long validateStart = RequestTiming.start();
+
         // 1. Vérification anti-bot (honeypot)
+        rejectHoneypot(request);
+
+        // Même message ou même expéditeur en masse, quelle que soit l'IP
+        heavyHitterDetector.check(request);
+        RequestTiming.stop(RequestTiming.Stage.VALIDATE, validateStart);
+
+        // Fichiers envoyés à l'avance : le jeton est remplacé par le contenu déjà validé
+        // (lecture disque et encodage, comptés avec les pièces jointes)
+        long resolveStart = RequestTiming.start();
+        List<String> uploadTokens = uploadService.resolve(request);
+        RequestTiming.stop(RequestTiming.Stage.ATTACHMENTS, resolveStart);
+
+        String reference = deliver(request, generateReference(request.getMailType()));
+        uploadService.release(uploadTokens);
+        return reference;
+    }
+
+    /**
+     * Contrôles d'un envoi programmé, faits dès la réception : l'appelant peut ensuite
+     * conserver la requête (fichiers envoyés à l'avance inclus) jusqu'à sendScheduledMail
+     */
+    public void validateScheduledMail(MailRequestDto request) {
+        rejectHoneypot(request);
+        heavyHitterDetector.check(request);
+        List<String> uploadTokens = uploadService.resolve(request);
+
+        configService.getConfiguration(AppCode.fromString(request.getAppCode()),
+                MailType.fromString(request.getMailType()));
+        if (request.getAttachments() != null && !request.getAttachments().isEmpty()) {
+            try (AttachmentMemoryBudget.Reservation ignored = validateAttachments(request)) {
+                log.info("Validation des {} pièce(s) jointe(s) réussie", request.getAttachments().size());
+            }
+        }
+        uploadService.release(uploadTokens);
+    }
+
+    /**
+     * Envoi arrivé à échéance, sous la référence attribuée à la programmation
+     */
+    public String sendScheduledMail(MailRequestDto request, String reference) {
+        return deliver(request, reference);
+    }
+
+    private void rejectHoneypot(MailRequestDto request) {
         if (request.getWebsite() != null && !request.getWebsite().isEmpty()) {
             log.warn("Tentative de spam détectée (honeypot rempli)");
             throw new MailSendingException("SPAM_DETECTED", "Requête invalide");
         }
+    }
 
-        // 2. Validation des fichiers joints
-        if (request.getAttachments() != null && !request.getAttachments().isEmpty()) {
-            fileValidationService.validateAttachments(request.getAttachments());
-            log.info("Validation des {} pièce(s) jointe(s) réussie", request.getAttachments().size());
+    private String deliver(MailRequestDto request, String reference) {
+        // 2. Validation des fichiers joints (avec réservation du budget mémoire)
+        // La réservation est libérée une fois les emails envoyés
+        boolean hasAttachments = request.getAttachments() != null && !request.getAttachments().isEmpty();
+        try (AttachmentMemoryBudget.Reservation ignored = hasAttachments
+                ? validateAttachments(request)
+                : AttachmentMemoryBudget.Reservation.NONE) {
+            if (hasAttachments) {
+                log.info("Validation des {} pièce(s) jointe(s) réussie", request.getAttachments().size());
+            }
+            return processMail(request, reference);
         }
+    }
 
+    private AttachmentMemoryBudget.Reservation validateAttachments(MailRequestDto request) {
+        AttachmentValidationEvent event = new AttachmentValidationEvent();
+        event.setAttachmentCount(request.getAttachments().size());
+        event.start(request.getAppCode(), request.getMailType(), null);
+        long timingStart = RequestTiming.start();
+
+        AttachmentMemoryBudget.Reservation reservation = null;
+        try {
+            reservation = fileValidationService.validateAttachments(request.getAttachments());
+            return reservation;
+        } finally {
+            event.finish(reservation != null ? reservation.getBytes() : 0);
+            RequestTiming.stop(RequestTiming.Stage.ATTACHMENTS, timingStart);
+        }
+    }
+
+    /**
+     * Configuration, rendu des templates et envoi (admin puis confirmation)
+     */
+    private String processMail(MailRequestDto request, String reference) {
         // 3. Récupération de la configuration
+        long configStart = RequestTiming.start();
         AppCode appCode = AppCode.fromString(request.getAppCode());
         MailType mailType = MailType.fromString(request.getMailType());
         MailConfiguration config = configService.getConfiguration(appCode, mailType);
+        JavaMailSender mailSender = mailSenderRegistry.senderFor(appCode);
+        RequestTiming.stop(RequestTiming.Stage.CONFIG, configStart);
 
         // 4. Préparation des variables pour le template
-        Map<String, Object> variables = prepareTemplateVariables(request);
-        String reference = (String) variables.get("reference");
+        Map<String, Object> variables = prepareTemplateVariables(request, reference);
+        variables.put("assets", brandAssetRegistry.urlsFor(appCode));
+
+        // 5-6. Notification admin : regroupée dans un digest si activé (hors pièces jointes)
+        boolean hasAttachments = request.getAttachments() != null && !request.getAttachments().isEmpty();
+        if (config.isDigestEnabled() && !hasAttachments) {
+            adminDigestService.add(config, variables);
+        } else {
+            notifyAdmin(mailSender, config, reference, variables, request);
+        }
+
+        // 7. Envoi de l'email de confirmation au client (si template défini),
+        // sauf adresse en échec définitif : vérifiée avant le rendu du template
+        boolean hasConfirmation = config.getTemplatePathConfirmation() != null
+                && !config.getTemplatePathConfirmation().isEmpty();
+        if (hasConfirmation && suppressionList.isSuppressed(request.getEmail())) {
+            log.info("Confirmation {} non envoyée: {} est en liste de suppression (bounce)",
+                    reference, request.getEmail());
+        } else if (hasConfirmation) {
+            try {
+                long renderStart = RequestTiming.start();
+                String confirmHtmlContent = renderTemplate(
+                        config, config.getTemplatePathConfirmation(), variables, reference);
+                String confirmTextContent = templateService.generateTextContent(variables);
+                RequestTiming.stop(RequestTiming.Stage.RENDER_CONFIRM, renderStart);
+
+                long smtpStart = RequestTiming.start();
+                boolean sent;
+                try {
+                    sent = sendEmailToClient(mailSender, config, reference, confirmHtmlContent, confirmTextContent,
+                            request.getEmail());
+                } finally {
+                    RequestTiming.stop(RequestTiming.Stage.SMTP_CONFIRM, smtpStart);
+                }
+                if (sent) {
+                    log.info("Email de confirmation envoyé avec succès à {} pour {} / {}",
+                            request.getEmail(), appCode, mailType);
+                }
+            } catch (MessagingException | UnsupportedEncodingException e) {
+                log.error("Erreur lors de l'envoi de l'email de confirmation", e);
+                log.warn("L'email de confirmation n'a pas pu être envoyé, mais l'email admin a été envoyé");
+            }
+        }
+
+        // Retourner la référence générée
+        return reference;
+    }
+
+    private void notifyAdmin(JavaMailSender mailSender, MailConfiguration config, String reference,
+                             Map<String, Object> variables, MailRequestDto request) {
+        // Pièces jointes volumineuses : déposées dans le stockage local, remplacées par un lien
+        List<FileAttachmentDto> embedded = new ArrayList<>();
+        List<AttachmentStore.StoredAttachment> links = new ArrayList<>();
+        offloadLargeAttachments(request.getAttachments(), embedded, links);
+
+        Map<String, Object> adminVariables = variables;
+        if (!links.isEmpty()) {
+            adminVariables = new HashMap<>(variables);
+            adminVariables.put("attachments", embedded);
+            adminVariables.put("attachmentLinks", links);
+        }
 
         // 5. Génération du contenu
-        String adminHtmlContent = templateService.generateHtmlContent(
-                config.getTemplatePath(),
-                variables
-        );
-        String adminTextContent = templateService.generateTextContent(variables);
+        long renderStart = RequestTiming.start();
+        String adminHtmlContent = renderTemplate(config, config.getTemplatePath(), adminVariables, reference);
+        String adminTextContent = templateService.generateTextContent(adminVariables);
+        RequestTiming.stop(RequestTiming.Stage.RENDER_ADMIN, renderStart);
 
-        // 6. Envoi de l'email à l'admin avec pièces jointes
+        // 6. Envoi de l'email à l'admin avec pièces jointes (assemblage MIME compris)
+        long smtpStart = RequestTiming.start();
         try {
             sendEmailToAdmin(
+                    mailSender,
                     config,
+                    reference,
                     adminHtmlContent,
                     adminTextContent,
                     request.getEmail(),
-                    request.getAttachments()
+                    embedded,
+                    links.size()
             );
-            log.info("Email admin envoyé avec succès pour {} / {}", appCode, mailType);
+            log.info("Email admin envoyé avec succès pour {} / {}", config.getAppCode(), config.getMailType());
         } catch (MessagingException | UnsupportedEncodingException e) {
             log.error("Erreur lors de l'envoi de l'email admin", e);
             throw new MailSendingException("ADMIN_SEND_FAILED", "Impossible d'envoyer l'email à l'admin", e);
+        } finally {
+            RequestTiming.stop(RequestTiming.Stage.SMTP_ADMIN, smtpStart);
         }
+    }
 
-        // 7. Envoi de l'email de confirmation au client (si template défini)
-        if (config.getTemplatePathConfirmation() != null && !config.getTemplatePathConfirmation().isEmpty()) {
+    private void offloadLargeAttachments(List<FileAttachmentDto> attachments, List<FileAttachmentDto> embedded,
+                                         List<AttachmentStore.StoredAttachment> links) {
+        if (attachments == null) {
+            return;
+        }
+        for (FileAttachmentDto attachment : attachments) {
+            // Taille décodée estimée depuis la longueur Base64
+            long size = attachment.getContent().length() * 3L / 4;
+            if (!attachmentStore.shouldOffload(size)) {
+                embedded.add(attachment);
+                continue;
+            }
             try {
-                String confirmHtmlContent = templateService.generateHtmlContent(
-                        config.getTemplatePathConfirmation(),
-                        variables
-                );
-                String confirmTextContent = templateService.generateTextContent(variables);
-
-                sendEmailToClient(config, confirmHtmlContent, confirmTextContent, request.getEmail());
-                log.info("Email de confirmation envoyé avec succès à {} pour {} / {}",
-                        request.getEmail(), appCode, mailType);
-            } catch (MessagingException | UnsupportedEncodingException e) {
-                log.error("Erreur lors de l'envoi de l'email de confirmation", e);
-                log.warn("L'email de confirmation n'a pas pu être envoyé, mais l'email admin a été envoyé");
+                links.add(attachmentStore.store(Base64.getDecoder().decode(attachment.getContent()),
+                        attachment.getFilename(), attachment.getMimeType()));
+            } catch (UncheckedIOException e) {
+                log.warn("Pièce jointe {} non déportée, envoyée dans l'email: {}",
+                        attachment.getFilename(), e.getMessage());
+                embedded.add(attachment);
             }
         }
+    }
 
-        // Retourner la référence générée
-        return reference;
+    private String renderTemplate(MailConfiguration config, String templatePath,
+                                  Map<String, Object> variables, String reference) {
+        TemplateRenderEvent event = new TemplateRenderEvent();
+        event.setTemplatePath(templatePath);
+        event.start(config.getAppCode(), config.getMailType(), reference);
+
+        String html = null;
+        try {
+            html = templateService.generateHtmlContent(templatePath, variables);
+            return html;
+        } finally {
+            event.finish(html != null ? html.length() : 0);
+        }
     }
 
-    private Map<String, Object> prepareTemplateVariables(MailRequestDto request) {
+    private Map<String, Object> prepareTemplateVariables(MailRequestDto request, String reference) {
         Map<String, Object> variables = new HashMap<>();
         variables.put("name", sanitize(request.getName()));
         variables.put("email", request.getEmail());
@@ -122,8 +302,7 @@ public class MailService {
             variables.put("attachmentCount", 0);
         }
 
-        // Génération du numéro de référence (pour les sinistres et devis)
-        String reference = generateReference(request.getMailType());
+        // Numéro de référence (pour les sinistres et devis)
         variables.put("reference", reference);
 
         if (request.getAdditionalData() != null) {
@@ -142,7 +321,15 @@ public class MailService {
     /**
      * Génère un numéro de référence unique selon le type de mail
      */
-    private String generateReference(String mailType) {
+    public String generateReference(String mailType) {
+        return generateReference(mailType, 4);
+    }
+
+    /**
+     * @param randomDigits chiffres aléatoires après la date : 4 pour les envois immédiats,
+     *                     davantage quand les références doivent rester distinctes par milliers (envois programmés)
+     */
+    public String generateReference(String mailType, int randomDigits) {
         String prefix;
         switch (mailType.toUpperCase()) {
             case "CLAIM_REQUEST":
@@ -161,19 +348,28 @@ public class MailService {
         // Format: PREFIX-YYYYMMDD-XXXX (ex: SIN-20241211-1234)
         String timestamp = java.time.LocalDateTime.now()
                 .format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String randomPart = String.format("%04d", (int)(Math.random() * 10000));
+        String randomPart = String.format("%0" + randomDigits + "d",
+                (long) (Math.random() * Math.pow(10, randomDigits)));
 
         return String.format("%s-%s-%s", prefix, timestamp, randomPart);
     }
 
     private void sendEmailToAdmin(
+            JavaMailSender mailSender,
             MailConfiguration config,
+            String reference,
             String htmlContent,
             String textContent,
             String userEmail,
-            List<FileAttachmentDto> attachments
+            List<FileAttachmentDto> attachments,
+            int attachmentLinkCount
     ) throws MessagingException, UnsupportedEncodingException {
 
+        MimeAssemblyEvent assembly = new MimeAssemblyEvent();
+        assembly.setRecipientKind(ADMIN);
+        assembly.start(config.getAppCode(), config.getMailType(), reference);
+        long contentBytes = htmlContent.length() + textContent.length();
+
         MimeMessage message = mailSender.createMimeMessage();
 
         // Activer le multipart pour supporter les pièces jointes
@@ -198,13 +394,16 @@ public class MailService {
 
         // Sujet
         String subject = config.getSubject();
-        if (attachments != null && !attachments.isEmpty()) {
-            subject += " (avec " + attachments.size() + " pièce(s) jointe(s))";
+        int attachmentCount = (attachments != null ? attachments.size() : 0) + attachmentLinkCount;
+        if (attachmentCount > 0) {
+            subject += " (avec " + attachmentCount + " pièce(s) jointe(s))";
         }
         helper.setSubject(subject);
 
-        // Contenu (HTML + texte en fallback)
+        // Contenu (HTML + texte en fallback) et images de marque référencées
         helper.setText(textContent, htmlContent);
+        contentBytes += brandAssetRegistry.attachReferenced(
+                config.getAppCode(), helper.getMimeMultipart(), htmlContent);
 
         // Ajout des pièces jointes
         if (attachments != null && !attachments.isEmpty()) {
@@ -213,6 +412,7 @@ public class MailService {
                     byte[] fileContent = Base64.getDecoder().decode(attachment.getContent());
                     DataSource dataSource = new ByteArrayDataSource(fileContent, attachment.getMimeType());
                     helper.addAttachment(attachment.getFilename(), dataSource);
+                    contentBytes += fileContent.length;
 
                     log.debug("Pièce jointe ajoutée: {} ({} bytes)",
                             attachment.getFilename(), fileContent.length);
@@ -227,23 +427,35 @@ public class MailService {
             }
         }
 
+        assembly.finish(contentBytes);
+
         // Logs détaillés avant envoi
-        log.info("Envoi email ADMIN — expéditeur: {} <{}>, destinataires: {}, replyTo: {}, pièces jointes: {}",
+        log.info("Envoi email ADMIN — expéditeur: {} <{}>, destinataires: {}, replyTo: {}, pièces jointes: {}, liens: {}",
                 config.getFromName(), config.getFromAddress(),
                 config.getToAddresses(), userEmail,
-                attachments != null ? attachments.size() : 0);
+                attachments != null ? attachments.size() : 0, attachmentLinkCount);
 
         // Envoi
-        mailSender.send(message);
+        send(mailSender, message, config, reference, ADMIN, contentBytes);
     }
 
-    private void sendEmailToClient(
+    /**
+     * @return false si l'envoi a échoué et que la confirmation a été mise en file de renvoi
+     */
+    private boolean sendEmailToClient(
+            JavaMailSender mailSender,
             MailConfiguration config,
+            String reference,
             String htmlContent,
             String textContent,
             String userEmail
     ) throws MessagingException, UnsupportedEncodingException {
 
+        MimeAssemblyEvent assembly = new MimeAssemblyEvent();
+        assembly.setRecipientKind(CONFIRMATION);
+        assembly.start(config.getAppCode(), config.getMailType(), reference);
+        long contentBytes = htmlContent.length() + textContent.length();
+
         MimeMessage message = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
@@ -262,15 +474,59 @@ public class MailService {
                 .replace("Nouvelle demande", "Confirmation de votre demande");
         helper.setSubject(confirmSubject);
 
-        // Contenu (HTML + texte en fallback)
+        // Contenu (HTML + texte en fallback) et images de marque référencées
         helper.setText(textContent, htmlContent);
+        contentBytes += brandAssetRegistry.attachReferenced(
+                config.getAppCode(), helper.getMimeMultipart(), htmlContent);
+
+        assembly.finish(contentBytes);
 
         // Logs détaillés avant envoi
         log.info("Envoi email CONFIRMATION — expéditeur: {} <{}>, destinataire: {}, replyTo: {}",
                 config.getFromName(), config.getFromAddress(), userEmail, config.getReplyTo());
 
-        // Envoi
-        mailSender.send(message);
+        // Envoi, ou renvoi en arrière-plan en cas d'échec (la réponse HTTP n'attend pas)
+        try {
+            send(mailSender, message, config, reference, CONFIRMATION, contentBytes);
+            return true;
+        } catch (MailException | ServiceOverloadedException e) {
+            log.warn("Échec de l'envoi de la confirmation {} à {}, renvoi en arrière-plan: {}",
+                    reference, userEmail, e.getMessage());
+            redeliveryService.enqueue(ConfirmationRedeliveryService.Kind.CONFIRMATION, config.getAppCode(),
+                    config.getMailType(), reference, userEmail, message, e);
+            return false;
+        }
+    }
+
+    /**
+     * Envoi via l'ordonnanceur : file propre à l'application et au type de mail.
+     * Refusé immédiatement si la limite adaptative d'envois simultanés est atteinte.
+     */
+    private void send(JavaMailSender mailSender, MimeMessage message, MailConfiguration config,
+                      String reference, String recipientKind, long contentBytes) {
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire();
+        try {
+            sendScheduler.execute(config, contentBytes, () -> {
+                SmtpSendEvent event = new SmtpSendEvent();
+                event.setRecipientKind(recipientKind);
+                event.start(config.getAppCode(), config.getMailType(), reference);
+                try {
+                    mailSender.send(message);
+                    event.setSuccess(true);
+                } finally {
+                    event.finish(contentBytes);
+                }
+            });
+            permit.success();
+        } catch (RuntimeException e) {
+            // Destinataire refusé : sans rapport avec la charge
+            if (PooledMailSender.isRecipientFailure(e)) {
+                permit.ignore();
+            } else {
+                permit.dropped();
+            }
+            throw e;
+        }
     }
 
     /**
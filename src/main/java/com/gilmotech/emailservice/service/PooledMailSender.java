@@ -0,0 +1,179 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaMailSender qui réutilise ses connexions SMTP au lieu d'en ouvrir une par message.
+ * Le nombre de connexions (et donc d'envois simultanés) est borné : au-delà, l'appelant
+ * attend au plus acquireTimeoutMs puis reçoit une ServiceOverloadedException.
+ * Les temps de connexion et d'envoi sont suivis dans un {@link RelayHealth}.
+ */
+@Slf4j
+public class PooledMailSender extends JavaMailSenderImpl implements AutoCloseable {
+
+    private final String name;
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutNanos;
+    private final RelayHealth health;
+
+    // Connexions ouvertes disponibles, la plus récente en tête
+    private final BlockingDeque<IdleTransport> idleTransports = new LinkedBlockingDeque<>();
+
+    public PooledMailSender(String name, int maxConnections, long acquireTimeoutMs, long idleTimeoutMs,
+                            RelayHealth health) {
+        this.name = name;
+        this.permits = new Semaphore(maxConnections, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.health = health;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        acquirePermit();
+        try {
+            Transport transport = borrowTransport();
+            Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+            long start = System.nanoTime();
+            boolean relayFailure = false;
+
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    if (mimeMessage.getSentDate() == null) {
+                        mimeMessage.setSentDate(new Date());
+                    }
+                    String messageId = mimeMessage.getMessageID();
+                    mimeMessage.saveChanges();
+                    if (messageId != null) {
+                        // Conserver un Message-ID explicite
+                        mimeMessage.setHeader("Message-ID", messageId);
+                    }
+                    Address[] addresses = mimeMessage.getAllRecipients();
+                    transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                } catch (MessagingException e) {
+                    Object original = originalMessages != null ? originalMessages[i] : mimeMessage;
+                    failedMessages.put(original, e);
+                    relayFailure |= !isRecipientFailure(e);
+                }
+            }
+
+            // Après une erreur, l'état de la session SMTP est incertain : on ne la réutilise pas
+            if (failedMessages.isEmpty()) {
+                health.recordData(System.nanoTime() - start);
+                idleTransports.offerFirst(new IdleTransport(transport, System.nanoTime()));
+            } else {
+                if (relayFailure) {
+                    health.recordFailure();
+                }
+                closeQuietly(transport);
+                throw new MailSendException(failedMessages);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Destinataire refusé : l'erreur vient de l'adresse, pas du relais
+     */
+    public static boolean isRecipientFailure(Exception e) {
+        if (e instanceof MailSendException sendException && !sendException.getFailedMessages().isEmpty()) {
+            return sendException.getFailedMessages().values().stream().allMatch(PooledMailSender::isRecipientFailure);
+        }
+        return e instanceof SendFailedException sendFailed
+                && sendFailed.getInvalidAddresses() != null
+                && sendFailed.getInvalidAddresses().length > 0;
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Aucune connexion SMTP disponible pour {} après {} ms", name, acquireTimeoutMs);
+                throw new ServiceOverloadedException(
+                        "TENANT_BUSY",
+                        "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                        Math.max(1, TimeUnit.MILLISECONDS.toSeconds(acquireTimeoutMs))
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Envoi interrompu", e);
+        }
+    }
+
+    private Transport borrowTransport() {
+        IdleTransport idle;
+        while ((idle = idleTransports.pollFirst()) != null) {
+            if (System.nanoTime() - idle.lastUsedNanos() < idleTimeoutNanos && idle.transport().isConnected()) {
+                return idle.transport();
+            }
+            closeQuietly(idle.transport());
+        }
+
+        long start = System.nanoTime();
+        try {
+            log.debug("Nouvelle connexion SMTP pour {} vers {}:{}", name, getHost(), getPort());
+            Transport transport = connectTransport();
+            health.recordConnect(System.nanoTime() - start);
+            return transport;
+        } catch (AuthenticationFailedException e) {
+            health.recordFailure();
+            throw new MailAuthenticationException(e);
+        } catch (Exception e) {
+            health.recordFailure();
+            throw new MailSendException("Mail server connection failed", e);
+        }
+    }
+
+    private void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (Exception e) {
+            log.debug("Erreur à la fermeture d'une connexion SMTP pour {}", name, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RelayHealth getHealth() {
+        return health;
+    }
+
+    /**
+     * Ferme toutes les connexions inutilisées
+     */
+    @Override
+    public void close() {
+        IdleTransport idle;
+        while ((idle = idleTransports.pollFirst()) != null) {
+            closeQuietly(idle.transport());
+        }
+    }
+
+    private record IdleTransport(Transport transport, long lastUsedNanos) {
+    }
+}
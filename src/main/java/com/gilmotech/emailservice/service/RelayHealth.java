@@ -0,0 +1,82 @@
+package com.gilmotech.emailservice.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Santé et latence d'un relais SMTP : moyennes mobiles exponentielles (EWMA) des temps
+ * de connexion et d'envoi (DATA), et mise à l'écart temporaire après un échec
+ * (durée doublée à chaque échec consécutif).
+ * Sans nouvelle mesure, le score décroît de moitié à chaque demi-vie : un relais délaissé
+ * parce qu'il était lent finit par repasser devant et être réessayé, sa latence est alors
+ * remesurée. Un relais rétabli retrouve ainsi du trafic, un relais toujours lent le reperd.
+ */
+public class RelayHealth {
+
+    private static final double ALPHA = 0.3;
+    private static final int MAX_COOLDOWN_FACTOR = 16;
+
+    private final long baseCooldownNanos;
+    private final long scoreHalfLifeNanos;
+
+    private double connectMs = Double.NaN;
+    private double dataMs = Double.NaN;
+    private int consecutiveFailures;
+    private long unavailableUntilNanos;
+    private long lastSampleNanos;
+
+    /**
+     * @param scoreHalfLifeMs demi-vie du score sans nouvelle mesure (0 : pas de décroissance)
+     */
+    public RelayHealth(long cooldownMs, long scoreHalfLifeMs) {
+        this.baseCooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+        this.scoreHalfLifeNanos = TimeUnit.MILLISECONDS.toNanos(scoreHalfLifeMs);
+    }
+
+    public synchronized void recordConnect(long nanos) {
+        connectMs = ewma(connectMs, nanos / 1_000_000.0);
+        lastSampleNanos = System.nanoTime();
+    }
+
+    public synchronized void recordData(long nanos) {
+        dataMs = ewma(dataMs, nanos / 1_000_000.0);
+        lastSampleNanos = System.nanoTime();
+        consecutiveFailures = 0;
+        unavailableUntilNanos = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        long factor = Math.min(1L << Math.min(consecutiveFailures - 1, 30), MAX_COOLDOWN_FACTOR);
+        unavailableUntilNanos = System.nanoTime() + baseCooldownNanos * factor;
+    }
+
+    public synchronized boolean isAvailable() {
+        return consecutiveFailures == 0 || System.nanoTime() - unavailableUntilNanos >= 0;
+    }
+
+    /**
+     * Latence estimée d'un envoi en ms (0 pour un relais jamais utilisé, pour qu'il soit essayé),
+     * réduite selon l'ancienneté de la dernière mesure
+     */
+    public synchronized double score() {
+        double latencyMs = (Double.isNaN(connectMs) ? 0 : connectMs) + (Double.isNaN(dataMs) ? 0 : dataMs);
+        if (latencyMs == 0 || scoreHalfLifeNanos <= 0) {
+            return latencyMs;
+        }
+        double halfLives = (double) (System.nanoTime() - lastSampleNanos) / scoreHalfLifeNanos;
+        return latencyMs * Math.pow(0.5, halfLives);
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("connect=%.1fms data=%.1fms failures=%d", connectMs, dataMs, consecutiveFailures);
+    }
+
+    private static double ewma(double current, double sample) {
+        return Double.isNaN(current) ? sample : ALPHA * sample + (1 - ALPHA) * current;
+    }
+}
@@ -0,0 +1,108 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Envoi via plusieurs relais SMTP : chaque message part par le relais disponible
+ * le plus rapide (EWMA connexion + DATA), les relais en échec sont écartés
+ * temporairement et le suivant prend le relais.
+ */
+@Slf4j
+public class RoutingMailSender implements JavaMailSender, AutoCloseable {
+
+    private final String name;
+    private final List<PooledMailSender> relays;
+
+    public RoutingMailSender(String name, List<PooledMailSender> relays) {
+        if (relays.isEmpty()) {
+            throw new IllegalArgumentException("Aucun relais SMTP configuré pour " + name);
+        }
+        this.name = name;
+        this.relays = List.copyOf(relays);
+    }
+
+    @Override
+    public MimeMessage createMimeMessage() {
+        return relays.get(0).createMimeMessage();
+    }
+
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) throws MailException {
+        return relays.get(0).createMimeMessage(contentStream);
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        sendWithFailover(relay -> relay.send(mimeMessages));
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+        sendWithFailover(relay -> relay.send(simpleMessages));
+    }
+
+    /**
+     * Relais dans l'ordre d'essai : disponibles du plus rapide au plus lent,
+     * puis ceux écartés (en dernier recours)
+     */
+    List<PooledMailSender> candidates() {
+        List<PooledMailSender> available = new ArrayList<>();
+        List<PooledMailSender> unavailable = new ArrayList<>();
+        for (PooledMailSender relay : relays) {
+            (relay.getHealth().isAvailable() ? available : unavailable).add(relay);
+        }
+        Comparator<PooledMailSender> byScore = Comparator.comparingDouble(relay -> relay.getHealth().score());
+        available.sort(byScore);
+        unavailable.sort(byScore);
+        available.addAll(unavailable);
+        return available;
+    }
+
+    public List<PooledMailSender> getRelays() {
+        return relays;
+    }
+
+    @Override
+    public void close() {
+        relays.forEach(PooledMailSender::close);
+    }
+
+    private void sendWithFailover(RelaySend send) {
+        RuntimeException lastFailure = null;
+
+        for (PooledMailSender relay : candidates()) {
+            try {
+                send.sendVia(relay);
+                return;
+            } catch (ServiceOverloadedException e) {
+                // Relais saturé : on tente le suivant
+                lastFailure = e;
+            } catch (MailException e) {
+                if (PooledMailSender.isRecipientFailure(e)) {
+                    throw e;
+                }
+                log.warn("Échec d'envoi via le relais {} ({}), tentative sur le suivant: {}",
+                        relay.getName(), relay.getHealth(), e.getMessage());
+                lastFailure = e;
+            }
+        }
+
+        log.error("Aucun relais SMTP n'a pu envoyer le message pour {}", name);
+        throw lastFailure;
+    }
+
+    @FunctionalInterface
+    private interface RelaySend {
+        void sendVia(PooledMailSender relay);
+    }
+}
@@ -0,0 +1,449 @@
+package com.gilmotech.emailservice.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.exception.MailSendingException;
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envois programmés (sendAt) : rappels avant un rendez-vous, confirmations retenues
+ * jusqu'aux heures ouvrées. Les requêtes sont contrôlées à la réception, puis attendent
+ * dans une roue temporelle hiérarchique (ajout, annulation et échéance en O(1)).
+ * Chaque ajout ou retrait est écrit dans un journal local, rejoué et compacté au démarrage :
+ * un envoi interrompu par un arrêt est refait au redémarrage (au moins une fois).
+ * Le journal contient les requêtes complètes (données personnelles, pièces jointes) : il doit
+ * être sur un volume persistant et ses fichiers ne sont lisibles que par le compte du service.
+ * Sans journal configuré, la programmation est désactivée : les requêtes avec sendAt partent
+ * immédiatement. Les envois en attente sont bornés en nombre et en octets.
+ * À échéance, l'envoi passe par MailService sous la référence rendue au client,
+ * qui permet aussi de l'annuler (API d'administration).
+ */
+@Service
+@Slf4j
+public class ScheduledMailService {
+
+    private static final String ADD = "ADD";
+    private static final String REMOVE = "REMOVE";
+    private static final int MAX_REFERENCE_ATTEMPTS = 100;
+    // 10^8 références par jour et par type : peu de collisions même avec max-pending en attente
+    private static final int REFERENCE_RANDOM_DIGITS = 8;
+    private static final long RETRY_AFTER_SECONDS = 60;
+
+    private final MailService mailService;
+    // Désactivé aussi au démarrage si aucun journal n'est configuré
+    private boolean enabled;
+    private final Path journalPath;
+    private final long tickMs;
+    private final long maxHorizonMs;
+    private final int maxPending;
+    private final long maxPendingBytes;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final HierarchicalTimingWheel<ScheduledMail> wheel;
+    private final ExecutorService dispatcher;
+
+    // Envois non terminés (en attente ou en cours), tels qu'écrits au journal
+    private final Map<String, ScheduledMail> pending = new LinkedHashMap<>();
+    // Envois encore annulables
+    private final Map<String, HierarchicalTimingWheel.Timer<ScheduledMail>> timers = new HashMap<>();
+
+    private BufferedWriter journal;
+    private long journalRecords;
+    private long pendingBytes;
+
+    public ScheduledMailService(
+            MailService mailService,
+            @Value("${app.mail.scheduled.enabled:true}") boolean enabled,
+            @Value("${app.mail.scheduled.journal:}") String journalPath,
+            @Value("${app.mail.scheduled.tick-ms:1000}") long tickMs,
+            @Value("${app.mail.scheduled.wheel-size:512}") int wheelSize,
+            @Value("${app.mail.scheduled.max-horizon-days:366}") long maxHorizonDays,
+            @Value("${app.mail.scheduled.max-pending:500000}") int maxPending,
+            @Value("${app.mail.scheduled.max-pending-mb:256}") long maxPendingMb,
+            @Value("${app.mail.scheduled.dispatch-threads:2}") int dispatchThreads,
+            @Value("${app.mail.scheduled.max-attempts:5}") int maxAttempts,
+            @Value("${app.mail.scheduled.retry-delay-ms:60000}") long retryDelayMs
+    ) {
+        this.mailService = mailService;
+        this.enabled = enabled;
+        this.journalPath = journalPath.isBlank() ? null : Path.of(journalPath).toAbsolutePath();
+        this.tickMs = tickMs;
+        this.maxHorizonMs = Duration.ofDays(maxHorizonDays).toMillis();
+        this.maxPending = maxPending;
+        this.maxPendingBytes = maxPendingMb * 1024 * 1024;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-mail-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rejoue le journal : les envois échus pendant l'arrêt partent au premier tick
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (journalPath == null) {
+            log.warn("Aucun journal configuré (app.mail.scheduled.journal / SCHEDULED_MAIL_JOURNAL) : "
+                    + "envois programmés désactivés, les requêtes avec sendAt partent immédiatement");
+            enabled = false;
+            return;
+        }
+        if (journalPath.startsWith(Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath())) {
+            log.warn("Journal des envois programmés dans le répertoire temporaire ({}) : "
+                    + "les envois en attente peuvent être perdus au redémarrage", journalPath);
+        }
+        if (!Files.isDirectory(journalPath.getParent())) {
+            Files.createDirectories(journalPath.getParent());
+            restrictToOwner(journalPath.getParent(), "rwx------");
+        }
+        if (Files.exists(journalPath)) {
+            replayJournal();
+        }
+        synchronized (this) {
+            pending.values().forEach(this::track);
+            rewriteJournal();
+        }
+        log.info("Envois programmés : {} en attente, {} Ko (journal {})",
+                pending.size(), pendingBytes / 1024, journalPath);
+    }
+
+    /**
+     * Faut-il différer cette requête ? (date absente ou déjà atteinte, ou pas de journal : envoi immédiat)
+     */
+    public boolean shouldDefer(MailRequestDto request) {
+        return journalPath != null
+                && request.getSendAt() != null
+                && request.getSendAt().toInstant().toEpochMilli() > System.currentTimeMillis() + tickMs;
+    }
+
+    /**
+     * Contrôle la requête puis la programme
+     * @return la référence de l'envoi, utilisée à l'échéance et pour l'annuler
+     */
+    public String schedule(MailRequestDto request) {
+        if (!enabled) {
+            throw new MailSendingException("SCHEDULING_DISABLED", "L'envoi programmé n'est pas disponible");
+        }
+        long sendAt = request.getSendAt().toInstant().toEpochMilli();
+        if (sendAt > System.currentTimeMillis() + maxHorizonMs) {
+            throw new MailSendingException("INVALID_SEND_AT",
+                    "Date d'envoi trop lointaine (max " + Duration.ofMillis(maxHorizonMs).toDays() + " jours)");
+        }
+        long bytes = approximateBytes(request);
+        checkCapacity(bytes);
+
+        mailService.validateScheduledMail(request);
+
+        String reference;
+        synchronized (this) {
+            checkCapacity(bytes);
+            reference = newReference(request.getMailType());
+            ScheduledMail mail = new ScheduledMail(reference, sendAt, 0, request, bytes);
+            append(new JournalRecord(ADD, mail));
+            putPending(mail);
+            track(mail);
+        }
+        log.info("Envoi {} / {} programmé pour {} (référence {})",
+                request.getAppCode(), request.getMailType(), request.getSendAt(), reference);
+        return reference;
+    }
+
+    /**
+     * @return false si aucun envoi n'est en attente sous cette référence (inconnu, déjà parti ou en cours)
+     */
+    public synchronized boolean cancel(String reference) {
+        HierarchicalTimingWheel.Timer<ScheduledMail> timer = timers.remove(reference);
+        if (timer == null || !wheel.cancel(timer)) {
+            return false;
+        }
+        removePending(reference);
+        append(new JournalRecord(REMOVE, reference));
+        log.info("Envoi programmé {} annulé", reference);
+        return true;
+    }
+
+    /**
+     * Avance la roue et confie les envois échus aux threads d'envoi
+     */
+    @Scheduled(fixedDelayString = "${app.mail.scheduled.tick-ms:1000}")
+    public void dispatchDue() {
+        if (enabled) {
+            dispatchDue(System.currentTimeMillis());
+        }
+    }
+
+    void dispatchDue(long nowMs) {
+        List<ScheduledMail> due;
+        synchronized (this) {
+            due = wheel.advance(nowMs);
+            due.forEach(mail -> timers.remove(mail.reference()));
+            compactIfNeeded();
+        }
+        due.forEach(mail -> dispatcher.execute(() -> dispatch(mail)));
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Les envois non commencés restent au journal et partiront au redémarrage
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        dispatcher.shutdown();
+        if (!dispatcher.awaitTermination(30, TimeUnit.SECONDS)) {
+            dispatcher.shutdownNow();
+        }
+        synchronized (this) {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
+    private void dispatch(ScheduledMail mail) {
+        try {
+            mailService.sendScheduledMail(mail.request(), mail.reference());
+            log.info("Envoi programmé {} effectué", mail.reference());
+            complete(mail);
+        } catch (ServiceOverloadedException | MailException e) {
+            if (mail.attempts() + 1 >= maxAttempts) {
+                log.error("Envoi programmé {} abandonné après {} tentative(s): {}",
+                        mail.reference(), mail.attempts() + 1, e.getMessage());
+                complete(mail);
+            } else {
+                log.warn("Échec de l'envoi programmé {} (tentative {}/{}), nouvel essai dans {} s: {}",
+                        mail.reference(), mail.attempts() + 1, maxAttempts, retryDelayMs / 1000, e.getMessage());
+                retry(new ScheduledMail(mail.reference(), System.currentTimeMillis() + retryDelayMs,
+                        mail.attempts() + 1, mail.request(), mail.bytes()));
+            }
+        } catch (RuntimeException e) {
+            log.error("Envoi programmé {} abandonné: {}", mail.reference(), e.getMessage(), e);
+            complete(mail);
+        }
+    }
+
+    private synchronized void complete(ScheduledMail mail) {
+        removePending(mail.reference());
+        append(new JournalRecord(REMOVE, mail.reference()));
+    }
+
+    private synchronized void retry(ScheduledMail mail) {
+        append(new JournalRecord(ADD, mail));
+        putPending(mail);
+        track(mail);
+    }
+
+    private void putPending(ScheduledMail mail) {
+        ScheduledMail previous = pending.put(mail.reference(), mail);
+        pendingBytes += mail.bytes() - (previous != null ? previous.bytes() : 0);
+    }
+
+    private void removePending(String reference) {
+        ScheduledMail removed = pending.remove(reference);
+        if (removed != null) {
+            pendingBytes -= removed.bytes();
+        }
+    }
+
+    private void track(ScheduledMail mail) {
+        timers.put(mail.reference(), wheel.schedule(mail.sendAt(), mail));
+    }
+
+    private synchronized void checkCapacity(long bytes) {
+        if (pending.size() >= maxPending || pendingBytes + bytes > maxPendingBytes) {
+            throw new ServiceOverloadedException("SCHEDULE_FULL",
+                    "Trop d'envois programmés en attente, réessayez plus tard", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    /**
+     * Mémoire occupée par une requête en attente, dominée par les pièces jointes (Base64)
+     */
+    private static long approximateBytes(MailRequestDto request) {
+        long bytes = 1024 + length(request.getMessage());
+        if (request.getAttachments() != null) {
+            for (FileAttachmentDto attachment : request.getAttachments()) {
+                bytes += length(attachment.getContent());
+            }
+        }
+        return bytes;
+    }
+
+    private static long length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private String newReference(String mailType) {
+        for (int attempt = 0; attempt < MAX_REFERENCE_ATTEMPTS; attempt++) {
+            String reference = mailService.generateReference(mailType, REFERENCE_RANDOM_DIGITS);
+            if (!pending.containsKey(reference)) {
+                return reference;
+            }
+        }
+        throw new ServiceOverloadedException("SCHEDULE_FULL",
+                "Trop d'envois programmés pour ce jour, réessayez plus tard", RETRY_AFTER_SECONDS);
+    }
+
+    // ----------------------------------------------------------------- journal
+
+    private void replayJournal() throws IOException {
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JournalRecord record = objectMapper.readValue(line, JournalRecord.class);
+                    if (ADD.equals(record.op())) {
+                        putPending(record.toMail());
+                    } else {
+                        removePending(record.reference());
+                    }
+                } catch (JsonProcessingException e) {
+                    // Typiquement la dernière ligne, tronquée par un arrêt brutal
+                    log.warn("Ligne {} du journal des envois programmés ignorée: {}",
+                            lineNumber, e.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    private void append(JournalRecord record) {
+        try {
+            journal.write(objectMapper.writeValueAsString(record));
+            journal.newLine();
+            journal.flush();
+            journalRecords++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du journal des envois programmés impossible", e);
+        }
+    }
+
+    /**
+     * Réécrit le journal quand les retraits y dominent : coût amorti constant par envoi
+     */
+    private void compactIfNeeded() {
+        if (journalRecords > 2L * pending.size() + 1000) {
+            try {
+                rewriteJournal();
+            } catch (IOException e) {
+                log.warn("Compaction du journal des envois programmés impossible: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Journal réduit aux envois non terminés, remplacé atomiquement
+     */
+    private void rewriteJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        try {
+            Path temp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            Files.createFile(temp);
+            restrictToOwner(temp, "rw-------");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (ScheduledMail mail : pending.values()) {
+                    writer.write(objectMapper.writeValueAsString(new JournalRecord(ADD, mail)));
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(temp, journalPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            journalRecords = pending.size();
+        } finally {
+            journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Droits POSIX restreints au compte du service (sans effet hors POSIX)
+     */
+    private static void restrictToOwner(Path path, String permissions) throws IOException {
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(permissions));
+        }
+    }
+
+    private record ScheduledMail(String reference, long sendAt, int attempts, MailRequestDto request, long bytes) {
+    }
+
+    /**
+     * Ligne du journal : ADD (envoi complet) ou REMOVE (référence seule)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record JournalRecord(String op, String reference, Long sendAt, Integer attempts, MailRequestDto request) {
+
+        JournalRecord(String op, ScheduledMail mail) {
+            this(op, mail.reference(), mail.sendAt(), mail.attempts(), mail.request());
+        }
+
+        JournalRecord(String op, String reference) {
+            this(op, reference, null, null, null);
+        }
+
+        ScheduledMail toMail() {
+            return new ScheduledMail(reference, sendAt, attempts, request, approximateBytes(request));
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordonnanceur des envois SMTP : une file par (application, type de mail), servies par
+ * un pool partagé de workers.
+ * - priorité (sendPriority) : les files de priorité plus élevée sont servies d'abord
+ * - à priorité égale, deficit round robin : chaque file reçoit un débit (en octets)
+ *   proportionnel à son poids (sendWeight)
+ * - anti-famine : un message qui attend depuis plus de starvation-ms passe devant tout le monde
+ * - un tenant n'occupe pas plus de workers que son pool de connexions (max-concurrent-sends) :
+ *   ses files sont sautées tant qu'il est saturé, les workers servent les autres tenants au lieu
+ *   d'attendre une connexion libre
+ * L'appelant attend la fin de son envoi ; seule l'attente dans la file est arbitrée.
+ * Le MDC de l'appelant (identifiant de corrélation) est repris par le worker pendant l'envoi.
+ */
+@Service
+@Slf4j
+public class SendScheduler {
+
+    private final int workerCount;
+    private final long quantumBytes;
+    private final long starvationNanos;
+    private final int maxQueueDepth;
+    private final long retryAfterSeconds;
+    private final MeterRegistry meterRegistry;
+    private final TenantMailSenderRegistry tenantRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private final Map<String, ClassQueue> queues = new HashMap<>();
+    private final Map<AppCode, TenantSlots> tenants = new HashMap<>();
+
+    // Priorité (décroissante) -> files non vides, dans l'ordre du tour
+    private final NavigableMap<Integer, Deque<ClassQueue>> active = new TreeMap<>(Comparator.reverseOrder());
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public SendScheduler(
+            @Value("${app.mail.scheduler.workers:8}") int workerCount,
+            @Value("${app.mail.scheduler.quantum-kb:64}") long quantumKb,
+            @Value("${app.mail.scheduler.starvation-ms:10000}") long starvationMs,
+            @Value("${app.mail.scheduler.max-queue-depth:500}") int maxQueueDepth,
+            @Value("${app.mail.scheduler.retry-after-seconds:5}") long retryAfterSeconds,
+            MeterRegistry meterRegistry,
+            TenantMailSenderRegistry tenantRegistry
+    ) {
+        this.workerCount = workerCount;
+        this.quantumBytes = quantumKb * 1024;
+        this.starvationNanos = TimeUnit.MILLISECONDS.toNanos(starvationMs);
+        this.maxQueueDepth = maxQueueDepth;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.meterRegistry = meterRegistry;
+        this.tenantRegistry = tenantRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "mail-sender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Ordonnanceur d'envoi démarré avec {} worker(s)", workerCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Met l'envoi en file selon la configuration et attend qu'il soit exécuté
+     * @param costBytes taille approximative du message, décomptée du crédit de sa file
+     */
+    public void execute(MailConfiguration config, long costBytes, Runnable send) {
+        Task task;
+
+        lock.lock();
+        try {
+            ClassQueue queue = queues.computeIfAbsent(
+                    config.getAppCode() + "_" + config.getMailType(), key -> newQueue(key, config));
+            if (queue.tasks.size() >= maxQueueDepth) {
+                log.warn("File d'envoi {} pleine ({} messages)", queue.key, maxQueueDepth);
+                throw new ServiceOverloadedException(
+                        "SEND_QUEUE_FULL",
+                        "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                        retryAfterSeconds
+                );
+            }
+            task = new Task(send, Math.max(1, costBytes), System.nanoTime(), queue.tenant);
+            // Poids et priorité relus à chaque envoi (configuration modifiable)
+            queue.weight = Math.max(1, config.getSendWeight());
+            if (queue.tasks.isEmpty()) {
+                queue.priority = config.getSendPriority();
+                queue.deficit = 0;
+                queue.visited = false;
+                active.computeIfAbsent(queue.priority, p -> new ArrayDeque<>()).addLast(queue);
+            }
+            queue.tasks.addLast(task);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            task.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new MailSendException("Erreur lors de l'envoi", e.getCause());
+        }
+    }
+
+    /**
+     * Profondeur et attente moyenne de chaque file (clé APP_TYPE)
+     */
+    public Map<String, QueueStats> getStats() {
+        lock.lock();
+        try {
+            Map<String, QueueStats> stats = new LinkedHashMap<>();
+            queues.forEach((key, queue) -> stats.put(key, new QueueStats(
+                    queue.tasks.size(), queue.dispatched, queue.waitTimer.mean(TimeUnit.MILLISECONDS))));
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record QueueStats(int depth, long dispatched, double meanWaitMs) {
+    }
+
+    private ClassQueue newQueue(String key, MailConfiguration config) {
+        ClassQueue queue = new ClassQueue(key, tenants.computeIfAbsent(config.getAppCode(),
+                appCode -> new TenantSlots(Math.max(1, tenantRegistry.maxConcurrentSends(appCode)))));
+        String app = config.getAppCode().code();
+        String type = config.getMailType().name();
+        Gauge.builder("mail.scheduler.queue.depth", queue, q -> q.tasks.size())
+                .description("Messages en attente d'envoi")
+                .tags("app", app, "type", type)
+                .register(meterRegistry);
+        queue.waitTimer = Timer.builder("mail.scheduler.queue.wait")
+                .description("Attente dans la file avant l'envoi SMTP")
+                .tags("app", app, "type", type)
+                .register(meterRegistry);
+        return queue;
+    }
+
+    private void runWorker() {
+        while (running) {
+            Task task;
+            lock.lock();
+            try {
+                while ((task = next()) == null) {
+                    available.await();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (task.mdc != null) {
+                MDC.setContextMap(task.mdc);
+            }
+            try {
+                task.send.run();
+                task.done.complete(null);
+            } catch (Throwable e) {
+                task.done.completeExceptionally(e);
+            } finally {
+                MDC.clear();
+                lock.lock();
+                try {
+                    task.tenant.inFlight--;
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Choisit le prochain envoi (appelé sous verrou), null si toutes les files sont vides
+     * ou si tous leurs tenants sont saturés
+     */
+    private Task next() {
+        if (active.isEmpty()) {
+            return null;
+        }
+
+        ClassQueue starving = oldestStarving();
+        if (starving != null) {
+            return take(starving, false);
+        }
+
+        // Priorité la plus haute dont au moins un tenant a une connexion libre
+        for (Deque<ClassQueue> round : active.values()) {
+            Task task = nextInRound(round);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private Task nextInRound(Deque<ClassQueue> round) {
+        if (round.stream().noneMatch(ClassQueue::canSend)) {
+            return null;
+        }
+        while (true) {
+            ClassQueue queue = round.peekFirst();
+            // Tenant saturé : la file garde son crédit et sa place dans le tour
+            if (queue.canSend()) {
+                if (!queue.visited) {
+                    // Début du tour de cette file : elle reçoit son crédit
+                    queue.deficit += quantumBytes * queue.weight;
+                    queue.visited = true;
+                }
+                if (queue.tasks.peekFirst().cost <= queue.deficit) {
+                    return take(queue, true);
+                }
+                // Crédit insuffisant : au tour de la file suivante
+                queue.visited = false;
+            }
+            round.addLast(round.pollFirst());
+        }
+    }
+
+    private ClassQueue oldestStarving() {
+        long now = System.nanoTime();
+        ClassQueue oldest = null;
+        for (Deque<ClassQueue> round : active.values()) {
+            for (ClassQueue queue : round) {
+                long waited = now - queue.tasks.peekFirst().enqueuedNanos;
+                if (queue.canSend() && waited > starvationNanos
+                        && (oldest == null || queue.tasks.peekFirst().enqueuedNanos < oldest.tasks.peekFirst().enqueuedNanos)) {
+                    oldest = queue;
+                }
+            }
+        }
+        return oldest;
+    }
+
+    private Task take(ClassQueue queue, boolean chargeDeficit) {
+        Task task = queue.tasks.pollFirst();
+        if (chargeDeficit) {
+            queue.deficit -= task.cost;
+        }
+        queue.dispatched++;
+        queue.tenant.inFlight++;
+        queue.waitTimer.record(System.nanoTime() - task.enqueuedNanos, TimeUnit.NANOSECONDS);
+
+        if (queue.tasks.isEmpty()) {
+            Deque<ClassQueue> round = active.get(queue.priority);
+            round.remove(queue);
+            if (round.isEmpty()) {
+                active.remove(queue.priority);
+            }
+            queue.deficit = 0;
+            queue.visited = false;
+        }
+        return task;
+    }
+
+    /**
+     * Envois en cours d'un tenant, toutes files confondues (protégé par le verrou)
+     */
+    private static class TenantSlots {
+        private final int maxInFlight;
+        private int inFlight;
+
+        TenantSlots(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    private static class ClassQueue {
+        private final String key;
+        private final TenantSlots tenant;
+        private final Deque<Task> tasks = new ArrayDeque<>();
+        private int weight = 1;
+        private int priority;
+        private long deficit;
+        private boolean visited;
+        private long dispatched;
+        private Timer waitTimer;
+
+        ClassQueue(String key, TenantSlots tenant) {
+            this.key = key;
+            this.tenant = tenant;
+        }
+
+        boolean canSend() {
+            return tenant.inFlight < tenant.maxInFlight;
+        }
+    }
+
+    /**
+     * Créée dans le thread de l'appelant, dont le MDC est copié
+     */
+    private record Task(Runnable send, long cost, long enqueuedNanos, TenantSlots tenant,
+                        Map<String, String> mdc, CompletableFuture<Void> done) {
+        Task(Runnable send, long cost, long enqueuedNanos, TenantSlots tenant) {
+            this(send, cost, enqueuedNanos, tenant, MDC.getCopyOfContextMap(), new CompletableFuture<>());
+        }
+    }
+}
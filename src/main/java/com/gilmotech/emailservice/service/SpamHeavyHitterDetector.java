@@ -0,0 +1,105 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.exception.MailSendingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Détection des vagues de spam qui changent d'IP : le même message, la même adresse
+ * ou le même domaine d'expéditeur revient des centaines de fois.
+ * Les occurrences sont comptées dans un count-min sketch (mémoire constante quel que soit
+ * le nombre de clés distinctes), divisé par deux à chaque période de décroissance.
+ */
+@Component
+@Slf4j
+public class SpamHeavyHitterDetector {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final boolean enabled;
+    private final long contentThreshold;
+    private final long emailThreshold;
+    private final long domainThreshold;
+    private final Set<String> ignoredDomains;
+    private final CountMinSketch sketch;
+
+    public SpamHeavyHitterDetector(
+            @Value("${app.mail.heavy-hitters.enabled:true}") boolean enabled,
+            @Value("${app.mail.heavy-hitters.depth:4}") int depth,
+            @Value("${app.mail.heavy-hitters.width:16384}") int width,
+            @Value("${app.mail.heavy-hitters.content-threshold:50}") long contentThreshold,
+            @Value("${app.mail.heavy-hitters.email-threshold:30}") long emailThreshold,
+            @Value("${app.mail.heavy-hitters.domain-threshold:300}") long domainThreshold,
+            @Value("${app.mail.heavy-hitters.ignored-domains:gmail.com,hotmail.com,outlook.com,yahoo.com,icloud.com,live.com,skynet.be,telenet.be}")
+            Set<String> ignoredDomains
+    ) {
+        this.enabled = enabled;
+        this.contentThreshold = contentThreshold;
+        this.emailThreshold = emailThreshold;
+        this.domainThreshold = domainThreshold;
+        this.ignoredDomains = ignoredDomains.stream()
+                .map(domain -> domain.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.sketch = new CountMinSketch(depth, width);
+    }
+
+    /**
+     * Compte la requête et la rejette si son contenu, son expéditeur ou son domaine dépasse son seuil
+     */
+    public void check(MailRequestDto request) {
+        if (!enabled) {
+            return;
+        }
+
+        String content = normalize(request.getMessage());
+        if (!content.isEmpty()) {
+            reject(sketch.addAndEstimate(CountMinSketch.hash("content:" + content)), contentThreshold,
+                    "contenu");
+        }
+
+        if (request.getEmail() != null && !request.getEmail().isBlank()) {
+            String email = request.getEmail().trim().toLowerCase(Locale.ROOT);
+            reject(sketch.addAndEstimate(CountMinSketch.hash("email:" + email)), emailThreshold,
+                    "adresse " + email);
+
+            String domain = email.substring(email.indexOf('@') + 1);
+            if (!ignoredDomains.contains(domain)) {
+                reject(sketch.addAndEstimate(CountMinSketch.hash("domain:" + domain)), domainThreshold,
+                        "domaine " + domain);
+            }
+        }
+    }
+
+    /**
+     * Décroissance périodique : un pic ancien finit par retomber sous le seuil
+     */
+    @Scheduled(fixedDelayString = "${app.mail.heavy-hitters.decay-interval-ms:600000}")
+    public void decay() {
+        sketch.decay();
+    }
+
+    private void reject(long estimate, long threshold, String key) {
+        if (estimate > threshold) {
+            log.warn("Vague de spam détectée sur {} ({} occurrences estimées, seuil {})", key, estimate, threshold);
+            throw new MailSendingException("SPAM_FLOOD_DETECTED", "Requête invalide");
+        }
+    }
+
+    /**
+     * Message normalisé : casse, ponctuation et espaces ignorés
+     */
+    static String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        return NON_ALPHANUMERIC.matcher(message.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
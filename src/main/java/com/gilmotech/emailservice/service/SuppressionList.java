@@ -0,0 +1,193 @@
+package com.gilmotech.emailservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Adresses en échec définitif (hard bounce) : les confirmations ne leur sont plus envoyées.
+ * La liste exacte est sur disque, répartie en 256 fichiers selon le hash de l'adresse ;
+ * un filtre de Bloom en mémoire écarte sans lecture la quasi-totalité des adresses saines,
+ * seul un résultat positif est vérifié dans le fichier concerné.
+ * Le répertoire doit être sur un volume persistant (SUPPRESSION_DIR) : dans le répertoire
+ * temporaire, les bounces sont perdus au redémarrage et les confirmations repartent vers ces adresses.
+ */
+@Service
+@Slf4j
+public class SuppressionList {
+
+    private static final int BUCKET_BITS = 8;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long expectedAddresses;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private long capacity;
+    private int size;
+
+    public SuppressionList(
+            @Value("${app.mail.suppression.enabled:true}") boolean enabled,
+            @Value("${app.mail.suppression.directory:${java.io.tmpdir}/email-service/suppressions}") String directory,
+            @Value("${app.mail.suppression.expected-addresses:100000}") long expectedAddresses,
+            @Value("${app.mail.suppression.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory).toAbsolutePath();
+        this.expectedAddresses = expectedAddresses;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (directory.startsWith(Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath())) {
+            log.warn("Liste de suppression dans le répertoire temporaire ({}) : les adresses en échec "
+                    + "définitif peuvent être perdues au redémarrage, définir SUPPRESSION_DIR", directory);
+        }
+        Files.createDirectories(directory);
+        rebuildFilter();
+        log.info("Liste de suppression : {} adresse(s) ({} Ko de filtre de Bloom, {})",
+                size, filter.getBitCount() / 8 / 1024, directory);
+    }
+
+    /**
+     * L'adresse a-t-elle déjà été refusée définitivement ? (en cas d'erreur disque : non)
+     */
+    public boolean isSuppressed(String email) {
+        if (!enabled || email == null) {
+            return false;
+        }
+        String address = normalize(email);
+        long hash = CountMinSketch.hash(address);
+        if (!filter.mightContain(hash)) {
+            return false;
+        }
+        try {
+            return readBucket(hash).contains(address);
+        } catch (IOException e) {
+            log.warn("Lecture de la liste de suppression impossible, {} considérée valide: {}",
+                    address, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return false si l'adresse y figurait déjà
+     */
+    public synchronized boolean add(String email, String reason) {
+        if (!enabled) {
+            return false;
+        }
+        String address = normalize(email);
+        long hash = CountMinSketch.hash(address);
+        try {
+            if (readBucket(hash).contains(address)) {
+                return false;
+            }
+            Files.writeString(bucketPath(hash), address + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ajouter " + address + " à la liste de suppression", e);
+        }
+        filter.put(hash);
+        size++;
+        log.info("Adresse {} ajoutée à la liste de suppression ({})", address, reason);
+
+        // Au-delà de la capacité prévue, le taux de faux positifs grimpe : filtre reconstruit, deux fois plus grand
+        if (size > capacity) {
+            try {
+                rebuildFilter();
+            } catch (IOException e) {
+                log.warn("Reconstruction du filtre de Bloom impossible: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retire une adresse corrigée par le client. Le filtre de Bloom n'est pas modifié :
+     * la vérification exacte sur disque suffit à la laisser passer.
+     * @return false si l'adresse n'y figurait pas
+     */
+    public synchronized boolean remove(String email) {
+        if (!enabled) {
+            return false;
+        }
+        String address = normalize(email);
+        long hash = CountMinSketch.hash(address);
+        try {
+            Set<String> bucket = readBucket(hash);
+            if (!bucket.remove(address)) {
+                return false;
+            }
+            Path path = bucketPath(hash);
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            Files.write(temp, bucket, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de retirer " + address + " de la liste de suppression", e);
+        }
+        size--;
+        log.info("Adresse {} retirée de la liste de suppression", address);
+        return true;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    private void rebuildFilter() throws IOException {
+        Set<String> addresses = new LinkedHashSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".txt")).toList()) {
+                addresses.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+        }
+        addresses.remove("");
+
+        long newCapacity = Math.max(expectedAddresses, 2L * addresses.size());
+        BloomFilter rebuilt = new BloomFilter(newCapacity, falsePositiveRate);
+        addresses.forEach(address -> rebuilt.put(CountMinSketch.hash(address)));
+        filter = rebuilt;
+        capacity = newCapacity;
+        size = addresses.size();
+    }
+
+    private Set<String> readBucket(long hash) throws IOException {
+        Path path = bucketPath(hash);
+        if (!Files.exists(path)) {
+            return new LinkedHashSet<>();
+        }
+        return new LinkedHashSet<>(Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    private Path bucketPath(long hash) {
+        return directory.resolve(String.format("%02x.txt", hash >>> (Long.SIZE - BUCKET_BITS)));
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,307 @@
+package com.gilmotech.emailservice.service;
+
+import org.unbescape.html.HtmlEscape;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plan de rendu d'un template : morceaux statiques déjà sérialisés (attributs th:* retirés)
+ * et emplacements dynamiques (texte, attribut, condition, boucle).
+ * Le rendu n'évalue que les emplacements et concatène le tout.
+ * Dès que le résultat pourrait s'écarter de Thymeleaf (clé absente, null non protégé,
+ * type non géré), Fallback est levée et le template est rendu par Thymeleaf.
+ */
+final class TemplatePlan {
+
+    private static final Map<GetterKey, Optional<Method>> GETTERS = new ConcurrentHashMap<>();
+
+    private final Segment[] segments;
+
+    TemplatePlan(Segment[] segments) {
+        this.segments = segments;
+    }
+
+    void render(Map<String, Object> variables, StringBuilder out) {
+        write(segments, out, new Scope(variables));
+    }
+
+    private static void write(Segment[] segments, StringBuilder out, Scope scope) {
+        for (Segment segment : segments) {
+            segment.write(out, scope);
+        }
+    }
+
+    /**
+     * Levée quand Thymeleaf doit reprendre le rendu
+     */
+    static final class Fallback extends RuntimeException {
+        Fallback(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    // ---------------------------------------------------------------- segments
+
+    interface Segment {
+        void write(StringBuilder out, Scope scope);
+    }
+
+    record StaticChunk(String text) implements Segment {
+        @Override
+        public void write(StringBuilder out, Scope scope) {
+            out.append(text);
+        }
+    }
+
+    /**
+     * th:text : contenu de l'élément, échappé (null = vide)
+     */
+    record TextSlot(Expression expression) implements Segment {
+        @Override
+        public void write(StringBuilder out, Scope scope) {
+            Object value = expression.evaluate(scope);
+            if (value != null) {
+                out.append(HtmlEscape.escapeHtml4Xml(toText(value)));
+            }
+        }
+    }
+
+    /**
+     * th:href / th:src : prefix contient l'espace et le nom de l'attribut
+     */
+    record AttributeSlot(String prefix, Expression expression) implements Segment {
+        @Override
+        public void write(StringBuilder out, Scope scope) {
+            if (!(expression.evaluate(scope) instanceof String value) || value.isEmpty()) {
+                throw new Fallback("valeur d'attribut vide ou non textuelle");
+            }
+            out.append(prefix).append("=\"").append(HtmlEscape.escapeHtml4Xml(value)).append('"');
+        }
+    }
+
+    /**
+     * th:if / th:unless
+     */
+    record Conditional(Expression condition, boolean negate, Segment[] body) implements Segment {
+        @Override
+        public void write(StringBuilder out, Scope scope) {
+            if (isTrue(condition.evaluate(scope)) != negate) {
+                TemplatePlan.write(body, out, scope);
+            }
+        }
+    }
+
+    /**
+     * th:each : l'élément entier est répété, la variable d'itération masque les autres.
+     * Comme Thymeleaf, les itérations suivantes reprennent l'indentation qui précède l'élément.
+     */
+    record Loop(String variable, Expression iterable, String indent, Segment[] body) implements Segment {
+        @Override
+        public void write(StringBuilder out, Scope scope) {
+            Object value = iterable.evaluate(scope);
+            Iterable<?> items;
+            if (value instanceof Iterable<?> iterableValue) {
+                items = iterableValue;
+            } else if (value instanceof Object[] array) {
+                items = Arrays.asList(array);
+            } else {
+                throw new Fallback("th:each sur une valeur non itérable");
+            }
+            boolean first = true;
+            for (Object item : items) {
+                if (!first) {
+                    out.append(indent);
+                }
+                TemplatePlan.write(body, out, scope.with(variable, item));
+                first = false;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------- expressions
+
+    interface Expression {
+        Object evaluate(Scope scope);
+    }
+
+    record Literal(String value) implements Expression {
+        @Override
+        public Object evaluate(Scope scope) {
+            return value;
+        }
+    }
+
+    /**
+     * Variable du contexte ou d'itération (absente = null, comme dans Thymeleaf)
+     */
+    record Variable(String name) implements Expression {
+        @Override
+        public Object evaluate(Scope scope) {
+            return scope.lookup(name);
+        }
+    }
+
+    /**
+     * a.b / a?.b : clé de Map (obligatoirement présente) ou getter
+     */
+    record Property(Expression target, String name, boolean safe) implements Expression {
+        @Override
+        public Object evaluate(Scope scope) {
+            Object value = target.evaluate(scope);
+            if (value == null) {
+                if (safe) {
+                    return null;
+                }
+                throw new Fallback("propriété " + name + " sur null");
+            }
+            if (value instanceof Map<?, ?> map) {
+                if (!map.containsKey(name)) {
+                    throw new Fallback("clé absente: " + name);
+                }
+                return map.get(name);
+            }
+            Method getter = GETTERS.computeIfAbsent(new GetterKey(value.getClass(), name), TemplatePlan::findGetter)
+                    .orElseThrow(() -> new Fallback("propriété inconnue: " + name));
+            try {
+                return getter.invoke(value);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new Fallback("lecture de " + name + " impossible");
+            }
+        }
+    }
+
+    /**
+     * a.get('clé') / a?.get('clé') sur une Map (clé absente = null)
+     */
+    record MapGet(Expression target, String key, boolean safe) implements Expression {
+        @Override
+        public Object evaluate(Scope scope) {
+            Object value = target.evaluate(scope);
+            if (value == null && safe) {
+                return null;
+            }
+            if (!(value instanceof Map<?, ?> map)) {
+                throw new Fallback("get('" + key + "') hors Map");
+            }
+            return map.get(key);
+        }
+    }
+
+    /**
+     * a == 'texte' / a != 'texte'
+     */
+    record Equals(Expression left, String literal, boolean negate) implements Expression {
+        @Override
+        public Object evaluate(Scope scope) {
+            Object value = left.evaluate(scope);
+            if (value != null && !(value instanceof String)) {
+                throw new Fallback("comparaison d'une valeur non textuelle");
+            }
+            return literal.equals(value) != negate;
+        }
+    }
+
+    /**
+     * 'texte' + ${a} + ... : uniquement entre textes non null
+     */
+    record Concat(Expression[] parts) implements Expression {
+        @Override
+        public Object evaluate(Scope scope) {
+            StringBuilder result = new StringBuilder();
+            for (Expression part : parts) {
+                if (!(part.evaluate(scope) instanceof String text)) {
+                    throw new Fallback("concaténation d'une valeur non textuelle");
+                }
+                result.append(text);
+            }
+            return result.toString();
+        }
+    }
+
+    // ----------------------------------------------------------------- runtime
+
+    /**
+     * Variables visibles : celles de l'appelant, masquées par les variables d'itération
+     */
+    static final class Scope {
+
+        private final Map<String, Object> variables;
+        private final Scope parent;
+        private final String name;
+        private final Object value;
+
+        Scope(Map<String, Object> variables) {
+            this(variables, null, null, null);
+        }
+
+        private Scope(Map<String, Object> variables, Scope parent, String name, Object value) {
+            this.variables = variables;
+            this.parent = parent;
+            this.name = name;
+            this.value = value;
+        }
+
+        Scope with(String name, Object value) {
+            return new Scope(variables, this, name, value);
+        }
+
+        Object lookup(String variable) {
+            for (Scope scope = this; scope.parent != null; scope = scope.parent) {
+                if (scope.name.equals(variable)) {
+                    return scope.value;
+                }
+            }
+            return variables.get(variable);
+        }
+    }
+
+    /**
+     * Vérité d'une condition, selon les règles de Thymeleaf
+     */
+    static boolean isTrue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue() != 0;
+        }
+        if (value instanceof String text) {
+            return !(text.equalsIgnoreCase("false") || text.equalsIgnoreCase("off") || text.equalsIgnoreCase("no"));
+        }
+        if (value instanceof Number || value instanceof Character) {
+            throw new Fallback("condition sur " + value.getClass().getSimpleName());
+        }
+        return true;
+    }
+
+    private static String toText(Object value) {
+        if (value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+            return value.toString();
+        }
+        throw new Fallback("affichage de " + value.getClass().getSimpleName());
+    }
+
+    private static Optional<Method> findGetter(GetterKey key) {
+        String suffix = Character.toUpperCase(key.name().charAt(0)) + key.name().substring(1);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                Method method = key.type().getMethod(prefix + suffix);
+                method.setAccessible(true);
+                return Optional.of(method);
+            } catch (NoSuchMethodException | RuntimeException e) {
+                // préfixe suivant
+            }
+        }
+        return Optional.empty();
+    }
+
+    private record GetterKey(Class<?> type, String name) {
+    }
+}
@@ -0,0 +1,430 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.service.TemplatePlan.Segment;
+import org.unbescape.html.HtmlEscape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compile la source d'un template HTML (telle que Thymeleaf la lit) en TemplatePlan.
+ * Sous-ensemble pris en charge, celui des templates email :
+ * - attributs th:text, th:if, th:unless, th:each, th:href, th:src
+ * - expressions ${a.b}, ${a?.b}, ${a?.get('clé')}, ${a == 'texte'}, 'texte' + ${a}
+ * Tout le reste (autres attributs th:*, inlining [[...]], commentaires parser-level,
+ * objets utilitaires #..., balises mal fermées) lève UnsupportedTemplateException :
+ * le template reste rendu par Thymeleaf.
+ */
+final class TemplatePlanCompiler {
+
+    private static final Set<String> VOID_ELEMENTS = Set.of(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source",
+            "track", "wbr");
+    private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("script", "style");
+    private static final Set<String> SUPPORTED_ATTRIBUTES = Set.of(
+            "th:text", "th:if", "th:unless", "th:each", "th:href", "th:src");
+    // Éléments de bloc dont Thymeleaf répète l'indentation entre deux itérations de th:each
+    private static final Set<String> ITERATION_WHITESPACE_ELEMENTS = Set.of(
+            "address", "article", "aside", "audio", "blockquote", "canvas", "dd", "div", "dl", "dt", "fieldset",
+            "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hgroup", "hr",
+            "li", "main", "nav", "noscript", "ol", "option", "output", "p", "pre", "section", "table", "tbody",
+            "td", "tfoot", "th", "tr", "ul", "video");
+    private static final Set<String> RESERVED_VARIABLES = Set.of(
+            "param", "session", "application", "request", "response", "execInfo", "true", "false", "null");
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern PATH_STEP = Pattern.compile(
+            "(\\?)?\\.(?:get\\('([^'\\\\]*)'\\)|([A-Za-z_][A-Za-z0-9_]*))");
+    private static final Pattern LITERAL = Pattern.compile("'([^'\\\\]*)'");
+    private static final Pattern EACH = Pattern.compile("\\s*([A-Za-z_][A-Za-z0-9_]*)\\s*:\\s*(.+)", Pattern.DOTALL);
+
+    private final String source;
+    private int position;
+
+    private TemplatePlanCompiler(String source) {
+        this.source = source;
+    }
+
+    static TemplatePlan compile(String source) throws UnsupportedTemplateException {
+        if (source.contains("[[") || source.contains("[(")) {
+            throw new UnsupportedTemplateException("inlining textuel");
+        }
+        TemplatePlanCompiler compiler = new TemplatePlanCompiler(source);
+        List<Node> nodes = compiler.parseChildren(null);
+        PlanBuilder builder = new PlanBuilder();
+        compileNodes(nodes, builder);
+        return new TemplatePlan(builder.build());
+    }
+
+    static final class UnsupportedTemplateException extends Exception {
+        UnsupportedTemplateException(String message) {
+            super(message);
+        }
+    }
+
+    // ------------------------------------------------------------------ parser
+
+    private sealed interface Node permits Text, Element {
+    }
+
+    private record Text(String raw) implements Node {
+    }
+
+    private record Attribute(String leading, String name, String raw, String value) {
+    }
+
+    private record Element(String name, String startTag, List<Attribute> attributes, String tail,
+                           List<Node> children, String endTag) implements Node {
+    }
+
+    private List<Node> parseChildren(String parent) throws UnsupportedTemplateException {
+        List<Node> nodes = new ArrayList<>();
+        while (position < source.length()) {
+            int start = position;
+            if (source.startsWith("</", position)) {
+                int end = indexOrFail('>', position);
+                String name = source.substring(position + 2, end).trim();
+                if (parent == null || !name.equalsIgnoreCase(parent)) {
+                    throw new UnsupportedTemplateException("balise fermante inattendue: " + name);
+                }
+                return nodes;
+            } else if (source.startsWith("<!--", position)) {
+                int end = source.indexOf("-->", position);
+                if (end < 0 || source.startsWith("<!--/*", position)) {
+                    throw new UnsupportedTemplateException("commentaire non pris en charge");
+                }
+                position = end + 3;
+                nodes.add(new Text(source.substring(start, position)));
+            } else if (source.startsWith("<!", position) || source.startsWith("<?", position)) {
+                position = indexOrFail('>', position) + 1;
+                nodes.add(new Text(source.substring(start, position)));
+            } else if (source.charAt(position) == '<' && position + 1 < source.length()
+                    && Character.isLetter(source.charAt(position + 1))) {
+                nodes.add(parseElement());
+            } else {
+                int next = source.indexOf('<', position + 1);
+                position = next < 0 ? source.length() : next;
+                nodes.add(new Text(source.substring(start, position)));
+            }
+        }
+        if (parent != null) {
+            throw new UnsupportedTemplateException("balise non fermée: " + parent);
+        }
+        return nodes;
+    }
+
+    private Element parseElement() throws UnsupportedTemplateException {
+        int start = position;
+        position++;
+        String name = readWhile(c -> !Character.isWhitespace(c) && c != '/' && c != '>');
+        if (name.contains(":")) {
+            throw new UnsupportedTemplateException("élément " + name);
+        }
+
+        List<Attribute> attributes = new ArrayList<>();
+        String tail;
+        while (true) {
+            int wsStart = position;
+            readWhile(Character::isWhitespace);
+            String leading = source.substring(wsStart, position);
+            if (position >= source.length()) {
+                throw new UnsupportedTemplateException("balise non terminée: " + name);
+            }
+            if (source.charAt(position) == '>' || source.startsWith("/>", position)) {
+                position = indexOrFail('>', position) + 1;
+                tail = source.substring(wsStart, position);
+                break;
+            }
+            int attributeStart = position;
+            String attributeName = readWhile(c -> !Character.isWhitespace(c) && c != '=' && c != '>' && c != '/');
+            if (attributeName.isEmpty()) {
+                throw new UnsupportedTemplateException("attribut invalide dans " + name);
+            }
+            String value = null;
+            int afterName = position;
+            readWhile(Character::isWhitespace);
+            if (position < source.length() && source.charAt(position) == '=') {
+                position++;
+                readWhile(Character::isWhitespace);
+                char quote = position < source.length() ? source.charAt(position) : 0;
+                if (quote == '"' || quote == '\'') {
+                    int end = source.indexOf(quote, position + 1);
+                    if (end < 0) {
+                        throw new UnsupportedTemplateException("attribut non terminé dans " + name);
+                    }
+                    value = source.substring(position + 1, end);
+                    position = end + 1;
+                } else {
+                    value = readWhile(c -> !Character.isWhitespace(c) && c != '>');
+                }
+            } else {
+                position = afterName;
+            }
+            attributes.add(new Attribute(leading, attributeName,
+                    source.substring(attributeStart, position), value));
+        }
+
+        String startTag = source.substring(start, position);
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        if (tail.endsWith("/>") || VOID_ELEMENTS.contains(lowerName)) {
+            return new Element(name, startTag, attributes, tail, List.of(), "");
+        }
+
+        List<Node> children;
+        if (RAW_TEXT_ELEMENTS.contains(lowerName)) {
+            int end = source.toLowerCase(Locale.ROOT).indexOf("</" + lowerName, position);
+            if (end < 0) {
+                throw new UnsupportedTemplateException("balise non fermée: " + name);
+            }
+            children = List.of(new Text(source.substring(position, end)));
+            position = end;
+        } else {
+            children = parseChildren(name);
+        }
+        int endTagStart = position;
+        position = indexOrFail('>', position) + 1;
+        return new Element(name, startTag, attributes, tail, children, source.substring(endTagStart, position));
+    }
+
+    private String readWhile(java.util.function.IntPredicate accept) {
+        int start = position;
+        while (position < source.length() && accept.test(source.charAt(position))) {
+            position++;
+        }
+        return source.substring(start, position);
+    }
+
+    private int indexOrFail(char c, int from) throws UnsupportedTemplateException {
+        int index = source.indexOf(c, from);
+        if (index < 0) {
+            throw new UnsupportedTemplateException("balise non terminée");
+        }
+        return index;
+    }
+
+    // ---------------------------------------------------------------- compile
+
+    private static void compileNodes(List<Node> nodes, PlanBuilder builder) throws UnsupportedTemplateException {
+        for (int i = 0; i < nodes.size(); i++) {
+            compileNode(nodes.get(i), i > 0 ? nodes.get(i - 1) : null, builder);
+        }
+    }
+
+    private static void compileNode(Node node, Node previous, PlanBuilder builder)
+            throws UnsupportedTemplateException {
+        if (node instanceof Text text) {
+            builder.text(text.raw());
+            return;
+        }
+        Element element = (Element) node;
+        List<Attribute> thAttributes = element.attributes().stream()
+                .filter(attribute -> isThymeleafAttribute(attribute.name()))
+                .toList();
+        if (thAttributes.isEmpty()) {
+            builder.text(element.startTag());
+            compileNodes(element.children(), builder);
+            builder.text(element.endTag());
+            return;
+        }
+        if (RAW_TEXT_ELEMENTS.contains(element.name().toLowerCase(Locale.ROOT))) {
+            throw new UnsupportedTemplateException("th:* sur " + element.name());
+        }
+
+        String text = null;
+        String condition = null;
+        String negatedCondition = null;
+        String each = null;
+        for (Attribute attribute : thAttributes) {
+            if (attribute.name().equals("xmlns:th")) {
+                continue;
+            }
+            if (!SUPPORTED_ATTRIBUTES.contains(attribute.name()) || attribute.value() == null) {
+                throw new UnsupportedTemplateException("attribut " + attribute.name());
+            }
+            String value = HtmlEscape.unescapeHtml(attribute.value());
+            switch (attribute.name()) {
+                case "th:text" -> text = value;
+                case "th:if" -> condition = value;
+                case "th:unless" -> negatedCondition = value;
+                case "th:each" -> each = value;
+                default -> {
+                    String target = attribute.name().substring(3);
+                    if (element.attributes().stream().anyMatch(other -> other.name().equalsIgnoreCase(target))) {
+                        throw new UnsupportedTemplateException("attribut " + target + " en double");
+                    }
+                }
+            }
+        }
+
+        PlanBuilder inner = new PlanBuilder();
+        inner.text("<" + element.name());
+        for (Attribute attribute : element.attributes()) {
+            if (attribute.name().equals("th:href") || attribute.name().equals("th:src")) {
+                inner.add(new TemplatePlan.AttributeSlot(attribute.leading() + attribute.name().substring(3),
+                        parseExpression(HtmlEscape.unescapeHtml(attribute.value()))));
+            } else if (!isThymeleafAttribute(attribute.name())) {
+                inner.text(attribute.leading() + attribute.raw());
+            }
+        }
+        inner.text(element.tail());
+        if (text != null) {
+            if (element.endTag().isEmpty()) {
+                throw new UnsupportedTemplateException("th:text sur un élément vide");
+            }
+            inner.add(new TemplatePlan.TextSlot(parseExpression(text)));
+        } else {
+            compileNodes(element.children(), inner);
+        }
+        inner.text(element.endTag());
+
+        Segment[] segments = inner.build();
+        if (negatedCondition != null) {
+            segments = new Segment[]{new TemplatePlan.Conditional(parseExpression(negatedCondition), true, segments)};
+        }
+        if (condition != null) {
+            segments = new Segment[]{new TemplatePlan.Conditional(parseExpression(condition), false, segments)};
+        }
+        if (each != null) {
+            Matcher matcher = EACH.matcher(each);
+            if (!matcher.matches()) {
+                throw new UnsupportedTemplateException("th:each " + each);
+            }
+            String indent = previous instanceof Text whitespace && whitespace.raw().isBlank()
+                    && ITERATION_WHITESPACE_ELEMENTS.contains(element.name().toLowerCase(Locale.ROOT))
+                    ? whitespace.raw()
+                    : "";
+            segments = new Segment[]{
+                    new TemplatePlan.Loop(matcher.group(1), parseExpression(matcher.group(2)), indent, segments)};
+        }
+        for (Segment segment : segments) {
+            builder.add(segment);
+        }
+    }
+
+    /**
+     * Attributs retirés de la sortie par Thymeleaf (xmlns:th compris)
+     */
+    private static boolean isThymeleafAttribute(String name) {
+        return name.startsWith("th:") || name.startsWith("data-th-") || name.equals("xmlns:th");
+    }
+
+    // ------------------------------------------------------------- expressions
+
+    /**
+     * Expression standard : opérandes ${...} ou 'texte' reliés par +
+     */
+    static TemplatePlan.Expression parseExpression(String expression) throws UnsupportedTemplateException {
+        List<TemplatePlan.Expression> parts = new ArrayList<>();
+        for (String operand : splitConcatenation(expression)) {
+            String trimmed = operand.trim();
+            Matcher literal = LITERAL.matcher(trimmed);
+            if (literal.matches()) {
+                parts.add(new TemplatePlan.Literal(literal.group(1)));
+            } else if (trimmed.startsWith("${") && trimmed.endsWith("}")) {
+                parts.add(parseVariableExpression(trimmed.substring(2, trimmed.length() - 1).trim()));
+            } else {
+                throw new UnsupportedTemplateException("expression " + expression);
+            }
+        }
+        return parts.size() == 1 ? parts.get(0) : new TemplatePlan.Concat(parts.toArray(TemplatePlan.Expression[]::new));
+    }
+
+    private static List<String> splitConcatenation(String expression) throws UnsupportedTemplateException {
+        List<String> operands = new ArrayList<>();
+        boolean inLiteral = false;
+        int braces = 0;
+        int start = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            } else if (!inLiteral && c == '{') {
+                braces++;
+            } else if (!inLiteral && c == '}') {
+                braces--;
+            } else if (!inLiteral && braces == 0 && c == '+') {
+                operands.add(expression.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (inLiteral || braces != 0) {
+            throw new UnsupportedTemplateException("expression " + expression);
+        }
+        operands.add(expression.substring(start));
+        return operands;
+    }
+
+    /**
+     * Contenu d'un ${...} : chemin, éventuellement comparé à un texte
+     */
+    private static TemplatePlan.Expression parseVariableExpression(String expression)
+            throws UnsupportedTemplateException {
+        for (String operator : new String[]{"==", "!="}) {
+            int index = expression.indexOf(operator);
+            if (index >= 0) {
+                Matcher literal = LITERAL.matcher(expression.substring(index + 2).trim());
+                if (!literal.matches()) {
+                    throw new UnsupportedTemplateException("comparaison " + expression);
+                }
+                return new TemplatePlan.Equals(parsePath(expression.substring(0, index).trim()),
+                        literal.group(1), operator.equals("!="));
+            }
+        }
+        return parsePath(expression);
+    }
+
+    private static TemplatePlan.Expression parsePath(String path) throws UnsupportedTemplateException {
+        Matcher root = IDENTIFIER.matcher(path);
+        if (!root.lookingAt() || RESERVED_VARIABLES.contains(root.group()) || root.group().endsWith("Stat")) {
+            throw new UnsupportedTemplateException("expression ${" + path + "}");
+        }
+        TemplatePlan.Expression expression = new TemplatePlan.Variable(root.group());
+        Matcher step = PATH_STEP.matcher(path);
+        int position = root.end();
+        while (position < path.length()) {
+            if (!step.region(position, path.length()).lookingAt()) {
+                throw new UnsupportedTemplateException("expression ${" + path + "}");
+            }
+            boolean safe = step.group(1) != null;
+            expression = step.group(2) != null
+                    ? new TemplatePlan.MapGet(expression, step.group(2), safe)
+                    : new TemplatePlan.Property(expression, step.group(3), safe);
+            position = step.end();
+        }
+        return expression;
+    }
+
+    /**
+     * Regroupe les morceaux statiques consécutifs en un seul
+     */
+    private static final class PlanBuilder {
+
+        private final List<Segment> segments = new ArrayList<>();
+        private final StringBuilder pending = new StringBuilder();
+
+        void text(String text) {
+            pending.append(text);
+        }
+
+        void add(Segment segment) {
+            flush();
+            segments.add(segment);
+        }
+
+        Segment[] build() {
+            flush();
+            return segments.toArray(Segment[]::new);
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                segments.add(new TemplatePlan.StaticChunk(pending.toString()));
+                pending.setLength(0);
+            }
+        }
+    }
+}
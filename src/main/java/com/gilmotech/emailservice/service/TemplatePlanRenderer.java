@@ -0,0 +1,124 @@
+package com.gilmotech.emailservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.thymeleaf.templateresolver.TemplateResolution;
+import org.thymeleaf.templateresource.ITemplateResource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rendu rapide des templates email par plans précompilés (voir TemplatePlan).
+ * Chaque template est compilé une fois, depuis la source que Thymeleaf lirait (prétraitée) ;
+ * un template non compilable, ou un rendu qui rencontre un cas non géré, revient à Thymeleaf.
+ * Désactivable avec app.mail.templates.fragment-plans=false.
+ */
+@Service
+@Slf4j
+public class TemplatePlanRenderer {
+
+    // Au-delà, le buffer du thread n'est pas conservé
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private final TemplateEngine templateEngine;
+    private final boolean enabled;
+
+    private final Map<String, Optional<TemplatePlan>> plans = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(16 * 1024));
+
+    public TemplatePlanRenderer(
+            TemplateEngine templateEngine,
+            @Value("${app.mail.templates.fragment-plans:true}") boolean enabled
+    ) {
+        this.templateEngine = templateEngine;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return le HTML rendu, ou null si le template doit être rendu par Thymeleaf
+     */
+    public String render(String templatePath, Map<String, Object> variables) {
+        if (!enabled) {
+            return null;
+        }
+        Optional<TemplatePlan> plan = plans.computeIfAbsent(templatePath, this::compile);
+        if (plan.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder out = buffers.get();
+        out.setLength(0);
+        try {
+            plan.get().render(variables, out);
+            return out.toString();
+        } catch (TemplatePlan.Fallback e) {
+            log.debug("Template {} rendu par Thymeleaf: {}", templatePath, e.getMessage());
+            return null;
+        } finally {
+            if (out.capacity() > MAX_RETAINED_BUFFER) {
+                buffers.remove();
+            }
+        }
+    }
+
+    /**
+     * Le template a-t-il un plan de rendu ? (le compile au besoin)
+     */
+    public boolean isCompiled(String templatePath) {
+        return plans.computeIfAbsent(templatePath, this::compile).isPresent();
+    }
+
+    private Optional<TemplatePlan> compile(String templatePath) {
+        try {
+            String source = readSource(templatePath);
+            if (source == null) {
+                return Optional.empty();
+            }
+            TemplatePlan plan = TemplatePlanCompiler.compile(source);
+            log.info("Template {} compilé en plan de rendu", templatePath);
+            return Optional.of(plan);
+        } catch (TemplatePlanCompiler.UnsupportedTemplateException e) {
+            log.info("Template {} rendu par Thymeleaf ({})", templatePath, e.getMessage());
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Lecture du template {} impossible, rendu par Thymeleaf", templatePath, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Source du template telle que Thymeleaf la lit (premier resolver qui la trouve)
+     */
+    private String readSource(String templatePath) throws IOException {
+        IEngineConfiguration configuration = templateEngine.getConfiguration();
+        for (ITemplateResolver resolver : configuration.getTemplateResolvers()) {
+            TemplateResolution resolution = resolver.resolveTemplate(configuration, null, templatePath, null);
+            if (resolution == null) {
+                continue;
+            }
+            ITemplateResource resource = resolution.getTemplateResource();
+            if (!resource.exists()) {
+                continue;
+            }
+            if (resolution.getTemplateMode() != TemplateMode.HTML) {
+                return null;
+            }
+            try (Reader reader = resource.reader()) {
+                StringWriter source = new StringWriter();
+                reader.transferTo(source);
+                return source.toString();
+            }
+        }
+        return null;
+    }
+}
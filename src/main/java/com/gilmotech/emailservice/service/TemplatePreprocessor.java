@@ -0,0 +1,318 @@
+package com.gilmotech.emailservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.ParseSettings;
+import org.jsoup.parser.Parser;
+import org.jsoup.select.Selector;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Prétraitement des templates email, exécuté une seule fois au chargement :
+ * - CSS des blocs style inliné dans les attributs style (requis par la plupart des clients mail)
+ * - commentaires HTML et espaces superflus supprimés
+ * Les attributs Thymeleaf (th:*) sont conservés tels quels.
+ */
+@Service
+@Slf4j
+public class TemplatePreprocessor {
+
+    // Les règles avec pseudo-classes (:hover, :last-child...) dépendent du rendu : on les garde dans le bloc style
+    private static final Pattern NON_INLINABLE_SELECTOR = Pattern.compile("[:*]");
+    private static final Pattern CSS_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Set<String> BLOCK_TAGS = Set.of(
+            "html", "head", "body", "meta", "title", "style", "link", "div", "p", "h1", "h2", "h3", "h4",
+            "h5", "h6", "ul", "ol", "li", "table", "thead", "tbody", "tr", "td", "th", "br", "hr");
+
+    private static final Set<String> PRESERVE_WHITESPACE_TAGS = Set.of("pre", "textarea", "script", "style");
+
+    private final Map<String, PreprocessingReport> reports = new ConcurrentHashMap<>();
+
+    /**
+     * Inline le CSS et minifie un template HTML
+     */
+    public String preprocess(String templateName, String html) {
+        Document document = Jsoup.parse(html, "", Parser.htmlParser().settings(ParseSettings.preserveCase));
+        document.outputSettings()
+                .prettyPrint(false)
+                .charset(StandardCharsets.UTF_8)
+                .escapeMode(Entities.EscapeMode.base);
+
+        inlineStyles(document);
+        removeComments(document);
+        collapseWhitespace(document);
+
+        String result = document.outerHtml();
+
+        PreprocessingReport report = new PreprocessingReport(
+                templateName,
+                html.getBytes(StandardCharsets.UTF_8).length,
+                result.getBytes(StandardCharsets.UTF_8).length
+        );
+        reports.put(templateName, report);
+        log.info("Template prétraité: {} - {} -> {} octets (-{}%)",
+                templateName, report.originalBytes(), report.processedBytes(), report.reductionPercent());
+
+        return result;
+    }
+
+    /**
+     * Gain de taille par template déjà prétraité
+     */
+    public Map<String, PreprocessingReport> getReports() {
+        return Collections.unmodifiableMap(reports);
+    }
+
+    public record PreprocessingReport(String templateName, long originalBytes, long processedBytes) {
+        public long reductionPercent() {
+            return originalBytes == 0 ? 0 : Math.round(100.0 * (originalBytes - processedBytes) / originalBytes);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Inlining CSS
+    // ------------------------------------------------------------------
+
+    private void inlineStyles(Document document) {
+        List<CssRule> inlinable = new ArrayList<>();
+        int order = 0;
+
+        for (Element style : document.select("style")) {
+            StringBuilder remaining = new StringBuilder();
+
+            for (String block : splitBlocks(CSS_COMMENT.matcher(style.data()).replaceAll(""))) {
+                int brace = block.indexOf('{');
+                if (block.startsWith("@") || brace < 0) {
+                    // @media, @font-face... : conservés tels quels
+                    remaining.append(minifyCss(block));
+                    continue;
+                }
+
+                String declarations = block.substring(brace + 1, block.lastIndexOf('}'));
+                Map<String, String> parsed = parseDeclarations(declarations);
+
+                List<String> kept = new ArrayList<>();
+                for (String selector : block.substring(0, brace).split(",")) {
+                    String trimmed = WHITESPACE.matcher(selector.trim()).replaceAll(" ");
+                    if (NON_INLINABLE_SELECTOR.matcher(trimmed).find() || !isValidSelector(trimmed)) {
+                        kept.add(trimmed);
+                    } else {
+                        inlinable.add(new CssRule(trimmed, specificity(trimmed), order++, parsed));
+                    }
+                }
+
+                if (!kept.isEmpty()) {
+                    remaining.append(String.join(",", kept)).append('{')
+                            .append(formatDeclarations(parsed)).append('}');
+                }
+            }
+
+            if (remaining.isEmpty()) {
+                style.remove();
+            } else {
+                style.empty().appendChild(new DataNode(remaining.toString()));
+            }
+        }
+
+        Map<Element, List<CssRule>> matches = new IdentityHashMap<>();
+        for (CssRule rule : inlinable) {
+            for (Element element : document.select(rule.selector())) {
+                matches.computeIfAbsent(element, e -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        matches.forEach((element, rules) -> {
+            rules.sort(CssRule.CASCADE_ORDER);
+            Map<String, String> computed = new LinkedHashMap<>();
+            for (CssRule rule : rules) {
+                computed.putAll(rule.declarations());
+            }
+            // Le style inline existant reste prioritaire
+            computed.putAll(parseDeclarations(element.attr("style")));
+            element.attr("style", formatDeclarations(computed));
+        });
+    }
+
+    /**
+     * Découpe une feuille de style en règles de premier niveau (les blocs @media restent entiers)
+     */
+    private List<String> splitBlocks(String css) {
+        List<String> blocks = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0) {
+                    blocks.add(css.substring(start, i + 1).trim());
+                    start = i + 1;
+                }
+            } else if (c == ';' && depth == 0) {
+                // @import, @charset...
+                blocks.add(css.substring(start, i + 1).trim());
+                start = i + 1;
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Parse "prop: valeur; prop2: valeur2" en respectant les chaînes et les parenthèses
+     */
+    private Map<String, String> parseDeclarations(String declarations) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (declarations == null || declarations.isBlank()) {
+            return result;
+        }
+
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i <= declarations.length(); i++) {
+            char c = i < declarations.length() ? declarations.charAt(i) : ';';
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ';' && depth == 0) {
+                String declaration = declarations.substring(start, Math.min(i, declarations.length()));
+                int colon = declaration.indexOf(':');
+                if (colon > 0) {
+                    String property = declaration.substring(0, colon).trim().toLowerCase();
+                    String value = WHITESPACE.matcher(declaration.substring(colon + 1).trim()).replaceAll(" ");
+                    if (!property.isEmpty() && !value.isEmpty()) {
+                        result.remove(property);
+                        result.put(property, value);
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+    private String formatDeclarations(Map<String, String> declarations) {
+        StringBuilder builder = new StringBuilder();
+        declarations.forEach((property, value) -> {
+            if (!builder.isEmpty()) builder.append(';');
+            builder.append(property).append(':').append(value);
+        });
+        return builder.toString();
+    }
+
+    private String minifyCss(String css) {
+        return WHITESPACE.matcher(css).replaceAll(" ")
+                .replaceAll("\\s*([{};,])\\s*", "$1");
+    }
+
+    private boolean isValidSelector(String selector) {
+        try {
+            Selector.evaluatorOf(selector);
+            return true;
+        } catch (Selector.SelectorParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Spécificité CSS simplifiée : (ids, classes/attributs, éléments)
+     */
+    private int specificity(String selector) {
+        int ids = 0;
+        int classes = 0;
+        int elements = 0;
+        for (String compound : selector.split("[\\s>+~]+")) {
+            if (compound.isEmpty()) continue;
+            if (Character.isLetter(compound.charAt(0))) elements++;
+            for (char c : compound.toCharArray()) {
+                if (c == '#') ids++;
+                else if (c == '.' || c == '[') classes++;
+            }
+        }
+        return ids * 10_000 + classes * 100 + elements;
+    }
+
+    private record CssRule(String selector, int specificity, int order, Map<String, String> declarations) {
+        static final Comparator<CssRule> CASCADE_ORDER =
+                Comparator.comparingInt(CssRule::specificity).thenComparingInt(CssRule::order);
+    }
+
+    // ------------------------------------------------------------------
+    // Minification HTML
+    // ------------------------------------------------------------------
+
+    private void removeComments(Node node) {
+        for (Node child : new ArrayList<>(node.childNodes())) {
+            if (child instanceof Comment comment) {
+                // Commentaires conditionnels Outlook conservés
+                if (!comment.getData().trim().startsWith("[if")) {
+                    comment.remove();
+                }
+            } else {
+                removeComments(child);
+            }
+        }
+    }
+
+    private void collapseWhitespace(Element element) {
+        if (PRESERVE_WHITESPACE_TAGS.contains(element.normalName())
+                || element.attr("style").contains("white-space:pre")) {
+            return;
+        }
+
+        for (Node child : new ArrayList<>(element.childNodes())) {
+            if (child instanceof TextNode text) {
+                if (text.isBlank() && isAtBlockBoundary(text)) {
+                    text.remove();
+                } else {
+                    text.text(WHITESPACE.matcher(text.getWholeText()).replaceAll(" "));
+                }
+            } else if (child instanceof Element childElement) {
+                collapseWhitespace(childElement);
+            }
+        }
+    }
+
+    /**
+     * Un espace entre deux balises de type bloc n'a aucun effet sur le rendu
+     */
+    private boolean isAtBlockBoundary(TextNode text) {
+        boolean parentIsBlock = isBlock(text.parent());
+        Node previous = text.previousSibling();
+        Node next = text.nextSibling();
+        return (previous == null ? parentIsBlock : isBlock(previous))
+                || (next == null ? parentIsBlock : isBlock(next));
+    }
+
+    private boolean isBlock(Node node) {
+        return node instanceof Element element && BLOCK_TAGS.contains(element.normalName());
+    }
+}
@@ -14,12 +14,19 @@ import java.util.Map;
 public class TemplateService {
 
     private final TemplateEngine templateEngine;
+    private final TemplatePlanRenderer planRenderer;
 
     /**
      * Génère le contenu HTML à partir d'un template et des données
+     * (plan de rendu précompilé si disponible, Thymeleaf sinon)
      */
     public String generateHtmlContent(String templatePath, Map<String, Object> variables) {
         try {
+            String planned = planRenderer.render(templatePath, variables);
+            if (planned != null) {
+                return planned;
+            }
+
             Context context = new Context();
             context.setVariables(variables);
 
@@ -42,7 +49,7 @@ public class TemplateService {
         text.append("Nouveau message de contact\n\n");
 
         variables.forEach((key, value) -> {
-            if (value != null && !key.equals("additionalData")) {
+            if (value != null && !key.equals("additionalData") && !key.equals("assets")) {
                 text.append(capitalize(key)).append(": ").append(value).append("\n");
             }
         });
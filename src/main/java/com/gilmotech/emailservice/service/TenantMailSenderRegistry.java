@@ -0,0 +1,127 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.config.TenantProperties;
+import com.gilmotech.emailservice.model.AppCode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Un JavaMailSender isolé par tenant : identifiants SMTP, pool de connexions et limite
+ * de concurrence propres. Un tenant saturé (ou un serveur SMTP lent) ne bloque pas les autres.
+ * Un tenant avec plusieurs relais bascule vers le suivant en cas d'échec ou de lenteur.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TenantMailSenderRegistry {
+
+    private final TenantProperties tenantProperties;
+    private final MailProperties mailProperties;
+
+    private final Map<AppCode, RoutingMailSender> senders = new HashMap<>();
+    private final Map<AppCode, Integer> maxConcurrentSends = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tenantProperties.getTenants().forEach((code, tenant) -> {
+            AppCode appCode = AppCode.fromString(code);
+            senders.put(appCode, createSender(appCode, tenant));
+            maxConcurrentSends.put(appCode, tenant.getMaxConcurrentSends());
+        });
+
+        log.info("Senders SMTP créés pour {} tenant(s): {}", senders.size(), senders.keySet());
+    }
+
+    /**
+     * Sender du tenant
+     */
+    public JavaMailSender senderFor(AppCode appCode) {
+        RoutingMailSender sender = senders.get(appCode);
+        if (sender == null) {
+            throw new IllegalArgumentException("Application inconnue: " + appCode);
+        }
+        return sender;
+    }
+
+    /**
+     * Envois simultanés que le tenant peut absorber sans attendre une connexion SMTP
+     * (taille du pool de chaque relais), sans limite pour une application inconnue
+     */
+    public int maxConcurrentSends(AppCode appCode) {
+        return maxConcurrentSends.getOrDefault(appCode, Integer.MAX_VALUE);
+    }
+
+    @PreDestroy
+    public void close() {
+        senders.values().forEach(RoutingMailSender::close);
+    }
+
+    private RoutingMailSender createSender(AppCode appCode, TenantProperties.Tenant tenant) {
+        List<TenantProperties.Smtp> relays = tenant.getRelays().isEmpty()
+                ? List.of(tenant.getSmtp())
+                : tenant.getRelays();
+
+        List<PooledMailSender> relaySenders = new ArrayList<>();
+        for (int i = 0; i < relays.size(); i++) {
+            relaySenders.add(createRelay(appCode, i, tenant, relays.get(i)));
+        }
+        return new RoutingMailSender(appCode.code(), relaySenders);
+    }
+
+    private PooledMailSender createRelay(AppCode appCode, int index, TenantProperties.Tenant tenant,
+                                         TenantProperties.Smtp relay) {
+        TenantProperties.Smtp smtp = tenant.getSmtp();
+
+        String host = firstNonNull(relay.getHost(), smtp.getHost(), mailProperties.getHost());
+        Integer port = firstNonNull(relay.getPort(), smtp.getPort(), mailProperties.getPort());
+
+        PooledMailSender sender = new PooledMailSender(
+                appCode.code() + "#" + index + " (" + host + ":" + port + ")",
+                tenant.getMaxConcurrentSends(),
+                tenant.getAcquireTimeoutMs(),
+                tenant.getIdleTimeoutMs(),
+                new RelayHealth(tenant.getRelayCooldownMs(), tenant.getRelayScoreHalfLifeMs())
+        );
+        sender.setHost(host);
+        sender.setPort(port != null ? port : -1);
+        sender.setUsername(firstNonNull(relay.getUsername(), smtp.getUsername(), mailProperties.getUsername()));
+        sender.setPassword(firstNonNull(relay.getPassword(), smtp.getPassword(), mailProperties.getPassword()));
+        sender.setProtocol(firstNonNull(relay.getProtocol(), smtp.getProtocol(), mailProperties.getProtocol()));
+        sender.setDefaultEncoding(mailProperties.getDefaultEncoding() != null
+                ? mailProperties.getDefaultEncoding().name() : StandardCharsets.UTF_8.name());
+
+        // Propriétés JavaMail : spring.mail, surchargées par le tenant, puis par le relais
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(mailProperties.getProperties());
+        javaMailProperties.putAll(smtp.getProperties());
+        if (relay != smtp) {
+            javaMailProperties.putAll(relay.getProperties());
+        }
+        sender.setJavaMailProperties(javaMailProperties);
+
+        log.debug("Relais SMTP {} - {} connexion(s) max", sender.getName(), tenant.getMaxConcurrentSends());
+        return sender;
+    }
+
+    @SafeVarargs
+    private static <T> T firstNonNull(T... values) {
+        for (T value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,376 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.dto.UploadRequestDto;
+import com.gilmotech.emailservice.dto.UploadStatusDto;
+import com.gilmotech.emailservice.exception.MailSendingException;
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import com.gilmotech.emailservice.model.AppCode;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Pièces jointes envoyées avant la soumission du formulaire, fichier par fichier et
+ * par morceaux (un morceau perdu est simplement renvoyé). Chaque fichier est validé
+ * dès son dernier morceau reçu ; le formulaire ne transmet ensuite que le jeton obtenu.
+ * Les uploads jamais utilisés sont supprimés à expiration, ceux dont aucun morceau
+ * n'arrive après la déclaration dès idle-timeout-seconds. Les octets déclarés sont
+ * plafonnés au total et par client, pour qu'un seul client ne réserve pas toute la capacité.
+ */
+@Service
+@Slf4j
+public class UploadService {
+
+    private static final Pattern TOKEN_FORMAT = Pattern.compile("^[A-Za-z0-9_-]{22}$");
+    private static final int HEADER_LENGTH = 16;
+    private static final String DATA_FILE = "data";
+
+    private final FileValidationService fileValidationService;
+    private final int chunkSize;
+    private final Duration ttl;
+    private final Duration idleTimeout;
+    private final long maxPendingBytes;
+    private final long maxPendingBytesPerClient;
+    private final Path directory;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final Map<String, Long> pendingBytesByClient = new ConcurrentHashMap<>();
+
+    public UploadService(
+            FileValidationService fileValidationService,
+            @Value("${app.mail.uploads.chunk-size-kb:512}") int chunkSizeKb,
+            @Value("${app.mail.uploads.ttl-minutes:60}") long ttlMinutes,
+            @Value("${app.mail.uploads.idle-timeout-seconds:120}") long idleTimeoutSeconds,
+            @Value("${app.mail.uploads.max-pending-mb:512}") long maxPendingMb,
+            @Value("${app.mail.uploads.max-pending-per-client-mb:64}") long maxPendingPerClientMb,
+            @Value("${app.mail.uploads.directory:${java.io.tmpdir}/email-service/uploads}") String directory
+    ) {
+        this.fileValidationService = fileValidationService;
+        this.chunkSize = chunkSizeKb * 1024;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.idleTimeout = Duration.ofSeconds(idleTimeoutSeconds);
+        this.maxPendingBytes = maxPendingMb * 1024 * 1024;
+        this.maxPendingBytesPerClient = maxPendingPerClientMb * 1024 * 1024;
+        this.directory = Path.of(directory);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        // Les uploads d'une exécution précédente ne sont plus référencés
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> leftovers = Files.list(directory)) {
+                leftovers.forEach(this::deleteQuietly);
+            }
+        }
+        Files.createDirectories(directory);
+        log.info("Uploads par morceaux de {} Ko dans {} (conservés {} min)",
+                chunkSize / 1024, directory, ttl.toMinutes());
+    }
+
+    /**
+     * Déclare un fichier : type et taille sont contrôlés avant tout envoi de contenu
+     * @param client adresse du client, pour le plafond d'octets en attente par client
+     */
+    public UploadStatusDto create(UploadRequestDto request, String client) {
+        AppCode appCode = AppCode.fromString(request.getAppCode());
+        fileValidationService.validateUploadDeclaration(request.getFilename(), request.getMimeType(),
+                request.getSize());
+
+        if (pendingBytesByClient.merge(client, request.getSize(), Long::sum) > maxPendingBytesPerClient) {
+            releaseClientBytes(client, request.getSize());
+            log.warn("Capacité d'upload atteinte pour le client {}", client);
+            throw new ServiceOverloadedException(
+                    "UPLOAD_CAPACITY_REACHED",
+                    "Trop de fichiers en cours d'envoi. Veuillez terminer ou annuler les envois en cours.",
+                    30
+            );
+        }
+        if (pendingBytes.addAndGet(request.getSize()) > maxPendingBytes) {
+            pendingBytes.addAndGet(-request.getSize());
+            releaseClientBytes(client, request.getSize());
+            log.warn("Capacité d'upload atteinte ({} octets en attente)", pendingBytes.get());
+            throw new ServiceOverloadedException(
+                    "UPLOAD_CAPACITY_REACHED",
+                    "Service momentanément surchargé. Veuillez réessayer dans quelques instants.",
+                    30
+            );
+        }
+
+        String token = newToken();
+        int chunkCount = (int) ((request.getSize() + chunkSize - 1) / chunkSize);
+        Instant now = Instant.now();
+        Upload upload = new Upload(token, appCode, client, request.getFilename(), request.getMimeType(),
+                request.getSize(), chunkCount, now.plus(ttl), now.plus(idleTimeout));
+        try {
+            Files.createDirectories(pathFor(token));
+        } catch (IOException e) {
+            pendingBytes.addAndGet(-request.getSize());
+            releaseClientBytes(client, request.getSize());
+            throw new UncheckedIOException("Impossible de préparer l'upload de " + request.getFilename(), e);
+        }
+        uploads.put(token, upload);
+
+        log.info("Upload {} déclaré: {} ({} octets, {} morceau(x))",
+                token, request.getFilename(), request.getSize(), chunkCount);
+        return upload.status(chunkSize);
+    }
+
+    /**
+     * Enregistre un morceau (renvoyer un morceau déjà reçu est sans effet).
+     * Le fichier est assemblé et validé à la réception du dernier morceau manquant.
+     */
+    public UploadStatusDto writeChunk(String token, int index, InputStream data) throws IOException {
+        Upload upload = find(token);
+        if (index < 0 || index >= upload.chunkCount) {
+            throw new MailSendingException("INVALID_CHUNK", "Numéro de morceau invalide: " + index);
+        }
+
+        // Lecture bornée : un morceau trop long est refusé sans être chargé entièrement
+        int expected = upload.chunkLength(index, chunkSize);
+        byte[] bytes = data.readNBytes(expected + 1);
+        if (bytes.length != expected) {
+            throw new MailSendingException("CHUNK_SIZE_MISMATCH",
+                    String.format("Le morceau %d doit faire %d octets", index, expected));
+        }
+
+        Path temp = Files.createTempFile(pathFor(token), "chunk", ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, chunkPath(token, index), StandardCopyOption.REPLACE_EXISTING);
+
+        synchronized (upload) {
+            if (!upload.complete) {
+                upload.started = true;
+                upload.received.set(index);
+                if (upload.received.cardinality() == upload.chunkCount) {
+                    assemble(upload);
+                }
+            }
+        }
+        return upload.status(chunkSize);
+    }
+
+    public UploadStatusDto status(String token) {
+        return find(token).status(chunkSize);
+    }
+
+    public void cancel(String token) {
+        discard(find(token));
+    }
+
+    /**
+     * Remplace les jetons d'upload des pièces jointes par le contenu des fichiers
+     * @return jetons utilisés, à libérer une fois l'email envoyé
+     */
+    public List<String> resolve(MailRequestDto request) {
+        if (request.getAttachments() == null) {
+            return List.of();
+        }
+
+        AppCode appCode = AppCode.fromString(request.getAppCode());
+        List<String> tokens = new ArrayList<>();
+        for (FileAttachmentDto attachment : request.getAttachments()) {
+            if (attachment.getUploadToken() == null) {
+                continue;
+            }
+            Upload upload = find(attachment.getUploadToken());
+            if (!upload.appCode.equals(appCode)) {
+                throw new MailSendingException("UPLOAD_NOT_FOUND", "Upload inconnu ou expiré");
+            }
+            if (!upload.complete) {
+                throw new MailSendingException("UPLOAD_INCOMPLETE",
+                        "L'envoi du fichier n'est pas terminé: " + upload.filename);
+            }
+
+            // Nom et type validés à l'upload
+            attachment.setFilename(upload.filename);
+            attachment.setMimeType(upload.mimeType);
+            try {
+                attachment.setContent(Base64.getEncoder().encodeToString(
+                        Files.readAllBytes(pathFor(upload.token).resolve(DATA_FILE))));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fichier uploadé illisible: " + upload.filename, e);
+            }
+            tokens.add(upload.token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Supprime les fichiers uploadés une fois l'email envoyé
+     */
+    public void release(List<String> tokens) {
+        for (String token : tokens) {
+            Upload upload = uploads.get(token);
+            if (upload != null) {
+                discard(upload);
+            }
+        }
+    }
+
+    /**
+     * Supprime les uploads expirés (jamais soumis ou abandonnés en cours d'envoi)
+     * et les déclarations restées sans aucun morceau
+     */
+    @Scheduled(fixedDelayString = "${app.mail.uploads.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        long evicted = uploads.values().stream()
+                .filter(upload -> upload.expiresAt.isBefore(now)
+                        || (!upload.started && upload.idleExpiresAt.isBefore(now)))
+                .filter(this::discard)
+                .count();
+        if (evicted > 0) {
+            log.info("{} upload(s) expiré(s) supprimé(s)", evicted);
+        }
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    private void assemble(Upload upload) throws IOException {
+        Path data = pathFor(upload.token).resolve(DATA_FILE);
+        try (OutputStream out = Files.newOutputStream(data)) {
+            for (int i = 0; i < upload.chunkCount; i++) {
+                Files.copy(chunkPath(upload.token, i), out);
+            }
+        }
+        for (int i = 0; i < upload.chunkCount; i++) {
+            Files.deleteIfExists(chunkPath(upload.token, i));
+        }
+
+        byte[] header;
+        try (InputStream in = Files.newInputStream(data)) {
+            header = in.readNBytes(HEADER_LENGTH);
+        }
+        try {
+            fileValidationService.validateUploadedContent(upload.filename, upload.mimeType, header);
+        } catch (MailSendingException e) {
+            discard(upload);
+            throw e;
+        }
+
+        upload.complete = true;
+        log.info("Upload {} terminé et validé: {}", upload.token, upload.filename);
+    }
+
+    private Upload find(String token) {
+        Upload upload = token != null && TOKEN_FORMAT.matcher(token).matches() ? uploads.get(token) : null;
+        if (upload == null || upload.expiresAt.isBefore(Instant.now())) {
+            throw new MailSendingException("UPLOAD_NOT_FOUND", "Upload inconnu ou expiré");
+        }
+        return upload;
+    }
+
+    private boolean discard(Upload upload) {
+        if (!uploads.remove(upload.token, upload)) {
+            return false;
+        }
+        pendingBytes.addAndGet(-upload.size);
+        releaseClientBytes(upload.client, upload.size);
+        deleteQuietly(pathFor(upload.token));
+        return true;
+    }
+
+    private void releaseClientBytes(String client, long size) {
+        pendingBytesByClient.computeIfPresent(client,
+                (k, bytes) -> bytes - size <= 0 ? null : bytes - size);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private Path pathFor(String token) {
+        return directory.resolve(token);
+    }
+
+    private Path chunkPath(String token, int index) {
+        return pathFor(token).resolve("chunk-" + index);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class Upload {
+        private final String token;
+        private final AppCode appCode;
+        private final String client;
+        private final String filename;
+        private final String mimeType;
+        private final long size;
+        private final int chunkCount;
+        private final Instant expiresAt;
+        // Sans aucun morceau reçu à cette date, la déclaration est abandonnée
+        private final Instant idleExpiresAt;
+
+        // Protégé par le verrou de l'upload
+        private final BitSet received = new BitSet();
+        private volatile boolean complete;
+        private volatile boolean started;
+
+        private Upload(String token, AppCode appCode, String client, String filename, String mimeType, long size,
+                       int chunkCount, Instant expiresAt, Instant idleExpiresAt) {
+            this.token = token;
+            this.appCode = appCode;
+            this.client = client;
+            this.filename = filename;
+            this.mimeType = mimeType;
+            this.size = size;
+            this.chunkCount = chunkCount;
+            this.expiresAt = expiresAt;
+            this.idleExpiresAt = idleExpiresAt;
+        }
+
+        int chunkLength(int index, int chunkSize) {
+            return index < chunkCount - 1 ? chunkSize : (int) (size - (long) index * chunkSize);
+        }
+
+        synchronized UploadStatusDto status(int chunkSize) {
+            List<Integer> missing = new ArrayList<>();
+            if (!complete) {
+                for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+                    missing.add(i);
+                }
+            }
+            return new UploadStatusDto(token, chunkSize, chunkCount, missing, complete,
+                    LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+        }
+    }
+}
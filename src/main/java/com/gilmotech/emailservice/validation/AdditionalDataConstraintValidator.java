@@ -0,0 +1,60 @@
+package com.gilmotech.emailservice.validation;
+
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailType;
+import com.gilmotech.emailservice.service.ConfigurationService;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Applique le schéma additionalData compilé de la configuration visée, pendant la validation
+ * de la requête : un champ inconnu ou trop grand n'atteint jamais le rendu des templates.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class AdditionalDataConstraintValidator implements ConstraintValidator<ValidAdditionalData, MailRequestDto> {
+
+    private final ConfigurationService configService;
+
+    @Override
+    public boolean isValid(MailRequestDto request, ConstraintValidatorContext context) {
+        if (request == null || request.getAdditionalData() == null
+                || request.getAppCode() == null || request.getMailType() == null) {
+            return true;
+        }
+
+        AdditionalDataValidator validator;
+        try {
+            validator = configService.findAdditionalDataValidator(
+                    AppCode.fromString(request.getAppCode()), MailType.fromString(request.getMailType()));
+        } catch (IllegalArgumentException e) {
+            // Code application ou type invalide : signalé par leurs propres contraintes
+            return true;
+        }
+        if (validator == null) {
+            return true;
+        }
+
+        String violation = validator.validate(request.getAdditionalData());
+        if (violation == null) {
+            return true;
+        }
+
+        log.warn("additionalData refusé pour {} / {}: {}", request.getAppCode(), request.getMailType(), violation);
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(escape(violation))
+                .addPropertyNode("additionalData")
+                .addConstraintViolation();
+        return false;
+    }
+
+    /**
+     * Le message contient des noms de champs fournis par le client : pas d'interpolation
+     */
+    private static String escape(String message) {
+        return message.replace("\\", "\\\\").replace("{", "\\{").replace("}", "\\}").replace("$", "\\$");
+    }
+}
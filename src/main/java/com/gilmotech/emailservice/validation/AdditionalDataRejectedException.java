@@ -0,0 +1,14 @@
+package com.gilmotech.emailservice.validation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * additionalData refusé pendant la lecture du JSON (limites globales dépassées)
+ */
+public class AdditionalDataRejectedException extends JsonMappingException {
+
+    public AdditionalDataRejectedException(JsonParser parser, String message) {
+        super(parser, message);
+    }
+}
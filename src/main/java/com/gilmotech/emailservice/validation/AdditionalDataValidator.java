@@ -0,0 +1,183 @@
+package com.gilmotech.emailservice.validation;
+
+import com.gilmotech.emailservice.model.AdditionalDataSchema;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Schéma additionalData compilé une fois en un arbre de contrôles :
+ * la validation d'une requête ne relit plus la configuration.
+ */
+public final class AdditionalDataValidator {
+
+    private final Node root;
+    private final int maxDepth;
+    private final int maxEntries;
+
+    private AdditionalDataValidator(AdditionalDataSchema schema) {
+        this.maxDepth = schema.getMaxDepth();
+        this.maxEntries = schema.getMaxEntries();
+        Node unknown = anyValue(schema.getMaxStringLength());
+        this.root = object(schema.getFields(), schema, unknown);
+    }
+
+    public static AdditionalDataValidator compile(AdditionalDataSchema schema) {
+        return new AdditionalDataValidator(schema);
+    }
+
+    /**
+     * @return la première violation, ou null si les données sont conformes
+     */
+    public String validate(Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        return root.check(data, "", 1, new int[1]);
+    }
+
+    @FunctionalInterface
+    private interface Node {
+        String check(Object value, String path, int depth, int[] entries);
+    }
+
+    private Node compile(AdditionalDataSchema.Field field, AdditionalDataSchema schema, Node unknown) {
+        int maxLength = field.getMaxLength() != null ? field.getMaxLength() : schema.getMaxStringLength();
+        return switch (field.getType()) {
+            case STRING -> string(maxLength);
+            case NUMBER -> (value, path, depth, entries) ->
+                    value instanceof Number ? null : typeError(path, "un nombre");
+            case BOOLEAN -> (value, path, depth, entries) ->
+                    value instanceof Boolean ? null : typeError(path, "un booléen");
+            case SCALAR -> scalar(maxLength);
+            case OBJECT -> object(field.getFields(), schema, unknown);
+            case ARRAY -> array(field.getItems() != null
+                    ? compile(field.getItems(), schema, unknown)
+                    : string(schema.getMaxStringLength()), field.getMaxItems());
+        };
+    }
+
+    private Node object(Map<String, AdditionalDataSchema.Field> fieldSpecs, AdditionalDataSchema schema,
+                        Node unknown) {
+        Map<String, Node> fields = new HashMap<>();
+        fieldSpecs.forEach((name, spec) -> fields.put(name, compile(spec, schema, unknown)));
+        Set<String> required = fieldSpecs.entrySet().stream()
+                .filter(entry -> entry.getValue().isRequired())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+        Node unknownKey = schema.isAllowUnknownKeys()
+                ? unknown
+                : (value, path, depth, entries) -> "Champ non autorisé: " + path;
+
+        return (value, path, depth, entries) -> {
+            if (!(value instanceof Map<?, ?> map)) {
+                return typeError(path, "un objet");
+            }
+            if (depth > maxDepth) {
+                return "Imbrication trop profonde: " + path;
+            }
+            for (String name : required) {
+                if (map.get(name) == null) {
+                    return "Champ obligatoire manquant: " + child(path, name);
+                }
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                String error = countEntry(entries);
+                if (error == null && entry.getValue() != null) {
+                    error = fields.getOrDefault(name, unknownKey)
+                            .check(entry.getValue(), child(path, name), depth + 1, entries);
+                }
+                if (error != null) {
+                    return error;
+                }
+            }
+            return null;
+        };
+    }
+
+    private Node array(Node items, int maxItems) {
+        return (value, path, depth, entries) -> {
+            if (!(value instanceof List<?> list)) {
+                return typeError(path, "une liste");
+            }
+            if (depth > maxDepth) {
+                return "Imbrication trop profonde: " + path;
+            }
+            if (list.size() > maxItems) {
+                return "Trop d'éléments dans " + path + " (max " + maxItems + ")";
+            }
+            for (int i = 0; i < list.size(); i++) {
+                String error = countEntry(entries);
+                if (error == null && list.get(i) != null) {
+                    error = items.check(list.get(i), path + "[" + i + "]", depth + 1, entries);
+                }
+                if (error != null) {
+                    return error;
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Champ inconnu autorisé : n'importe quelle valeur, dans les limites globales du schéma
+     */
+    private Node anyValue(int maxStringLength) {
+        Node scalar = scalar(maxStringLength);
+        return new Node() {
+            @Override
+            public String check(Object value, String path, int depth, int[] entries) {
+                if (value instanceof Map<?, ?> || value instanceof List<?>) {
+                    if (depth > maxDepth) {
+                        return "Imbrication trop profonde: " + path;
+                    }
+                    int index = 0;
+                    for (Object child : value instanceof Map<?, ?> map ? map.values() : (List<?>) value) {
+                        String childPath = path + "[" + index++ + "]";
+                        String error = countEntry(entries);
+                        if (error == null && child != null) {
+                            error = check(child, childPath, depth + 1, entries);
+                        }
+                        if (error != null) {
+                            return error;
+                        }
+                    }
+                    return null;
+                }
+                return scalar.check(value, path, depth, entries);
+            }
+        };
+    }
+
+    private static Node string(int maxLength) {
+        return (value, path, depth, entries) -> {
+            if (!(value instanceof String text)) {
+                return typeError(path, "un texte");
+            }
+            return text.length() > maxLength ? "Texte trop long: " + path + " (max " + maxLength + ")" : null;
+        };
+    }
+
+    private static Node scalar(int maxLength) {
+        Node string = string(maxLength);
+        return (value, path, depth, entries) -> value instanceof Number || value instanceof Boolean
+                ? null
+                : string.check(value, path, depth, entries);
+    }
+
+    private String countEntry(int[] entries) {
+        return ++entries[0] > maxEntries ? "Trop de valeurs dans additionalData (max " + maxEntries + ")" : null;
+    }
+
+    private static String child(String path, String name) {
+        return path.isEmpty() ? name : path + "." + name;
+    }
+
+    private static String typeError(String path, String expected) {
+        return "Le champ " + path + " doit être " + expected;
+    }
+}
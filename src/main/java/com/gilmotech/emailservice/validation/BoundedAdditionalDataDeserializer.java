@@ -0,0 +1,88 @@
+package com.gilmotech.emailservice.validation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture de additionalData avec des limites globales appliquées au fil du parsing :
+ * une structure trop grande ou trop profonde est refusée avant d'être construite en mémoire.
+ * Les règles propres à chaque type de mail sont vérifiées ensuite (@ValidAdditionalData).
+ */
+public class BoundedAdditionalDataDeserializer extends JsonDeserializer<Map<String, Object>> {
+
+    static final int MAX_DEPTH = 8;
+    static final int MAX_ENTRIES = 500;
+    static final int MAX_KEY_LENGTH = 100;
+    static final int MAX_STRING_LENGTH = 10_000;
+
+    @Override
+    public Map<String, Object> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new AdditionalDataRejectedException(parser, "additionalData doit être un objet");
+        }
+        return readObject(parser, 1, new int[1]);
+    }
+
+    private Map<String, Object> readObject(JsonParser parser, int depth, int[] entries) throws IOException {
+        checkDepth(parser, depth);
+        Map<String, Object> object = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            if (key.length() > MAX_KEY_LENGTH) {
+                throw new AdditionalDataRejectedException(parser, "Nom de champ trop long dans additionalData");
+            }
+            countEntry(parser, entries);
+            parser.nextToken();
+            object.put(key, readValue(parser, depth, entries));
+        }
+        return object;
+    }
+
+    private List<Object> readArray(JsonParser parser, int depth, int[] entries) throws IOException {
+        checkDepth(parser, depth);
+        List<Object> array = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            countEntry(parser, entries);
+            array.add(readValue(parser, depth, entries));
+        }
+        return array;
+    }
+
+    private Object readValue(JsonParser parser, int depth, int[] entries) throws IOException {
+        return switch (parser.currentToken()) {
+            case START_OBJECT -> readObject(parser, depth + 1, entries);
+            case START_ARRAY -> readArray(parser, depth + 1, entries);
+            case VALUE_STRING -> {
+                if (parser.getTextLength() > MAX_STRING_LENGTH) {
+                    throw new AdditionalDataRejectedException(parser, "Texte trop long dans additionalData");
+                }
+                yield parser.getText();
+            }
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new AdditionalDataRejectedException(parser, "Valeur non supportée dans additionalData");
+        };
+    }
+
+    private void checkDepth(JsonParser parser, int depth) throws AdditionalDataRejectedException {
+        if (depth > MAX_DEPTH) {
+            throw new AdditionalDataRejectedException(parser, "additionalData trop imbriqué");
+        }
+    }
+
+    private void countEntry(JsonParser parser, int[] entries) throws AdditionalDataRejectedException {
+        if (++entries[0] > MAX_ENTRIES) {
+            throw new AdditionalDataRejectedException(parser, "Trop de valeurs dans additionalData");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.gilmotech.emailservice.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * additionalData conforme au schéma de la configuration (appCode, mailType) de la requête
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = AdditionalDataConstraintValidator.class)
+public @interface ValidAdditionalData {
+
+    String message() default "Données additionnelles invalides";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,76 @@
+package com.gilmotech.emailservice.benchmark;
+
+import com.gilmotech.emailservice.monitoring.RequestTiming;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Coût du chronométrage par requête d'envoi : les 7 étapes mesurées comme dans MailService,
+ * plus la création, le MDC, l'en-tête Server-Timing et la décision de log lent.
+ * Hors requête (envois programmés), seul le coût de start()/stop() sans chronomètre attaché.
+ *
+ * Lancement : mvn test -Dtest=RequestTimingOverheadBenchmark -Dbenchmark.timing=true [-Dbenchmark.iterations=2000000]
+ */
+@EnabledIfSystemProperty(named = "benchmark.timing", matches = "true")
+class RequestTimingOverheadBenchmark {
+
+    private static final RequestTiming.Stage[] STAGES = RequestTiming.Stage.values();
+
+    private final int iterations = Integer.getInteger("benchmark.iterations", 2_000_000);
+
+    @Test
+    void perRequestOverhead() {
+        // Chauffe du JIT
+        timedRequests(iterations / 4);
+        untimedRequests(iterations / 4);
+
+        long start = System.nanoTime();
+        long sink = timedRequests(iterations);
+        double timedNanos = (double) (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        sink += untimedRequests(iterations);
+        double untimedNanos = (double) (System.nanoTime() - start) / iterations;
+
+        System.out.printf("[request-timing] par requête : %.0f ns chronométrée (7 étapes + Server-Timing), "
+                + "%.1f ns hors requête (%d itérations, %d)%n", timedNanos, untimedNanos, iterations, sink & 1);
+
+        // Négligeable devant un envoi (rendu + SMTP, plusieurs millisecondes)
+        assertTrue(timedNanos < 50_000, "Chronométrage trop coûteux: " + timedNanos + " ns");
+    }
+
+    private static long timedRequests(int count) {
+        String correlationId = UUID.randomUUID().toString();
+        long sink = 0;
+        for (int i = 0; i < count; i++) {
+            RequestTiming timing = new RequestTiming(correlationId, 3000, 1.0);
+            timing.bind();
+            try {
+                for (RequestTiming.Stage stage : STAGES) {
+                    RequestTiming.stop(stage, RequestTiming.start());
+                }
+                sink += timing.serverTiming().length();
+            } finally {
+                timing.unbind();
+            }
+            timing.complete(200);
+        }
+        return sink;
+    }
+
+    private static long untimedRequests(int count) {
+        long sink = 0;
+        for (int i = 0; i < count; i++) {
+            for (RequestTiming.Stage stage : STAGES) {
+                long start = RequestTiming.start();
+                RequestTiming.stop(stage, start);
+                sink += start;
+            }
+        }
+        return sink;
+    }
+}
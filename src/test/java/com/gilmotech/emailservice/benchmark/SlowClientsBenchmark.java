@@ -0,0 +1,222 @@
+package com.gilmotech.emailservice.benchmark;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Milliers de clients lents simultanés sur /api/mail/send (corps envoyé par petits morceaux espacés),
+ * MailController (threads Tomcat bloqués pendant la lecture) contre le profil nonblocking.
+ * Pendant l'envoi des clients lents, une requête normale mesure l'attente subie par un client rapide.
+ *
+ * Pré-requis : mvn package -DskipTests
+ * Lancement  : mvn test -Dtest=SlowClientsBenchmark -Dbenchmark.slow-clients=true
+ *              [-Dbenchmark.clients=2000] [-Dbenchmark.chunks=10] [-Dbenchmark.chunk-delay-ms=1000]
+ */
+@EnabledIfSystemProperty(named = "benchmark.slow-clients", matches = "true")
+class SlowClientsBenchmark {
+
+    private static final Path STANDARD_JAR = Path.of("target", "email-service-0.0.1-SNAPSHOT.jar");
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final String REQUEST_BODY = """
+            {
+              "appCode": "GILMOTECH",
+              "mailType": "CONTACT_FORM",
+              "name": "Client %d",
+              "email": "client%d@test.com",
+              "message": "Message du client lent numéro %d",
+              "website": ""
+            }
+            """;
+
+    private final int clients = Integer.getInteger("benchmark.clients", 2000);
+    private final int chunks = Integer.getInteger("benchmark.chunks", 10);
+    private final long chunkDelayMs = Long.getLong("benchmark.chunk-delay-ms", 1000);
+
+    private GreenMail greenMail;
+    private int smtpPort;
+
+    @BeforeEach
+    void startSmtp() throws IOException {
+        smtpPort = freePort();
+        greenMail = new GreenMail(new ServerSetup(smtpPort, "localhost", ServerSetup.PROTOCOL_SMTP))
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        greenMail.start();
+    }
+
+    @AfterEach
+    void stopSmtp() {
+        greenMail.stop();
+    }
+
+    @Test
+    void mailController() throws Exception {
+        assumeTrue(Files.exists(STANDARD_JAR), "Jar absent: " + STANDARD_JAR);
+        report("mail-controller", List.of());
+    }
+
+    @Test
+    void nonBlocking() throws Exception {
+        assumeTrue(Files.exists(STANDARD_JAR), "Jar absent: " + STANDARD_JAR);
+        report("nonblocking", List.of("--spring.profiles.active=nonblocking"));
+    }
+
+    private void report(String mode, List<String> appArgs) throws Exception {
+        int httpPort = freePort();
+        Process process = start(httpPort, appArgs);
+        try {
+            awaitStarted(httpPort, process);
+
+            List<Long> latencies = new ArrayList<>();
+            Map<Integer, Integer> statuses = new TreeMap<>();
+            long start = System.nanoTime();
+            long fastLatency;
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<long[]>> results = new ArrayList<>();
+                for (int i = 0; i < clients; i++) {
+                    int client = i;
+                    results.add(executor.submit(() -> slowClient(httpPort, client)));
+                }
+
+                // Client rapide pendant que les clients lents envoient leur corps
+                Thread.sleep(chunkDelayMs * chunks / 2);
+                long fastStart = System.nanoTime();
+                post(httpPort, body(-1), 1, 0);
+                fastLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fastStart);
+
+                for (Future<long[]> result : results) {
+                    long[] outcome = result.get();
+                    statuses.merge((int) outcome[0], 1, Integer::sum);
+                    latencies.add(outcome[1]);
+                }
+            }
+
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            latencies.sort(Long::compare);
+            System.out.printf("[%s] %d clients lents (%d morceaux, %d ms d'écart) : total=%d ms, "
+                            + "latence p50=%d p99=%d max=%d ms, client rapide=%d ms, statuts=%s (0 = erreur réseau), mails=%d%n",
+                    mode, clients, chunks, chunkDelayMs, elapsed,
+                    latencies.get(latencies.size() / 2), latencies.get(latencies.size() * 99 / 100),
+                    latencies.get(latencies.size() - 1), fastLatency, statuses, greenMail.getReceivedMessages().length);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * @return {statut HTTP (0 si erreur réseau), latence en ms}
+     */
+    private long[] slowClient(int httpPort, int client) {
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = post(httpPort, body(client), chunks, chunkDelayMs);
+        } catch (IOException | InterruptedException e) {
+            status = 0;
+        }
+        return new long[]{status, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)};
+    }
+
+    private int post(int httpPort, byte[] body, int parts, long delayMs) throws IOException, InterruptedException {
+        try (Socket socket = new Socket("localhost", httpPort)) {
+            socket.setSoTimeout((int) STARTUP_TIMEOUT.toMillis() * 5);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /api/mail/send HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            int size = Math.max(1, (body.length + parts - 1) / parts);
+            for (int offset = 0; offset < body.length; offset += size) {
+                out.write(body, offset, Math.min(size, body.length - offset));
+                out.flush();
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+            }
+            return statusCode(socket.getInputStream());
+        }
+    }
+
+    private static int statusCode(InputStream in) throws IOException {
+        // "HTTP/1.1 200 ..."
+        byte[] statusLine = in.readNBytes(12);
+        in.transferTo(OutputStream.nullOutputStream());
+        return statusLine.length == 12 ? Integer.parseInt(new String(statusLine, 9, 3, StandardCharsets.US_ASCII)) : 0;
+    }
+
+    private static byte[] body(int client) {
+        return REQUEST_BODY.formatted(client, Math.abs(client), client).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Process start(int httpPort, List<String> appArgs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of("-jar", STANDARD_JAR.toAbsolutePath().toString()));
+        command.addAll(appArgs);
+        command.addAll(List.of(
+                "--server.port=" + httpPort,
+                "--app.mail.rate-limit.enabled=false",
+                "--app.mail.scheduled.enabled=false",
+                "--app.mail.heavy-hitters.enabled=false",
+                "--spring.mail.host=localhost",
+                "--spring.mail.port=" + smtpPort,
+                "--spring.mail.properties.mail.smtp.auth=false",
+                "--spring.mail.properties.mail.smtp.ssl.enable=false",
+                "--spring.mail.properties.mail.smtp.socketFactory.class=javax.net.SocketFactory",
+                "--spring.mail.properties.mail.smtp.socketFactory.port=" + smtpPort,
+                "--logging.level.root=WARN"));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    private static void awaitStarted(int httpPort, Process process) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertTrue(process.isAlive(), "Le processus s'est arrêté au démarrage");
+            try (Socket ignored = new Socket("localhost", httpPort)) {
+                return;
+            } catch (IOException e) {
+                // Serveur pas encore à l'écoute
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Serveur non démarré après " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
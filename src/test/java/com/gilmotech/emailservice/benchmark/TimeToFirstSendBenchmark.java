@@ -0,0 +1,164 @@
+package com.gilmotech.emailservice.benchmark;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Mesure le temps entre le lancement de la JVM et le premier envoi réussi
+ * sur /api/mail/send (SMTP GreenMail), en mode standard et en mode démarrage rapide.
+ *
+ * Pré-requis : mvn -Pfast-startup package -DskipTests
+ * Lancement  : mvn test -Dtest=TimeToFirstSendBenchmark -Dbenchmark.startup=true [-Dbenchmark.runs=5]
+ */
+@EnabledIfSystemProperty(named = "benchmark.startup", matches = "true")
+class TimeToFirstSendBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final Path STANDARD_JAR = TARGET.resolve("email-service-0.0.1-SNAPSHOT.jar");
+    private static final Path FAST_STARTUP_DIR = TARGET.resolve("fast-startup");
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final String REQUEST_BODY = """
+            {
+              "appCode": "GILMOTECH",
+              "mailType": "CONTACT_FORM",
+              "name": "Benchmark",
+              "email": "benchmark@test.com",
+              "message": "Mesure du temps jusqu'au premier envoi",
+              "website": ""
+            }
+            """;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    private GreenMail greenMail;
+    private int smtpPort;
+
+    @BeforeEach
+    void startSmtp() throws IOException {
+        smtpPort = freePort();
+        greenMail = new GreenMail(new ServerSetup(smtpPort, "localhost", ServerSetup.PROTOCOL_SMTP))
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        greenMail.start();
+    }
+
+    @AfterEach
+    void stopSmtp() {
+        greenMail.stop();
+    }
+
+    @Test
+    void standardMode() throws Exception {
+        assumeTrue(Files.exists(STANDARD_JAR), "Jar absent: " + STANDARD_JAR);
+        report("standard", List.of("-jar", STANDARD_JAR.toAbsolutePath().toString()), TARGET);
+    }
+
+    @Test
+    void fastStartupMode() throws Exception {
+        assumeTrue(Files.exists(FAST_STARTUP_DIR.resolve("email-service.jsa")),
+                "Archive CDS absente, lancer mvn -Pfast-startup package");
+        report("fast-startup", List.of(
+                "-XX:SharedArchiveFile=email-service.jsa",
+                "-Dspring.aot.enabled=true",
+                "-jar", "email-service.jar"), FAST_STARTUP_DIR);
+    }
+
+    private void report(String mode, List<String> jvmArgs, Path workingDir) throws Exception {
+        int runs = Integer.getInteger("benchmark.runs", 3);
+        List<Long> timings = new ArrayList<>();
+
+        for (int i = 0; i < runs; i++) {
+            timings.add(timeToFirstSend(jvmArgs, workingDir));
+        }
+
+        timings.sort(Long::compare);
+        System.out.printf("[%s] time-to-first-send (ms) : min=%d median=%d max=%d (%d runs)%n",
+                mode, timings.get(0), timings.get(timings.size() / 2), timings.get(timings.size() - 1), runs);
+    }
+
+    private long timeToFirstSend(List<String> jvmArgs, Path workingDir) throws Exception {
+        int httpPort = freePort();
+        int receivedBefore = greenMail.getReceivedMessages().length;
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of(
+                "--server.port=" + httpPort,
+                "--app.mail.rate-limit.enabled=false",
+                "--app.mail.scheduled.enabled=false",
+                "--spring.mail.host=localhost",
+                "--spring.mail.port=" + smtpPort,
+                "--spring.mail.properties.mail.smtp.auth=false",
+                "--spring.mail.properties.mail.smtp.ssl.enable=false",
+                "--spring.mail.properties.mail.smtp.socketFactory.class=javax.net.SocketFactory",
+                "--spring.mail.properties.mail.smtp.socketFactory.port=" + smtpPort,
+                "--logging.level.root=WARN"));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + httpPort + "/api/mail/send"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        try {
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                assertTrue(process.isAlive(), "Le processus s'est arrêté avant le premier envoi");
+                try {
+                    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 200) {
+                        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        assertTrue(greenMail.getReceivedMessages().length > receivedBefore);
+                        return elapsed;
+                    }
+                } catch (IOException e) {
+                    // Serveur pas encore à l'écoute
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("Aucun envoi réussi après " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.gilmotech.emailservice.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotRejectionFilterTest {
+
+    private static final String LARGE_ATTACHMENT = "A".repeat(500_000);
+
+    private BotRejectionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new BotRejectionFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "maxContentLengthMb", 1L);
+        ReflectionTestUtils.setField(filter, "scanWindowKb", 64);
+        ReflectionTestUtils.setField(filter, "maxStrikes", 2);
+        ReflectionTestUtils.setField(filter, "strikeWindowMinutes", 60L);
+        ReflectionTestUtils.setField(filter, "maxTrackedIps", 100);
+    }
+
+    @Test
+    void doFilter_HoneypotFilled_RejectedAfterReadingPrefixOnly() throws Exception {
+        // Given
+        String body = """
+                {"appCode":"ASSURANTIS","website":"http://spam.example","attachments":[{"content":"%s"}]}
+                """.formatted(LARGE_ATTACHMENT);
+        ByteArrayInputStream bodyStream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        BotRejectionFilter.ScanResult scan = filter.scanHoneypot(bodyStream);
+        MockHttpServletResponse response = send(body, "10.0.0.1", chain);
+
+        // Then
+        assertTrue(scan.bot());
+        assertTrue(bodyStream.available() > LARGE_ATTACHMENT.length() - 10_000);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("SPAM_DETECTED"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void doFilter_HoneypotEmpty_ReplaysFullBody() throws Exception {
+        // Given
+        String body = """
+                {"appCode":"ASSURANTIS","attachments":[{"content":"%s"}],"website":""}
+                """.formatted(LARGE_ATTACHMENT);
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        MockHttpServletResponse response = send(body, "10.0.0.2", chain);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        byte[] replayed = chain.getRequest().getInputStream().readAllBytes();
+        assertEquals(body, new String(replayed, StandardCharsets.UTF_8));
+        assertThrows(IllegalStateException.class,
+                () -> chain.getRequest().getInputStream().setReadListener(null));
+    }
+
+    @Test
+    void doFilter_RepeatedOffender_RejectedWithoutReadingBody() throws Exception {
+        // Given
+        String spam = "{\"website\":\"x\"}";
+        send(spam, "10.0.0.3", new MockFilterChain());
+        send(spam, "10.0.0.3", new MockFilterChain());
+
+        // When
+        MockHttpServletResponse response = send("{\"website\":\"\"}", "10.0.0.3", new MockFilterChain());
+
+        // Then
+        assertEquals(403, response.getStatus());
+        assertTrue(response.getContentAsString().contains("BOT_REJECTED"));
+    }
+
+    @Test
+    void doFilter_SpoofedForwardedFor_StrikesKeptOnConnectionAddress() throws Exception {
+        // Given : un X-Forwarded-For différent à chaque requête
+        String spam = "{\"website\":\"x\"}";
+        send(spam, "10.0.0.4", "198.51.100.1", new MockFilterChain());
+        send(spam, "10.0.0.4", "198.51.100.2", new MockFilterChain());
+
+        // When
+        MockHttpServletResponse response = send("{\"website\":\"\"}", "10.0.0.4", "198.51.100.3",
+                new MockFilterChain());
+
+        // Then
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void doFilter_ContentLengthTooLarge_Rejected() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/mail/send");
+        request.setContent(new byte[2 * 1024 * 1024]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, new MockFilterChain());
+
+        // Then
+        assertEquals(413, response.getStatus());
+    }
+
+    private MockHttpServletResponse send(String body, String ip, MockFilterChain chain) throws Exception {
+        return send(body, ip, null, chain);
+    }
+
+    private MockHttpServletResponse send(String body, String ip, String forwardedFor, MockFilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/mail/send");
+        request.setRemoteAddr(ip);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
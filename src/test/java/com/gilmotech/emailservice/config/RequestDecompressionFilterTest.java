@@ -0,0 +1,124 @@
+package com.gilmotech.emailservice.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDecompressionFilterTest {
+
+    private static final String BODY = """
+            {"appCode":"ASSURANTIS","name":"Jean Dupont","message":"%s"}
+            """.formatted("Bonjour ".repeat(1000));
+
+    private RequestDecompressionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RequestDecompressionFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "maxDecompressedMb", 4L);
+        ReflectionTestUtils.setField(filter, "maxRatio", 100);
+    }
+
+    @Test
+    void doFilter_Gzip_DecompressedBodyWithoutEncodingHeaders() throws Exception {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        MockHttpServletResponse response = send(gzip(BODY.getBytes(StandardCharsets.UTF_8)), "gzip", chain);
+
+        // Then
+        HttpServletRequest forwarded = (HttpServletRequest) chain.getRequest();
+        assertEquals(200, response.getStatus());
+        assertEquals(BODY, new String(forwarded.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(forwarded.getHeader("Content-Encoding"));
+        assertEquals(-1, forwarded.getContentLength());
+        assertThrows(IllegalStateException.class, () -> forwarded.getInputStream().setReadListener(null));
+    }
+
+    @Test
+    void doFilter_Deflate_ZlibAndRawAccepted() throws Exception {
+        for (boolean raw : new boolean[]{false, true}) {
+            // Given
+            MockFilterChain chain = new MockFilterChain();
+
+            // When
+            send(deflate(BODY.getBytes(StandardCharsets.UTF_8), raw), "deflate", chain);
+
+            // Then
+            HttpServletRequest forwarded = (HttpServletRequest) chain.getRequest();
+            assertEquals(BODY, new String(forwarded.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            // Inflater libéré en fin de corps : lectures et fermeture suivantes sans erreur
+            assertEquals(-1, forwarded.getInputStream().read());
+            assertDoesNotThrow(() -> forwarded.getInputStream().close());
+        }
+    }
+
+    @Test
+    void doFilter_ZipBomb_RejectedOnRatioBeforeSizeCap() throws Exception {
+        // Given : 3 Mo de zéros compressés à ~1000:1, sous le plafond de 4 Mo
+        MockFilterChain chain = new MockFilterChain();
+        send(gzip(new byte[3 * 1024 * 1024]), "gzip", chain);
+        HttpServletRequest forwarded = (HttpServletRequest) chain.getRequest();
+
+        // When & Then
+        RequestDecompressionFilter.DecompressionLimitException limit = assertThrows(
+                RequestDecompressionFilter.DecompressionLimitException.class,
+                () -> forwarded.getInputStream().readAllBytes());
+        assertTrue(limit.getMessage().contains("100:1"));
+    }
+
+    @Test
+    void doFilter_UnsupportedEncoding_Rejected415() throws Exception {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        MockHttpServletResponse response = send(BODY.getBytes(StandardCharsets.UTF_8), "br", chain);
+
+        // Then
+        assertEquals(415, response.getStatus());
+        assertTrue(response.getContentAsString().contains("UNSUPPORTED_CONTENT_ENCODING"));
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletResponse send(byte[] body, String encoding, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/mail/send");
+        request.setContentType("application/json");
+        request.addHeader("Content-Encoding", encoding);
+        request.setContent(body);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] deflate(byte[] content, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(content);
+        }
+        return out.toByteArray();
+    }
+}
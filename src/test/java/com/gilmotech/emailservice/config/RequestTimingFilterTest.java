@@ -0,0 +1,42 @@
+package com.gilmotech.emailservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingFilterTest {
+
+    private final RequestTimingFilter filter = newFilter();
+
+    @Test
+    void doFilter_TimingAllowOrigin_OnlyForCorsAllowedOrigins() throws Exception {
+        // When
+        MockHttpServletResponse allowed = send("http://localhost:4200");
+        MockHttpServletResponse unknown = send("https://evil.example");
+
+        // Then
+        assertEquals("http://localhost:4200", allowed.getHeader("Timing-Allow-Origin"));
+        assertNull(unknown.getHeader("Timing-Allow-Origin"));
+        assertNotNull(unknown.getHeader(RequestTimingFilter.CORRELATION_HEADER));
+    }
+
+    private MockHttpServletResponse send(String origin) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/mail/send");
+        request.addHeader("Origin", origin);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static RequestTimingFilter newFilter() {
+        RequestTimingFilter filter = new RequestTimingFilter(new CorsConfig().corsConfigurationSource());
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "slowThresholdMs", 3000L);
+        ReflectionTestUtils.setField(filter, "slowSampleRate", 1.0);
+        return filter;
+    }
+}
@@ -0,0 +1,56 @@
+package com.gilmotech.emailservice.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedBodyBudgetTest {
+
+    @Test
+    void tryReserve_OverCapacity_RefusedUntilReleased() {
+        // Given
+        BufferedBodyBudget budget = new BufferedBodyBudget(100);
+        assertTrue(budget.tryReserve(80));
+
+        // When / Then
+        assertFalse(budget.tryReserve(30));
+        budget.release(80);
+        assertTrue(budget.tryReserve(30));
+        assertEquals(30, budget.getUsedBytes());
+    }
+
+    @Test
+    void tryReserve_LargerThanBudget_PassesAlone() {
+        // Given
+        BufferedBodyBudget budget = new BufferedBodyBudget(100);
+
+        // When / Then : tronquée au budget, puis plus rien ne passe
+        assertTrue(budget.tryReserve(500));
+        assertEquals(100, budget.getUsedBytes());
+        assertFalse(budget.tryReserve(1));
+        budget.release(500);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    void reserveOrWait_BudgetFull_ResumedOnRelease() {
+        // Given
+        BufferedBodyBudget budget = new BufferedBodyBudget(100);
+        budget.tryReserve(100);
+        AtomicInteger resumed = new AtomicInteger();
+
+        // When
+        boolean reserved = budget.reserveOrWait(10, resumed::incrementAndGet);
+
+        // Then : lecture suspendue, reprise une seule fois à la libération
+        assertFalse(reserved);
+        assertEquals(1, budget.getWaitingCount());
+        budget.release(50);
+        assertEquals(1, resumed.get());
+        assertEquals(0, budget.getWaitingCount());
+        assertTrue(budget.reserveOrWait(10, resumed::incrementAndGet));
+        assertEquals(60, budget.getUsedBytes());
+    }
+}
@@ -42,9 +42,9 @@ class MailIntegrationTest {
         // When
         mailService.sendMail(request);
 
-        // Then
+        // Then : email admin + email de confirmation
         MimeMessage[] receivedMessages = greenMail.getReceivedMessages();
-        assertEquals(1, receivedMessages.length);
+        assertEquals(2, receivedMessages.length);
 
         MimeMessage received = receivedMessages[0];
         assertTrue(received.getSubject().contains("contact"));
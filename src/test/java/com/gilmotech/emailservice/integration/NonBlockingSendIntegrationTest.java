@@ -0,0 +1,112 @@
+package com.gilmotech.emailservice.integration;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "nonblocking"})
+class NonBlockingSendIntegrationTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("test", "test"))
+            .withPerMethodLifecycle(false);
+
+    private static final String VALID_BODY = """
+            {
+              "appCode": "ASSURANTIS",
+              "mailType": "CONTACT_FORM",
+              "name": "Client Lent",
+              "email": "lent@test.com",
+              "message": "Corps envoyé en plusieurs fois",
+              "website": ""
+            }
+            """;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void sendMail_SlowClient_BodyReadWithoutBlocking() throws Exception {
+        // Given : corps envoyé en trois morceaux espacés
+        byte[] body = VALID_BODY.getBytes(StandardCharsets.UTF_8);
+        int before = greenMail.getReceivedMessages().length;
+
+        // When
+        String response;
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /api/mail/send HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            int third = body.length / 3;
+            for (int offset = 0; offset < body.length; offset += third) {
+                out.write(body, offset, Math.min(third, body.length - offset));
+                out.flush();
+                Thread.sleep(200);
+            }
+            response = readAll(socket.getInputStream());
+        }
+
+        // Then : email admin + email de confirmation, détail des étapes dans la réponse
+        assertTrue(response.startsWith("HTTP/1.1 200"), response);
+        assertTrue(response.contains("\"success\":true"), response);
+        assertTrue(response.contains("X-Correlation-Id: "), response);
+        assertTrue(response.contains("Server-Timing: validate;dur="), response);
+        assertEquals(before + 2, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void sendMail_MalformedJson_Returns400() throws Exception {
+        // When
+        HttpResponse<String> response = post("{\"appCode\": \"ASSURANTIS\", \"name\": ");
+
+        // Then
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("INVALID_REQUEST_BODY"), response.body());
+    }
+
+    @Test
+    void sendMail_InvalidFields_ReturnsValidationErrors() throws Exception {
+        // When
+        HttpResponse<String> response = post(VALID_BODY.replace("lent@test.com", "pas-un-email"));
+
+        // Then : même format que GlobalExceptionHandler
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("VALIDATION_ERROR"), response.body());
+        assertTrue(response.body().contains("\"email\""), response.body());
+    }
+
+    private HttpResponse<String> post(String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/mail/send"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        in.transferTo(buffer);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,198 @@
+package com.gilmotech.emailservice.monitoring;
+
+import com.gilmotech.emailservice.controller.MailController;
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.dto.MailResponseDto;
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailConfiguration;
+import com.gilmotech.emailservice.model.MailType;
+import com.gilmotech.emailservice.service.AdaptiveConcurrencyLimiter;
+import com.gilmotech.emailservice.service.AdminDigestService;
+import com.gilmotech.emailservice.service.AttachmentMemoryBudget;
+import com.gilmotech.emailservice.service.AttachmentStore;
+import com.gilmotech.emailservice.service.BrandAssetRegistry;
+import com.gilmotech.emailservice.service.ConfigurationService;
+import com.gilmotech.emailservice.service.ConfirmationRedeliveryService;
+import com.gilmotech.emailservice.service.FileValidationService;
+import com.gilmotech.emailservice.service.MailService;
+import com.gilmotech.emailservice.service.SendScheduler;
+import com.gilmotech.emailservice.service.ScheduledMailService;
+import com.gilmotech.emailservice.service.SpamHeavyHitterDetector;
+import com.gilmotech.emailservice.service.SuppressionList;
+import com.gilmotech.emailservice.service.TemplateService;
+import com.gilmotech.emailservice.service.TenantMailSenderRegistry;
+import com.gilmotech.emailservice.service.UploadService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.MDC;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class MailStageEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sendMail_EmitsOneEventPerStage() throws Exception {
+        // Given
+        MailController controller = new MailController(mailService(), mock(ScheduledMailService.class));
+        MailRequestDto request = claimRequest();
+
+        Configuration settings;
+        try (Reader jfc = new InputStreamReader(Objects.requireNonNull(
+                getClass().getResourceAsStream("/jfr/email-service.jfc")), StandardCharsets.UTF_8)) {
+            settings = Configuration.create(jfc);
+        }
+
+        // When
+        Path output = tempDir.resolve("mail.jfr");
+        try (Recording recording = new Recording(settings)) {
+            recording.start();
+            controller.sendMail(request);
+            recording.stop();
+            recording.dump(output);
+        }
+
+        // Then
+        Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(output).stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.gilmotech.email."))
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+        RecordedEvent mailRequest = events.get("com.gilmotech.email.MailRequest").get(0);
+        assertEquals("ASSURANTIS", mailRequest.getString("appCode"));
+        assertEquals(200, mailRequest.getInt("status"));
+        assertTrue(mailRequest.getString("reference").startsWith("SIN-"));
+
+        RecordedEvent validation = events.get("com.gilmotech.email.AttachmentValidation").get(0);
+        assertEquals(1, validation.getInt("attachmentCount"));
+
+        List<RecordedEvent> renders = events.get("com.gilmotech.email.TemplateRender");
+        assertEquals(List.of("email/assurantis/claim_admin", "email/assurantis/claim_confirmation"),
+                renders.stream().map(event -> event.getString("templatePath")).toList());
+
+        assertEquals(2, events.get("com.gilmotech.email.MimeAssembly").size());
+
+        List<RecordedEvent> sends = events.get("com.gilmotech.email.SmtpSend");
+        assertEquals(2, sends.size());
+        for (RecordedEvent send : sends) {
+            assertEquals("CLAIM_REQUEST", send.getString("mailType"));
+            assertEquals(mailRequest.getString("reference"), send.getString("reference"));
+            assertTrue(send.getBoolean("success"));
+            assertTrue(send.getLong("bytes") > 0);
+        }
+    }
+
+    @Test
+    void sendMail_WithRequestTiming_ReturnsServerTimingForEachStage() {
+        // Given
+        MailController controller = new MailController(mailService(), mock(ScheduledMailService.class));
+        RequestTiming timing = new RequestTiming("req-42", 0, 1.0);
+
+        // When
+        ResponseEntity<MailResponseDto> response;
+        timing.bind();
+        try {
+            response = controller.sendMail(claimRequest());
+        } finally {
+            timing.unbind();
+        }
+        ResponseEntity<MailResponseDto> untimed = controller.sendMail(claimRequest());
+
+        // Then
+        String serverTiming = response.getHeaders().getFirst("Server-Timing");
+        assertNotNull(serverTiming);
+        for (RequestTiming.Stage stage : RequestTiming.Stage.values()) {
+            assertTrue(serverTiming.contains(stage.getMetricName() + ";dur="), serverTiming);
+        }
+        assertTrue(serverTiming.matches(".*, total;dur=\\d+\\.\\d{2}$"), serverTiming);
+        assertTrue(timing.getStageNanos(RequestTiming.Stage.SMTP_ADMIN) > 0);
+        assertTrue(timing.getStageNanos(RequestTiming.Stage.SMTP_CONFIRM) > 0);
+        assertNull(MDC.get(RequestTiming.MDC_KEY));
+        assertNull(untimed.getHeaders().getFirst("Server-Timing"));
+    }
+
+    private MailService mailService() {
+        MailConfiguration config = new MailConfiguration();
+        config.setAppCode(AppCode.fromString("ASSURANTIS"));
+        config.setMailType(MailType.CLAIM_REQUEST);
+        config.setFromAddress("contact@assurantis.be");
+        config.setFromName("Assurantis");
+        config.setToAddresses(List.of("contact@assurantis.be"));
+        config.setSubject("Nouvelle déclaration de sinistre");
+        config.setTemplatePath("email/assurantis/claim_admin");
+        config.setTemplatePathConfirmation("email/assurantis/claim_confirmation");
+
+        JavaMailSender mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage()).thenAnswer(i -> new MimeMessage(Session.getInstance(new Properties())));
+
+        TenantMailSenderRegistry registry = mock(TenantMailSenderRegistry.class);
+        when(registry.senderFor(any())).thenReturn(mailSender);
+
+        ConfigurationService configService = mock(ConfigurationService.class);
+        when(configService.getConfiguration(any(), any())).thenReturn(config);
+
+        TemplateService templateService = mock(TemplateService.class);
+        when(templateService.generateHtmlContent(any(), any())).thenReturn("<html>Sinistre</html>");
+        when(templateService.generateTextContent(any())).thenReturn("Sinistre");
+
+        FileValidationService fileValidationService = mock(FileValidationService.class);
+        when(fileValidationService.validateAttachments(any())).thenReturn(AttachmentMemoryBudget.Reservation.NONE);
+
+        return new MailService(registry, configService, templateService, fileValidationService,
+                mock(ConfirmationRedeliveryService.class), mock(SpamHeavyHitterDetector.class),
+                mock(AdminDigestService.class), mock(AttachmentStore.class), directScheduler(),
+                mock(BrandAssetRegistry.class), mock(UploadService.class),
+                new AdaptiveConcurrencyLimiter(true, 20, 2, 200, 1.5, 0.2, 0.9, 2, new SimpleMeterRegistry()),
+                mock(SuppressionList.class));
+    }
+
+    private SendScheduler directScheduler() {
+        SendScheduler scheduler = mock(SendScheduler.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(scheduler).execute(any(), anyLong(), any());
+        return scheduler;
+    }
+
+    private MailRequestDto claimRequest() {
+        FileAttachmentDto attachment = new FileAttachmentDto();
+        attachment.setFilename("constat.pdf");
+        attachment.setMimeType("application/pdf");
+        attachment.setContent("JVBERi0xLjQKJcOkw7zDtsOf");
+
+        MailRequestDto request = new MailRequestDto();
+        request.setAppCode("ASSURANTIS");
+        request.setMailType("CLAIM_REQUEST");
+        request.setName("Jean Dupont");
+        request.setEmail("jean@example.com");
+        request.setMessage("Dégât des eaux");
+        request.setWebsite("");
+        request.setAttachments(List.of(attachment));
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void acquire_OverLimit_ShedImmediatelyWithDistinctCode() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2);
+        limiter.acquire();
+        limiter.acquire();
+
+        // When & Then
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class, limiter::acquire);
+        assertEquals("SEND_CONCURRENCY_LIMITED", e.getErrorCode());
+        assertEquals(1, meterRegistry.get("mail.send.concurrency.rejected").counter().count());
+        assertEquals(2, meterRegistry.get("mail.send.concurrency.inflight").gauge().value());
+    }
+
+    @Test
+    void limit_GrowsWhenLatencyStable_ShrinksWhenLatencyRises() throws Exception {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(4);
+
+        // When : latence stable, limite saturée
+        for (int i = 0; i < 5; i++) {
+            runWindow(limiter, 1);
+        }
+        int grown = limiter.getLimit();
+
+        // Puis latence multipliée par 50 (écart large : insensible à la gigue des timers)
+        for (int i = 0; i < 5; i++) {
+            runWindow(limiter, 50);
+        }
+
+        // Then
+        assertTrue(grown > 4, "limite après latence stable: " + grown);
+        assertTrue(limiter.getLimit() < grown, "limite après hausse de latence: " + limiter.getLimit());
+        assertEquals(limiter.getLimit(), meterRegistry.get("mail.send.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void dropped_LimitBacksOffMultiplicatively() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+
+        // When
+        limiter.acquire().dropped();
+        limiter.acquire().dropped();
+
+        // Then
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(true, initialLimit, 2, 100, 1.5, 0.5, 0.9, 2, meterRegistry);
+    }
+
+    /**
+     * Une fenêtre de 10 envois, autant que possible en parallèle (limite atteinte)
+     */
+    private void runWindow(AdaptiveConcurrencyLimiter limiter, long latencyMs) throws InterruptedException {
+        int done = 0;
+        while (done < 10) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            while (permits.size() < limiter.getLimit()) {
+                permits.add(limiter.acquire());
+            }
+            Thread.sleep(latencyMs);
+            for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+                permit.success();
+                done++;
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailConfiguration;
+import com.gilmotech.emailservice.model.MailType;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AdminDigestServiceTest {
+
+    private static final AppCode ASSURANTIS = AppCode.fromString("ASSURANTIS");
+
+    private JavaMailSender mailSender;
+    private AdminDigestService digestService;
+    private MailConfiguration config;
+
+    @BeforeEach
+    void setUp() {
+        mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage()).thenAnswer(i -> new MimeMessage(Session.getInstance(new Properties())));
+        TenantMailSenderRegistry registry = mock(TenantMailSenderRegistry.class);
+        when(registry.senderFor(ASSURANTIS)).thenReturn(mailSender);
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+
+        digestService = new AdminDigestService(registry, new TemplateService(engine, new TemplatePlanRenderer(engine, true)),
+                mock(ConfirmationRedeliveryService.class));
+
+        config = new MailConfiguration();
+        config.setAppCode(ASSURANTIS);
+        config.setMailType(MailType.CONTACT_FORM);
+        config.setFromAddress("contact@assurantis.be");
+        config.setFromName("Assurantis");
+        config.setToAddresses(List.of("contact@assurantis.be"));
+        config.setSubject("Nouveau message de contact - Assurantis");
+        config.getDigest().setEnabled(true);
+        config.getDigest().setMaxEntries(3);
+        config.getDigest().setMaxDelaySeconds(3600);
+    }
+
+    @Test
+    void add_MaxEntriesReached_SendsSingleDigest() throws Exception {
+        // When
+        for (int i = 1; i <= 3; i++) {
+            digestService.add(config, variables("CNT-2025-000" + i, "Client " + i));
+        }
+
+        // Then
+        ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
+        verify(mailSender, timeout(2000).times(1)).send(captor.capture());
+
+        MimeMessage digest = captor.getValue();
+        assertEquals("Nouveau message de contact - Assurantis (récapitulatif de 3 message(s))", digest.getSubject());
+        String raw = raw(digest);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(raw.contains("CNT-2025-000" + i));
+            assertTrue(raw.contains("Client " + i));
+        }
+        assertEquals(0, digestService.getPendingCount());
+    }
+
+    @Test
+    void flushDue_MaxDelayReached_SendsPendingEntries() {
+        // Given
+        config.getDigest().setMaxDelaySeconds(0);
+        digestService.add(config, variables("CNT-2025-0001", "Client"));
+
+        // When
+        digestService.flushDue();
+
+        // Then
+        verify(mailSender, timeout(2000).times(1)).send(any(MimeMessage.class));
+        assertEquals(0, digestService.getPendingCount());
+    }
+
+    @Test
+    void add_NonTextAdditionalData_ConvertedToText() throws Exception {
+        // Given : additionalData {"name": 1} remplace le nom dans les variables du template
+        config.getDigest().setMaxEntries(1);
+        Map<String, Object> variables = new HashMap<>(variables("CNT-2025-0001", "Client"));
+        variables.put("name", 1);
+        variables.put("phone", List.of("0470", "0471"));
+
+        // When
+        digestService.add(config, variables);
+
+        // Then
+        ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
+        verify(mailSender, timeout(2000).times(1)).send(captor.capture());
+        assertTrue(raw(captor.getValue()).contains("CNT-2025-0001"));
+    }
+
+    private Map<String, Object> variables(String reference, String name) {
+        return Map.of(
+                "reference", reference,
+                "name", name,
+                "email", "client@example.com",
+                "phone", "",
+                "message", "Bonjour, je souhaite un rendez-vous."
+        );
+    }
+
+    private String raw(MimeMessage message) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        message.writeTo(output);
+        // Retours à la ligne « souples » du quoted-printable
+        return output.toString(StandardCharsets.UTF_8).replace("=\r\n", "");
+    }
+}
@@ -0,0 +1,52 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentMemoryBudgetTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void reserve_BudgetExhausted_ThrowsServiceOverloaded() {
+        // Given
+        AttachmentMemoryBudget budget = new AttachmentMemoryBudget(10, 50, 7);
+        AttachmentMemoryBudget.Reservation first = budget.reserve(8 * MB);
+
+        // When & Then
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> budget.reserve(4 * MB));
+        assertEquals(7, e.getRetryAfterSeconds());
+        assertEquals(8 * MB, budget.getInFlightBytes());
+
+        first.close();
+        assertEquals(0, budget.getInFlightBytes());
+    }
+
+    @Test
+    void reserve_WaitsForRelease() throws Exception {
+        // Given
+        AttachmentMemoryBudget budget = new AttachmentMemoryBudget(10, 5_000, 5);
+        AttachmentMemoryBudget.Reservation first = budget.reserve(8 * MB);
+
+        // When
+        CompletableFuture<AttachmentMemoryBudget.Reservation> second =
+                CompletableFuture.supplyAsync(() -> budget.reserve(4 * MB));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        first.close();
+
+        // Then
+        try (AttachmentMemoryBudget.Reservation reservation = second.get(2, TimeUnit.SECONDS)) {
+            assertEquals(4 * MB, budget.getInFlightBytes());
+            reservation.adjust(3 * MB);
+            assertEquals(3 * MB, budget.getInFlightBytes());
+        }
+        assertEquals(0, budget.getInFlightBytes());
+    }
+}
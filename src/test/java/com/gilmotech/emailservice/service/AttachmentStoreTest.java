@@ -0,0 +1,120 @@
+package com.gilmotech.emailservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private AttachmentStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new AttachmentStore(true, 1, 24, directory.toString(), "https://mail.example.be/", "secret");
+        store.init();
+    }
+
+    @Test
+    void store_SameContentTwice_WrittenOnceWithValidLinks() throws Exception {
+        // Given
+        byte[] content = new byte[4096];
+
+        // When
+        AttachmentStore.StoredAttachment first = store.store(content, "photo 1.jpg", "image/jpeg");
+        AttachmentStore.StoredAttachment second = store.store(content, "photo 2.jpg", "image/jpeg");
+
+        // Then
+        assertEquals(1, countFiles());
+        assertTrue(first.getUrl().startsWith("https://mail.example.be/api/attachments/"));
+        assertTrue(resolve(first.getUrl()).isPresent());
+        assertTrue(resolve(second.getUrl()).isPresent());
+    }
+
+    @Test
+    void resolve_TamperedLink_Rejected() {
+        // Given
+        AttachmentStore.StoredAttachment stored = store.store(new byte[2048], "constat.pdf", "application/pdf");
+        UriComponents uri = UriComponentsBuilder.fromUriString(stored.getUrl()).build();
+        String hash = uri.getPathSegments().get(2);
+        long expires = Long.parseLong(uri.getQueryParams().getFirst("expires"));
+        String sig = uri.getQueryParams().getFirst("sig");
+
+        // When & Then
+        assertTrue(store.resolve(hash, "constat.pdf", "application/pdf", expires, sig).isPresent());
+        assertTrue(store.resolve(hash, "constat.pdf", "text/html", expires, sig).isEmpty());
+        assertTrue(store.resolve(hash, "constat.pdf", "application/pdf", expires + 3600, sig).isEmpty());
+        assertTrue(store.resolve("../../etc/passwd", "constat.pdf", "application/pdf", expires, sig).isEmpty());
+    }
+
+    @Test
+    void evictExpired_RemovesOnlyOldFiles() throws Exception {
+        // Given
+        store.store(new byte[2048], "ancien.pdf", "application/pdf");
+        try (Stream<Path> files = Files.walk(directory)) {
+            Path old = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+            Files.setLastModifiedTime(old, FileTime.from(Instant.now().minus(25, ChronoUnit.HOURS)));
+        }
+        store.store(new byte[3000], "recent.pdf", "application/pdf");
+
+        // When
+        store.evictExpired();
+
+        // Then
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void shouldOffload_OnlyAboveThreshold() {
+        assertFalse(store.shouldOffload(1024));
+        assertTrue(store.shouldOffload(1025));
+    }
+
+    @Test
+    void init_MissingPublicUrlOrSigningKey_Refused() {
+        // Given
+        AttachmentStore noUrl = new AttachmentStore(true, 1, 24, directory.toString(), "", "secret");
+        AttachmentStore noKey = new AttachmentStore(true, 1, 24, directory.toString(), "https://mail.example.be", "");
+        AttachmentStore disabled = new AttachmentStore(false, 1, 24, directory.toString(), "", "");
+
+        // When & Then
+        assertThrows(IllegalStateException.class, noUrl::init);
+        assertThrows(IllegalStateException.class, noKey::init);
+        assertDoesNotThrow(disabled::init);
+    }
+    private Optional<Path> resolve(String url) {
+        UriComponents uri = UriComponentsBuilder.fromUriString(url).build();
+        return store.resolve(
+                uri.getPathSegments().get(2),
+                decode(uri.getQueryParams().getFirst("name")),
+                decode(uri.getQueryParams().getFirst("type")),
+                Long.parseLong(uri.getQueryParams().getFirst("expires")),
+                uri.getQueryParams().getFirst("sig"));
+    }
+
+    private String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private long countFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.gilmotech.emailservice.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BounceProcessorTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.IMAP);
+
+    @TempDir
+    Path tempDir;
+
+    private SuppressionList suppressionList;
+    private BounceProcessor processor;
+    private GreenMailUser mailbox;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        suppressionList = new SuppressionList(true, tempDir.toString(), 1000, 0.01);
+        suppressionList.init();
+        mailbox = greenMail.setUser("bounces@assurantis.be", "bounces", "secret");
+        processor = new BounceProcessor(suppressionList, true, "imap", "localhost",
+                ServerSetupTest.IMAP.getPort(), "bounces", "secret", "INBOX", true);
+    }
+
+    @Test
+    void processMailbox_HardBouncesSuppressed_SoftBouncesAndOtherMailIgnored() throws Exception {
+        // Given : un DSN (un échec définitif, un retard) et un message ordinaire
+        mailbox.deliver(dsn("""
+                Reporting-MTA: dns; relay.assurantis.be
+                Arrival-Date: Mon, 6 Jan 2025 09:00:00 +0100
+
+                Final-Recipient: rfc822; Jean.Dupont@Gmial.com
+                Action: failed
+                Status: 5.1.1 (user unknown)
+
+                Final-Recipient: rfc822; marie@lent.example
+                Action: delayed
+                Status: 4.4.1
+                """));
+        MimeMessage other = new MimeMessage(Session.getInstance(new Properties()));
+        other.setFrom(new InternetAddress("client@example.com"));
+        other.setSubject("Re: Confirmation de votre demande");
+        other.setText("Merci !");
+        mailbox.deliver(other);
+
+        // When
+        int added = processor.processMailbox();
+
+        // Then
+        assertEquals(1, added);
+        assertTrue(suppressionList.isSuppressed("jean.dupont@gmial.com"));
+        assertFalse(suppressionList.isSuppressed("marie@lent.example"));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals("Re: Confirmation de votre demande", greenMail.getReceivedMessages()[0].getSubject());
+    }
+
+    @Test
+    void suppressionList_ExactOnDisk_SurvivesRestartAndRemoval() throws Exception {
+        // Given
+        suppressionList.add("client@example.com", "test");
+
+        // When
+        SuppressionList restarted = new SuppressionList(true, tempDir.toString(), 1000, 0.01);
+        restarted.init();
+        boolean removed = restarted.remove(" Client@Example.com ");
+
+        // Then
+        assertTrue(removed);
+        assertFalse(restarted.isSuppressed("client@example.com"));
+        assertFalse(restarted.remove("client@example.com"));
+        assertEquals(0, restarted.getSize());
+    }
+
+    @Test
+    void bloomFilter_NoFalseNegatives_FalsePositivesNearTarget() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(CountMinSketch.hash("client" + i + "@example.com"));
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(CountMinSketch.hash("client" + i + "@example.com")));
+            if (filter.mightContain(CountMinSketch.hash("autre" + i + "@example.com"))) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives < 200, "faux positifs: " + falsePositives);
+    }
+
+    private MimeMessage dsn(String deliveryStatus) throws Exception {
+        MimeBodyPart explanation = new MimeBodyPart();
+        explanation.setText("Votre message n'a pas pu être remis.", "UTF-8");
+        MimeBodyPart status = new MimeBodyPart();
+        status.setDataHandler(new DataHandler(new ByteArrayDataSource(
+                deliveryStatus.replace("\n", "\r\n").getBytes(StandardCharsets.US_ASCII), "message/delivery-status")));
+        status.setHeader("Content-Type", "message/delivery-status");
+
+        MimeMultipart report = new MimeMultipart("report; report-type=delivery-status");
+        report.addBodyPart(explanation);
+        report.addBodyPart(status);
+
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setFrom(new InternetAddress("mailer-daemon@relay.assurantis.be"));
+        message.setSubject("Undelivered Mail Returned to Sender");
+        message.setContent(report);
+        message.saveChanges();
+        return message;
+    }
+}
@@ -0,0 +1,134 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.config.TenantProperties;
+import com.gilmotech.emailservice.model.AppCode;
+import jakarta.mail.IllegalWriteException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrandAssetRegistryTest {
+
+    private static final AppCode GILMOTECH = AppCode.fromString("GILMOTECH");
+    private static final AppCode ASSURANTIS = AppCode.fromString("ASSURANTIS");
+
+    private BrandAssetRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        TenantProperties.Tenant tenant = new TenantProperties.Tenant();
+        tenant.getBrandAssets().put("logo", "classpath:brand/logo.png");
+        TenantProperties properties = new TenantProperties();
+        properties.getTenants().put("GILMOTECH", tenant);
+        properties.getTenants().put("ASSURANTIS", new TenantProperties.Tenant());
+
+        registry = new BrandAssetRegistry(properties, new DefaultResourceLoader(), new ContentTypeSniffer());
+        registry.init();
+    }
+
+    @Test
+    void attachReferenced_SamePartReusedAcrossMessages() throws Exception {
+        // Given
+        String url = registry.urlsFor(GILMOTECH).get("logo");
+        String html = "<img src=\"" + url + "\">";
+        MimeMessageHelper first = newHelper();
+        MimeMessageHelper second = newHelper();
+
+        // When
+        registry.attachReferenced(GILMOTECH, first.getMimeMultipart(), html);
+        registry.attachReferenced(GILMOTECH, second.getMimeMultipart(), html);
+
+        // Then
+        assertEquals("cid:logo.gilmotech@brand", url);
+        assertSame(first.getMimeMultipart().getBodyPart(1), second.getMimeMultipart().getBodyPart(1));
+
+        String raw = serialize(first.getMimeMessage());
+        assertTrue(raw.contains("Content-ID: <logo.gilmotech@brand>"));
+        assertTrue(raw.contains("Content-Disposition: inline"));
+        String encoded = Base64.getMimeEncoder().encodeToString(
+                new DefaultResourceLoader().getResource("classpath:brand/logo.png").getContentAsByteArray());
+        assertTrue(raw.contains(encoded));
+        assertEquals(raw.replaceAll("Message-ID:.*|boundary=.*|------=.*", ""),
+                serialize(second.getMimeMessage()).replaceAll("Message-ID:.*|boundary=.*|------=.*", ""));
+    }
+
+    @Test
+    void attachReferenced_UnreferencedOrUnknownApp_NothingAttached() throws Exception {
+        // Given
+        MimeMessageHelper helper = newHelper();
+
+        // When
+        long gilmotechBytes = registry.attachReferenced(GILMOTECH, helper.getMimeMultipart(), "<p>Texte</p>");
+        long assurantisBytes = registry.attachReferenced(ASSURANTIS, helper.getMimeMultipart(),
+                "<img src=\"cid:logo.gilmotech@brand\">");
+
+        // Then
+        assertEquals(0, gilmotechBytes + assurantisBytes);
+        assertEquals(1, helper.getMimeMultipart().getCount());
+        assertTrue(registry.urlsFor(ASSURANTIS).isEmpty());
+    }
+
+    @Test
+    void sharedPart_IsReadOnly() throws Exception {
+        // Given
+        MimeMessageHelper helper = newHelper();
+        registry.attachReferenced(GILMOTECH, helper.getMimeMultipart(), "cid:logo.gilmotech@brand");
+
+        // When & Then
+        assertThrows(IllegalWriteException.class,
+                () -> helper.getMimeMultipart().getBodyPart(1).setHeader("Content-ID", "<autre@brand>"));
+    }
+
+    @Test
+    void template_ReferencesLogoByLogicalName() {
+        // Given
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+
+        Context withLogo = new Context();
+        withLogo.setVariable("assets", registry.urlsFor(GILMOTECH));
+        Context withoutLogo = new Context();
+        withoutLogo.setVariable("assets", registry.urlsFor(ASSURANTIS));
+
+        // When
+        String branded = engine.process("email/gilmotech/contact", withLogo);
+        String plain = engine.process("email/gilmotech/contact", withoutLogo);
+
+        // Then
+        assertTrue(branded.contains("src=\"cid:logo.gilmotech@brand\""));
+        assertFalse(plain.contains("<img"));
+        assertTrue(plain.contains("<span>GILMOTECH</span>"));
+    }
+
+    private MimeMessageHelper newHelper() throws Exception {
+        MimeMessageHelper helper = new MimeMessageHelper(new MimeMessage(Session.getInstance(new Properties())),
+                true, "UTF-8");
+        helper.setFrom("contact@gilmotech.be");
+        helper.setTo("client@test.com");
+        helper.setText("Texte", "<p>HTML</p>");
+        return helper;
+    }
+
+    private String serialize(MimeMessage message) throws Exception {
+        message.saveChanges();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,135 @@
+package com.gilmotech.emailservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRateCounterTest {
+
+    private static final String IP = "203.0.113.7";
+
+    private final List<ClusterRateCounter> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ClusterRateCounter::stop);
+    }
+
+    @Test
+    void countsMergedAcrossInstances_RepeatedSyncNotDoubleCounted() throws Exception {
+        // Given : trois instances sur localhost
+        List<ClusterRateCounter> cluster = startCluster(3, "secret", 60_000);
+        ClusterRateCounter a = cluster.get(0);
+        ClusterRateCounter b = cluster.get(1);
+        ClusterRateCounter c = cluster.get(2);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            a.record(IP);
+        }
+        b.record(IP);
+        b.record(IP);
+        for (int round = 0; round < 3; round++) {
+            cluster.forEach(ClusterRateCounter::gossip);
+        }
+
+        // Then
+        awaitTrue(() -> c.remoteCount(IP) == 5 && b.remoteCount(IP) == 3 && a.remoteCount(IP) == 2);
+        assertEquals(0, c.remoteCount("198.51.100.1"));
+        assertEquals(2, a.getLivePeerCount());
+    }
+
+    @Test
+    void silentPeer_NoLongerCounted() throws Exception {
+        // Given
+        List<ClusterRateCounter> cluster = startCluster(2, "secret", 300);
+        ClusterRateCounter a = cluster.get(0);
+        ClusterRateCounter b = cluster.get(1);
+        a.record(IP);
+        a.gossip();
+        awaitTrue(() -> b.remoteCount(IP) == 1);
+
+        // When : a ne répond plus
+        a.stop();
+        Thread.sleep(400);
+
+        // Then : b retombe sur ses propres compteurs
+        assertEquals(0, b.remoteCount(IP));
+        assertEquals(0, b.getLivePeerCount());
+    }
+
+    @Test
+    void packetsWithWrongSecret_Ignored() throws Exception {
+        // Given
+        int[] ports = freePorts(2);
+        ClusterRateCounter a = start(ports[0], ports[1], "secret-a", 60_000);
+        ClusterRateCounter b = start(ports[1], ports[0], "secret-b", 60_000);
+
+        // When
+        a.record(IP);
+        a.gossip();
+        Thread.sleep(200);
+
+        // Then
+        assertEquals(0, b.remoteCount(IP));
+        assertEquals(0, b.getLivePeerCount());
+    }
+
+    private List<ClusterRateCounter> startCluster(int size, String secret, long peerTimeoutMs) throws Exception {
+        int[] ports = freePorts(size);
+        List<ClusterRateCounter> cluster = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int[] others = new int[size - 1];
+            for (int j = 0, k = 0; j < size; j++) {
+                if (j != i) {
+                    others[k++] = ports[j];
+                }
+            }
+            cluster.add(start(ports[i], others, secret, peerTimeoutMs));
+        }
+        return cluster;
+    }
+
+    private ClusterRateCounter start(int port, int peerPort, String secret, long peerTimeoutMs) throws Exception {
+        return start(port, new int[]{peerPort}, secret, peerTimeoutMs);
+    }
+
+    private ClusterRateCounter start(int port, int[] peerPorts, String secret, long peerTimeoutMs) throws Exception {
+        List<String> peers = new ArrayList<>();
+        for (int peerPort : peerPorts) {
+            peers.add("127.0.0.1:" + peerPort);
+        }
+        ClusterRateCounter node = new ClusterRateCounter(
+                true, port, peers, peerTimeoutMs, 2, 3_600_000, secret, new SimpleMeterRegistry());
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private int[] freePorts(int count) throws Exception {
+        List<DatagramSocket> sockets = new ArrayList<>();
+        int[] ports = new int[count];
+        for (int i = 0; i < count; i++) {
+            DatagramSocket socket = new DatagramSocket(0);
+            sockets.add(socket);
+            ports[i] = socket.getLocalPort();
+        }
+        sockets.forEach(DatagramSocket::close);
+        return ports;
+    }
+
+    private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
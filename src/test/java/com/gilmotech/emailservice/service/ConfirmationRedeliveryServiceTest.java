@@ -0,0 +1,154 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailType;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.gilmotech.emailservice.service.ConfirmationRedeliveryService.Kind.ADMIN_DIGEST;
+import static com.gilmotech.emailservice.service.ConfirmationRedeliveryService.Kind.CONFIRMATION;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConfirmationRedeliveryServiceTest {
+
+    private static final AppCode ASSURANTIS = AppCode.fromString("ASSURANTIS");
+
+    private JavaMailSender mailSender;
+    private ConfirmationRedeliveryService redeliveryService;
+    private MimeMessage message;
+
+    @BeforeEach
+    void setUp() {
+        mailSender = mock(JavaMailSender.class);
+        TenantMailSenderRegistry registry = mock(TenantMailSenderRegistry.class);
+        when(registry.senderFor(ASSURANTIS)).thenReturn(mailSender);
+
+        redeliveryService = new ConfirmationRedeliveryService(registry, 3, 0, 0, 10, 10);
+        message = new MimeMessage(Session.getInstance(new Properties()));
+    }
+
+    @Test
+    void redeliverDue_RetriesUntilSent() {
+        // Given
+        doThrow(new MailSendException("SMTP indisponible"))
+                .doNothing()
+                .when(mailSender).send(any(MimeMessage.class));
+        redeliveryService.enqueue(CONFIRMATION, ASSURANTIS, MailType.CLAIM_REQUEST, "SIN-1", "client@test.com",
+                message, new MailSendException("SMTP indisponible"));
+
+        // When
+        redeliveryService.redeliverDue();
+        redeliveryService.redeliverDue();
+
+        // Then
+        verify(mailSender, times(2)).send(message);
+        assertEquals(0, redeliveryService.getQueueSize());
+        assertTrue(redeliveryService.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    void redeliverDue_MaxAttemptsReached_MovesToDeadLettersAndReplays() {
+        // Given
+        doThrow(new MailSendException("SMTP indisponible")).when(mailSender).send(any(MimeMessage.class));
+        redeliveryService.enqueue(CONFIRMATION, ASSURANTIS, MailType.QUOTE_REQUEST, "DEV-1", "client@test.com",
+                message, new MailSendException("SMTP indisponible"));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            redeliveryService.redeliverDue();
+        }
+
+        // Then
+        List<ConfirmationRedeliveryService.DeadLetter> deadLetters = redeliveryService.getDeadLetters();
+        assertEquals(1, deadLetters.size());
+        assertEquals("DEV-1", deadLetters.get(0).reference());
+        assertEquals(CONFIRMATION, deadLetters.get(0).kind());
+        assertEquals(3, deadLetters.get(0).attempts());
+        verify(mailSender, times(2)).send(message);
+
+        // Rejeu
+        doNothing().when(mailSender).send(any(MimeMessage.class));
+        assertEquals(1, redeliveryService.replayDeadLetters(List.of()));
+        redeliveryService.redeliverDue();
+        assertTrue(redeliveryService.getDeadLetters().isEmpty());
+        verify(mailSender, times(3)).send(message);
+    }
+
+    @Test
+    void redeliverDue_TenantBusy_RescheduledWithoutLosingBatchOrAttempt() {
+        // Given : deux confirmations en file, connexions du tenant occupées au premier renvoi
+        MimeMessage other = new MimeMessage(Session.getInstance(new Properties()));
+        doThrow(new ServiceOverloadedException("TENANT_BUSY", "Service momentanément surchargé", 2))
+                .doNothing()
+                .when(mailSender).send(message);
+        redeliveryService.enqueue(CONFIRMATION, ASSURANTIS, MailType.CLAIM_REQUEST, "SIN-1", "client@test.com",
+                message, new MailSendException("SMTP indisponible"));
+        redeliveryService.enqueue(CONFIRMATION, ASSURANTIS, MailType.CLAIM_REQUEST, "SIN-2", "autre@test.com",
+                other, new MailSendException("SMTP indisponible"));
+
+        // When
+        redeliveryService.redeliverDue();
+        int pendingAfterBusy = redeliveryService.getQueueSize();
+        redeliveryService.redeliverDue();
+
+        // Then : la confirmation reportée n'est ni perdue ni comptée comme une tentative
+        assertEquals(1, pendingAfterBusy);
+        verify(mailSender, times(2)).send(message);
+        verify(mailSender).send(other);
+        assertEquals(0, redeliveryService.getQueueSize());
+        assertTrue(redeliveryService.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    void enqueue_DigestWithOneRefusedAdmin_RetriedToRemainingAdmins() throws Exception {
+        // Given : digest pour deux administrateurs, l'un refusé par le relais
+        InternetAddress refused = new InternetAddress("ancien-admin@test.com");
+        message.setRecipients(Message.RecipientType.TO,
+                new Address[]{new InternetAddress("admin@test.com"), refused});
+        MailSendException cause = new MailSendException(Map.of(message,
+                new SendFailedException("Adresse refusée", null, new Address[0], new Address[0],
+                        new Address[]{refused})));
+
+        // When
+        redeliveryService.enqueue(ADMIN_DIGEST, ASSURANTIS, MailType.CONTACT_FORM, "DIGEST-1",
+                "admin@test.com, ancien-admin@test.com", message, cause);
+        redeliveryService.redeliverDue();
+
+        // Then : renvoyé au seul administrateur valide, pas de dead letter
+        verify(mailSender).send(message);
+        assertArrayEquals(new Address[]{new InternetAddress("admin@test.com")},
+                message.getRecipients(Message.RecipientType.TO));
+        assertTrue(redeliveryService.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    void enqueue_RefusedConfirmationRecipient_DeadLetteredWithKind() throws Exception {
+        // Given
+        InternetAddress refused = new InternetAddress("client@test.com");
+        SendFailedException cause = new SendFailedException("Adresse refusée", null, new Address[0],
+                new Address[0], new Address[]{refused});
+
+        // When
+        redeliveryService.enqueue(CONFIRMATION, ASSURANTIS, MailType.CLAIM_REQUEST, "SIN-1", "client@test.com",
+                message, new MailSendException(Map.of(message, cause)));
+
+        // Then : pas de renvoi, type visible dans l'API d'administration
+        verify(mailSender, never()).send(any(MimeMessage.class));
+        assertEquals(CONFIRMATION, redeliveryService.getDeadLetters().get(0).kind());
+    }
+}
@@ -0,0 +1,67 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import com.gilmotech.emailservice.exception.MailSendingException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileValidationServiceTest {
+
+    private final AttachmentMemoryBudget memoryBudget = new AttachmentMemoryBudget(64, 100, 5);
+
+    private final FileValidationService fileValidationService =
+            new FileValidationService(memoryBudget, new ContentTypeSniffer());
+
+    @Test
+    void validateAttachments_ValidPdfAndPng_ReservesBudget() {
+        // Given
+        FileAttachmentDto pdf = attachment("devis.pdf", "application/pdf", "%PDF-1.7\n...".getBytes(StandardCharsets.US_ASCII));
+        FileAttachmentDto png = attachment("photo.png", "image/png",
+                new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13});
+
+        // When
+        try (AttachmentMemoryBudget.Reservation reservation = fileValidationService.validateAttachments(List.of(pdf, png))) {
+            // Then
+            assertTrue(reservation.getBytes() > 0);
+            assertEquals(reservation.getBytes(), memoryBudget.getInFlightBytes());
+        }
+        assertEquals(0, memoryBudget.getInFlightBytes());
+    }
+
+    @Test
+    void validateAttachments_ExecutableLabelledAsPdf_Rejected() {
+        // Given : en-tête "MZ" d'un exécutable Windows
+        FileAttachmentDto fake = attachment("facture.pdf", "application/pdf", new byte[]{'M', 'Z', (byte) 0x90, 0, 3, 0});
+
+        // When & Then
+        MailSendingException e = assertThrows(MailSendingException.class,
+                () -> fileValidationService.validateAttachments(List.of(fake)));
+        assertEquals("FILE_CONTENT_MISMATCH", e.getErrorCode());
+        assertEquals(0, memoryBudget.getInFlightBytes());
+    }
+
+    @Test
+    void validateAttachments_DocxMustBeZipContainer() {
+        // Given
+        String docx = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        FileAttachmentDto valid = attachment("contrat.docx", docx, new byte[]{'P', 'K', 3, 4, 20, 0, 6, 0});
+        FileAttachmentDto invalid = attachment("contrat.docx", docx, "%PDF-1.4".getBytes(StandardCharsets.US_ASCII));
+
+        // When & Then
+        assertDoesNotThrow(() -> fileValidationService.validateAttachments(List.of(valid)).close());
+        assertThrows(MailSendingException.class, () -> fileValidationService.validateAttachments(List.of(invalid)));
+    }
+
+    private FileAttachmentDto attachment(String filename, String mimeType, byte[] content) {
+        FileAttachmentDto attachment = new FileAttachmentDto();
+        attachment.setFilename(filename);
+        attachment.setMimeType(mimeType);
+        attachment.setContent(Base64.getEncoder().encodeToString(content));
+        return attachment;
+    }
+}
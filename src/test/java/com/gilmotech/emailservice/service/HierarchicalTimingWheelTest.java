@@ -0,0 +1,63 @@
+package com.gilmotech.emailservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void advance_ExpiresEachTimerOnItsTick_AcrossLevels() {
+        // Given : 16 cases par niveau, échéances jusqu'à 3 niveaux au-dessus
+        long start = 1_000_000;
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(10, 16, start);
+        Random random = new Random(42);
+        long[] deadlines = new long[5_000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = start + random.nextLong(10 * 16 * 16 * 16 * 4);
+            wheel.schedule(deadlines[i], i);
+        }
+
+        // When : avance par pas irréguliers
+        long[] firedAt = new long[deadlines.length];
+        long now = start;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(200);
+            for (int i : wheel.advance(now)) {
+                assertEquals(0, firedAt[i], "expiré deux fois");
+                firedAt[i] = now;
+            }
+        }
+
+        // Then : jamais avant l'échéance, au plus tard au pas suivant
+        for (int i = 0; i < deadlines.length; i++) {
+            assertTrue(firedAt[i] >= deadlines[i], "expiré trop tôt: " + deadlines[i]);
+            assertTrue(firedAt[i] < deadlines[i] + 10 + 200, "expiré trop tard: " + deadlines[i]);
+        }
+    }
+
+    @Test
+    void cancel_RemovesTimer() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 512, 0);
+        HierarchicalTimingWheel.Timer<String> kept = wheel.schedule(5_000, "kept");
+        HierarchicalTimingWheel.Timer<String> cancelled = wheel.schedule(3_600_000, "cancelled");
+        HierarchicalTimingWheel.Timer<String> overdue = wheel.schedule(-1, "overdue");
+
+        // When
+        boolean first = wheel.cancel(cancelled);
+        boolean second = wheel.cancel(cancelled);
+        boolean overdueCancelled = wheel.cancel(overdue);
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        assertTrue(overdueCancelled);
+        assertEquals(List.of("kept"), wheel.advance(7_200_000));
+        assertFalse(wheel.cancel(kept));
+        assertEquals(0, wheel.size());
+    }
+}
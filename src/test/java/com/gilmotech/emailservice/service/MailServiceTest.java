@@ -4,12 +4,14 @@ import com.gilmotech.emailservice.dto.MailRequestDto;
 import com.gilmotech.emailservice.model.AppCode;
 import com.gilmotech.emailservice.model.MailConfiguration;
 import com.gilmotech.emailservice.model.MailType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mail.javamail.JavaMailSender;
 
@@ -18,6 +20,8 @@ import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +30,9 @@ class MailServiceTest {
     @Mock
     private JavaMailSender mailSender;
 
+    @Mock
+    private TenantMailSenderRegistry mailSenderRegistry;
+
     @Mock
     private ConfigurationService configService;
 
@@ -35,6 +42,28 @@ class MailServiceTest {
     @Mock
     private MimeMessage mimeMessage;
 
+    @Mock
+    private SpamHeavyHitterDetector heavyHitterDetector;
+
+    @Mock
+    private AdminDigestService adminDigestService;
+
+    @Mock
+    private SendScheduler sendScheduler;
+
+    @Mock
+    private BrandAssetRegistry brandAssetRegistry;
+
+    @Mock
+    private UploadService uploadService;
+
+    @Mock
+    private SuppressionList suppressionList;
+
+    @Spy
+    private AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+            true, 20, 2, 200, 1.5, 0.2, 0.9, 2, new SimpleMeterRegistry());
+
     @InjectMocks
     private MailService mailService;
 
@@ -43,6 +72,12 @@ class MailServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Envoi exécuté directement, sans file
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(sendScheduler).execute(any(), anyLong(), any());
+
         validRequest = new MailRequestDto();
         validRequest.setAppCode("ASSURANTIS");
         validRequest.setMailType("CONTACT_FORM");
@@ -53,7 +88,7 @@ class MailServiceTest {
         validRequest.setWebsite(""); // Honeypot vide
 
         testConfig = new MailConfiguration();
-        testConfig.setAppCode(AppCode.ASSURANTIS);
+        testConfig.setAppCode(AppCode.fromString("ASSURANTIS"));
         testConfig.setMailType(MailType.CONTACT_FORM);
         testConfig.setFromAddress("contact@assurantis.be");
         testConfig.setFromName("Assurantis");
@@ -66,6 +101,7 @@ class MailServiceTest {
     void sendMail_Success() {
         // Given
         when(configService.getConfiguration(any(), any())).thenReturn(testConfig);
+        when(mailSenderRegistry.senderFor(any())).thenReturn(mailSender);
         when(templateService.generateHtmlContent(any(), any())).thenReturn("<html>Test</html>");
         when(templateService.generateTextContent(any())).thenReturn("Test");
         when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
@@ -86,4 +122,50 @@ class MailServiceTest {
         assertThrows(Exception.class, () -> mailService.sendMail(validRequest));
         verify(mailSender, never()).send(any(MimeMessage.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendMail_SuppressedAddress_SkipsConfirmationBeforeRendering() {
+        // Given
+        testConfig.setTemplatePathConfirmation("email/assurantis/contact_confirmation");
+        when(configService.getConfiguration(any(), any())).thenReturn(testConfig);
+        when(mailSenderRegistry.senderFor(any())).thenReturn(mailSender);
+        when(templateService.generateHtmlContent(any(), any())).thenReturn("<html>Test</html>");
+        when(templateService.generateTextContent(any())).thenReturn("Test");
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+        when(suppressionList.isSuppressed("test@example.com")).thenReturn(true);
+
+        // When
+        mailService.sendMail(validRequest);
+
+        // Then : seul l'email admin part
+        verify(templateService, never()).generateHtmlContent(eq("email/assurantis/contact_confirmation"), any());
+        verify(mailSender, times(1)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void sendMail_DigestEnabled_BuffersAdminNotificationAndSendsConfirmation() {
+        // Given
+        testConfig.getDigest().setEnabled(true);
+        testConfig.setTemplatePathConfirmation("email/assurantis/contact_confirmation");
+        when(configService.getConfiguration(any(), any())).thenReturn(testConfig);
+        when(mailSenderRegistry.senderFor(any())).thenReturn(mailSender);
+        when(templateService.generateHtmlContent(any(), any())).thenReturn("<html>Test</html>");
+        when(templateService.generateTextContent(any())).thenReturn("Test");
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+
+        // When
+        mailService.sendMail(validRequest);
+
+        // Then : seule la confirmation part immédiatement
+        verify(adminDigestService).add(eq(testConfig), any());
+        verify(templateService, never()).generateHtmlContent(eq("email/assurantis/contact"), any());
+        verify(mailSender, times(1)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void generateReference_RandomDigitsWidened() {
+        // When & Then : format public inchangé, références programmées plus larges
+        assertTrue(mailService.generateReference("CLAIM_REQUEST").matches("SIN-\\d{8}-\\d{4}"));
+        assertTrue(mailService.generateReference("CONTACT_FORM", 8).matches("CNT-\\d{8}-\\d{8}"));
+    }
+}
@@ -0,0 +1,205 @@
+package com.gilmotech.emailservice.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingMailSenderTest {
+
+    private GreenMail slowSmtp;
+    private GreenMail fastSmtp;
+    private LatencyProxy slowProxy;
+    private RoutingMailSender sender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        slowSmtp = startSmtp();
+        fastSmtp = startSmtp();
+        slowProxy = new LatencyProxy(slowSmtp.getSmtp().getPort(), 40);
+
+        sender = new RoutingMailSender("TEST", List.of(
+                relay("dead", freePort()),
+                relay("slow", slowProxy.getPort()),
+                relay("fast", fastSmtp.getSmtp().getPort())
+        ));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        sender.close();
+        slowProxy.close();
+        slowSmtp.stop();
+        fastSmtp.stop();
+    }
+
+    @Test
+    void send_PrefersFastestRelayAndSkipsDeadOne() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            sender.send(message(i));
+        }
+
+        // Then
+        assertEquals(10, slowSmtp.getReceivedMessages().length + fastSmtp.getReceivedMessages().length);
+        assertTrue(fastSmtp.getReceivedMessages().length >= 8);
+        assertFalse(sender.getRelays().get(0).getHealth().isAvailable());
+    }
+
+    @Test
+    void send_FailsOverWhenRelayGoesDown() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            sender.send(message(i));
+        }
+        int slowBefore = slowSmtp.getReceivedMessages().length;
+
+        // When
+        fastSmtp.stop();
+        sender.send(message(3));
+
+        // Then
+        assertEquals(slowBefore + 1, slowSmtp.getReceivedMessages().length);
+    }
+
+    @Test
+    void send_RecoveredRelayRegainsTraffic() throws Exception {
+        // Given : relais lent délaissé au profit du rapide, score divisé par deux toutes les 20 ms
+        LatencyProxy recovering = new LatencyProxy(slowSmtp.getSmtp().getPort(), 40);
+        RoutingMailSender decaying = new RoutingMailSender("TEST", List.of(
+                relay("recovering", recovering.getPort(), 20),
+                relay("fast", fastSmtp.getSmtp().getPort(), 20)
+        ));
+        try {
+            for (int i = 0; i < 5; i++) {
+                decaying.send(message(i));
+            }
+            int recoveringBefore = slowSmtp.getReceivedMessages().length;
+
+            // When : le relais est rétabli, le rapide reste utilisé en continu
+            recovering.setDelayMs(0);
+            for (int i = 0; i < 50 && slowSmtp.getReceivedMessages().length == recoveringBefore; i++) {
+                decaying.send(message(10 + i));
+                Thread.sleep(20);
+            }
+
+            // Then : réessayé malgré sa moyenne ancienne
+            assertTrue(slowSmtp.getReceivedMessages().length > recoveringBefore);
+        } finally {
+            decaying.close();
+            recovering.close();
+        }
+    }
+
+    private static GreenMail startSmtp() throws IOException {
+        GreenMail greenMail = new GreenMail(new ServerSetup(freePort(), "localhost", ServerSetup.PROTOCOL_SMTP))
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        greenMail.start();
+        return greenMail;
+    }
+
+    private static PooledMailSender relay(String name, int port) {
+        return relay(name, port, 60000);
+    }
+
+    private static PooledMailSender relay(String name, int port, long scoreHalfLifeMs) {
+        PooledMailSender relay = new PooledMailSender(name, 2, 1000, 30000, new RelayHealth(60000, scoreHalfLifeMs));
+        relay.setHost("localhost");
+        relay.setPort(port);
+        Properties properties = new Properties();
+        properties.put("mail.smtp.connectiontimeout", "1000");
+        properties.put("mail.smtp.timeout", "2000");
+        relay.setJavaMailProperties(properties);
+        return relay;
+    }
+
+    private static SimpleMailMessage message(int index) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("sender@test.com");
+        message.setTo("recipient@test.com");
+        message.setSubject("Message " + index);
+        message.setText("Contenu " + index);
+        return message;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Proxy TCP qui retarde chaque réponse du serveur SMTP
+     */
+    private static class LatencyProxy implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private volatile long delayMs;
+
+        LatencyProxy(int targetPort, long delayMs) throws IOException {
+            this.delayMs = delayMs;
+            serverSocket = new ServerSocket(0);
+            Thread.ofVirtual().start(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket client = serverSocket.accept();
+                        Socket target = new Socket("localhost", targetPort);
+                        Thread.ofVirtual().start(() -> pump(client, target, false));
+                        Thread.ofVirtual().start(() -> pump(target, client, true));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void setDelayMs(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        private void pump(Socket from, Socket to, boolean delayed) {
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (delayed && delayMs > 0) {
+                        Thread.sleep(delayMs);
+                    }
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // Connexion fermée
+            } finally {
+                try {
+                    from.close();
+                    to.close();
+                } catch (IOException ignored) {
+                    // déjà fermée
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.MailSendException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ScheduledMailServiceTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @TempDir
+    Path tempDir;
+
+    private MailService mailService;
+    private final List<ScheduledMailService> services = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mailService = mock(MailService.class);
+        when(mailService.generateReference(anyString(), anyInt())).thenReturn("CNT-1", "CNT-2", "CNT-3");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (ScheduledMailService service : services) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void schedule_SurvivesRestart_AndDispatchesWithSameReference() throws Exception {
+        // Given
+        ScheduledMailService service = start();
+        MailRequestDto request = request(OffsetDateTime.now(ZoneOffset.ofHours(1)).plusHours(2));
+        request.setAdditionalData(Map.of("appointmentDate", "06/01/2025 09:00"));
+
+        // When : programmé, puis redémarrage
+        String reference = service.schedule(request);
+        service.shutdown();
+        ScheduledMailService restarted = start();
+        restarted.dispatchDue(System.currentTimeMillis() + HOUR);
+        verify(mailService, never()).sendScheduledMail(any(), anyString());
+        restarted.dispatchDue(System.currentTimeMillis() + 3 * HOUR);
+
+        // Then
+        assertEquals("CNT-1", reference);
+        verify(mailService).validateScheduledMail(request);
+        verify(mailService, timeout(2000)).sendScheduledMail(
+                argThat(sent -> "Jean Dupont".equals(sent.getName())
+                        && "06/01/2025 09:00".equals(sent.getAdditionalData().get("appointmentDate"))),
+                eq("CNT-1"));
+        verify(mailService, timeout(2000).times(1)).sendScheduledMail(any(), anyString());
+        awaitPending(restarted, 0);
+    }
+
+    @Test
+    void cancel_ByReference_NeverSentEvenAfterRestart() throws Exception {
+        // Given
+        ScheduledMailService service = start();
+        String cancelled = service.schedule(request(OffsetDateTime.now().plusHours(1)));
+        String kept = service.schedule(request(OffsetDateTime.now().plusHours(1)));
+
+        // When
+        boolean first = service.cancel(cancelled);
+        boolean second = service.cancel(cancelled);
+        service.shutdown();
+        ScheduledMailService restarted = start();
+        restarted.dispatchDue(System.currentTimeMillis() + 2 * HOUR);
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        verify(mailService, timeout(2000)).sendScheduledMail(any(), eq(kept));
+        verify(mailService, never()).sendScheduledMail(any(), eq(cancelled));
+        assertFalse(restarted.cancel(kept));
+    }
+
+    @Test
+    void dispatchDue_TransientFailure_RetriedLater() throws Exception {
+        // Given
+        doThrow(new MailSendException("SMTP indisponible"))
+                .doReturn("CNT-1")
+                .when(mailService).sendScheduledMail(any(), anyString());
+        ScheduledMailService service = start();
+        service.schedule(request(OffsetDateTime.now().plusMinutes(5)));
+
+        // When : le nouvel essai est reprogrammé par le thread d'envoi
+        service.dispatchDue(System.currentTimeMillis() + HOUR);
+        verify(mailService, timeout(2000)).sendScheduledMail(any(), eq("CNT-1"));
+        for (int i = 0; i < 200 && service.getPendingCount() > 0; i++) {
+            service.dispatchDue(System.currentTimeMillis() + 2 * HOUR);
+            Thread.sleep(10);
+        }
+
+        // Then
+        verify(mailService, times(2)).sendScheduledMail(any(), eq("CNT-1"));
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    void schedule_PendingBytesExceeded_RejectedUntilSent() throws Exception {
+        // Given : 1 Mo en attente au plus
+        ScheduledMailService service = start(1);
+        service.schedule(withAttachment(request(OffsetDateTime.now().plusMinutes(5)), 700_000));
+
+        // When & Then
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> service.schedule(withAttachment(request(OffsetDateTime.now().plusMinutes(5)), 700_000)));
+        assertEquals("SCHEDULE_FULL", e.getErrorCode());
+        assertTrue(service.getPendingBytes() > 700_000);
+
+        service.dispatchDue(System.currentTimeMillis() + HOUR);
+        verify(mailService, timeout(2000)).sendScheduledMail(any(), eq("CNT-1"));
+        awaitPending(service, 0);
+        assertEquals(0, service.getPendingBytes());
+        assertEquals("CNT-2", service.schedule(withAttachment(request(OffsetDateTime.now().plusMinutes(5)), 700_000)));
+    }
+
+    @Test
+    void init_JournalOwnerOnly_SchedulingOffWithoutJournal() throws Exception {
+        // Given
+        ScheduledMailService service = start();
+        service.schedule(request(OffsetDateTime.now().plusHours(1)));
+        ScheduledMailService unconfigured = new ScheduledMailService(mailService, true, "",
+                1000, 64, 366, 1000, 256, 1, 3, 60_000);
+
+        // When & Then
+        Path journal = tempDir.resolve("scheduled.jsonl");
+        if (journal.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(journal)));
+        }
+        unconfigured.init();
+        assertFalse(unconfigured.shouldDefer(request(OffsetDateTime.now().plusHours(1))));
+        assertTrue(service.shouldDefer(request(OffsetDateTime.now().plusHours(1))));
+    }
+
+    private ScheduledMailService start() throws Exception {
+        return start(256);
+    }
+
+    private ScheduledMailService start(long maxPendingMb) throws Exception {
+        ScheduledMailService service = new ScheduledMailService(mailService, true,
+                tempDir.resolve("scheduled.jsonl").toString(), 1000, 64, 366, 1000, maxPendingMb, 1, 3, 60_000);
+        service.init();
+        services.add(service);
+        return service;
+    }
+
+    private void awaitPending(ScheduledMailService service, int expected) throws InterruptedException {
+        for (int i = 0; i < 200 && service.getPendingCount() != expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, service.getPendingCount());
+    }
+
+    private MailRequestDto withAttachment(MailRequestDto request, int base64Length) {
+        FileAttachmentDto attachment = new FileAttachmentDto();
+        attachment.setFilename("devis.pdf");
+        attachment.setMimeType("application/pdf");
+        attachment.setContent("A".repeat(base64Length));
+        request.setAttachments(List.of(attachment));
+        return request;
+    }
+
+    private MailRequestDto request(OffsetDateTime sendAt) {
+        MailRequestDto request = new MailRequestDto();
+        request.setAppCode("ASSURANTIS");
+        request.setMailType("CONTACT_FORM");
+        request.setName("Jean Dupont");
+        request.setEmail("jean.dupont@test.com");
+        request.setMessage("Rappel de votre rendez-vous");
+        request.setSendAt(sendAt);
+        return request;
+    }
+}
@@ -0,0 +1,200 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.model.AppCode;
+import com.gilmotech.emailservice.model.MailConfiguration;
+import com.gilmotech.emailservice.model.MailType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SendSchedulerTest {
+
+    private static final long QUANTUM = 64 * 1024;
+
+    private SendScheduler scheduler;
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final TenantMailSenderRegistry tenantRegistry = mock(TenantMailSenderRegistry.class);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Un seul worker, bloqué le temps de remplir les files
+        when(tenantRegistry.maxConcurrentSends(any())).thenReturn(Integer.MAX_VALUE);
+        scheduler = new SendScheduler(1, 64, 60_000, 500, 5, new SimpleMeterRegistry(), tenantRegistry);
+        scheduler.start();
+        Thread.ofVirtual().start(() -> scheduler.execute(config("GATE", MailType.CONTACT_FORM, 1, 0), 1, () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        waitForDispatched("GATE_CONTACT_FORM", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        scheduler.stop();
+    }
+
+    @Test
+    void execute_HigherPriorityServedFirst() throws Exception {
+        // Given
+        MailConfiguration contact = config("GILMOTECH", MailType.CONTACT_FORM, 1, 0);
+        MailConfiguration claim = config("ASSURANTIS", MailType.CLAIM_REQUEST, 1, 10);
+        submit(contact, 20, "contact");
+        submit(claim, 5, "claim");
+        waitForDepth("GILMOTECH_CONTACT_FORM", 20);
+        waitForDepth("ASSURANTIS_CLAIM_REQUEST", 5);
+
+        // When
+        gate.countDown();
+        waitForExecuted(25);
+
+        // Then
+        assertEquals(List.of("claim", "claim", "claim", "claim", "claim"), executed.subList(0, 5));
+    }
+
+    @Test
+    void execute_SamePriority_SharesThroughputByWeight() throws Exception {
+        // Given
+        MailConfiguration heavy = config("ASSURANTIS", MailType.QUOTE_REQUEST, 3, 0);
+        MailConfiguration light = config("GILMOTECH", MailType.CONTACT_FORM, 1, 0);
+        submit(heavy, 40, "heavy");
+        submit(light, 40, "light");
+        waitForDepth("ASSURANTIS_QUOTE_REQUEST", 40);
+        waitForDepth("GILMOTECH_CONTACT_FORM", 40);
+
+        // When
+        gate.countDown();
+        waitForExecuted(80);
+
+        // Then : 3 pour 1 tant que les deux files sont chargées, sans famine de la plus légère
+        List<String> firstRounds = executed.subList(0, 20);
+        long heavyCount = firstRounds.stream().filter("heavy"::equals).count();
+        assertEquals(15, heavyCount);
+        assertTrue(firstRounds.contains("light"));
+        assertEquals(40, scheduler.getStats().get("GILMOTECH_CONTACT_FORM").dispatched());
+    }
+
+    @Test
+    void execute_TenantSaturated_WorkersServeOtherTenants() throws Exception {
+        // Given : deux workers, ASSURANTIS limité à une connexion et occupée
+        when(tenantRegistry.maxConcurrentSends(AppCode.fromString("ASSURANTIS"))).thenReturn(1);
+        SendScheduler shared = new SendScheduler(2, 64, 60_000, 500, 5, new SimpleMeterRegistry(), tenantRegistry);
+        shared.start();
+        CountDownLatch busy = new CountDownLatch(1);
+        MailConfiguration saturated = config("ASSURANTIS", MailType.CLAIM_REQUEST, 1, 10);
+        MailConfiguration other = config("GILMOTECH", MailType.CONTACT_FORM, 1, 0);
+        try {
+            Thread.ofVirtual().start(() -> shared.execute(saturated, 1, () -> {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            waitForDispatched(shared, "ASSURANTIS_CLAIM_REQUEST", 1);
+
+            // When : la file prioritaire du tenant saturé ne prend pas le second worker
+            Thread.ofVirtual().start(() -> shared.execute(saturated, 1, () -> executed.add("saturated")));
+            waitForDepth(shared, "ASSURANTIS_CLAIM_REQUEST", 1);
+            shared.execute(other, 1, () -> executed.add("other"));
+
+            // Then
+            assertEquals(List.of("other"), executed);
+            busy.countDown();
+            waitForExecuted(2);
+            assertEquals("saturated", executed.get(1));
+        } finally {
+            busy.countDown();
+            shared.stop();
+        }
+    }
+
+    @Test
+    void execute_CallerMdcVisibleDuringSend() {
+        // Given
+        gate.countDown();
+        MDC.put("correlationId", "req-42");
+
+        // When
+        try {
+            scheduler.execute(config("GILMOTECH", MailType.CONTACT_FORM, 1, 0), 1,
+                    () -> executed.add(MDC.get("correlationId")));
+        } finally {
+            MDC.remove("correlationId");
+        }
+
+        // Then
+        assertEquals(List.of("req-42"), executed);
+    }
+
+    private void submit(MailConfiguration config, int count, String label) {
+        for (int i = 0; i < count; i++) {
+            Thread.ofVirtual().start(() -> scheduler.execute(config, QUANTUM, () -> executed.add(label)));
+        }
+    }
+
+    private MailConfiguration config(String app, MailType type, int weight, int priority) {
+        MailConfiguration config = new MailConfiguration();
+        config.setAppCode(AppCode.fromString(app));
+        config.setMailType(type);
+        config.setSendWeight(weight);
+        config.setSendPriority(priority);
+        return config;
+    }
+
+    private void waitForDepth(String key, int depth) throws InterruptedException {
+        waitForDepth(scheduler, key, depth);
+    }
+
+    private void waitForDepth(SendScheduler scheduler, String key, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            SendScheduler.QueueStats stats = scheduler.getStats().get(key);
+            if (stats != null && stats.depth() >= depth) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("File " + key + " jamais remplie");
+    }
+
+    private void waitForDispatched(String key, long dispatched) throws InterruptedException {
+        waitForDispatched(scheduler, key, dispatched);
+    }
+
+    private void waitForDispatched(SendScheduler scheduler, String key, long dispatched) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            SendScheduler.QueueStats stats = scheduler.getStats().get(key);
+            if (stats != null && stats.dispatched() >= dispatched) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Aucun envoi pour " + key);
+    }
+
+    private void waitForExecuted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executed.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, executed.size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.exception.MailSendingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpamHeavyHitterDetectorTest {
+
+    private final SpamHeavyHitterDetector detector =
+            new SpamHeavyHitterDetector(true, 4, 1024, 5, 100, 100, Set.of("gmail.com"));
+
+    @Test
+    void check_SameMessageFromRotatingSenders_RejectedOverThreshold() {
+        // Given : même contenu, ponctuation et casse variées
+        for (int i = 0; i < 5; i++) {
+            detector.check(request("bot" + i + "@gmail.com", "Cheap PILLS, buy now!!! " + "!".repeat(i)));
+        }
+
+        // When & Then
+        MailSendingException e = assertThrows(MailSendingException.class,
+                () -> detector.check(request("bot99@gmail.com", "cheap pills buy now")));
+        assertEquals("SPAM_FLOOD_DETECTED", e.getErrorCode());
+
+        // Un message différent passe toujours
+        assertDoesNotThrow(() -> detector.check(request("client@gmail.com", "Demande de devis habitation")));
+    }
+
+    @Test
+    void decay_LetsKeyFallBackUnderThreshold() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            detector.check(request("user" + i + "@test.be", "Bonjour"));
+        }
+
+        // When
+        detector.decay();
+
+        // Then
+        assertDoesNotThrow(() -> detector.check(request("other@test.be", "Bonjour")));
+    }
+
+    @Test
+    void countMinSketch_NeverUnderestimates() {
+        // Given
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+
+        // When : bien plus de clés distinctes que de compteurs
+        for (int i = 0; i < 10_000; i++) {
+            sketch.addAndEstimate(CountMinSketch.hash("key" + i));
+        }
+        for (int i = 0; i < 20; i++) {
+            sketch.addAndEstimate(CountMinSketch.hash("heavy"));
+        }
+
+        // Then
+        assertEquals(4 * 64, sketch.getCounterCount());
+        assertTrue(sketch.estimate(CountMinSketch.hash("heavy")) >= 20);
+    }
+
+    private MailRequestDto request(String email, String message) {
+        MailRequestDto request = new MailRequestDto();
+        request.setEmail(email);
+        request.setMessage(message);
+        return request;
+    }
+}
@@ -0,0 +1,204 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.config.PreprocessingTemplateResolver;
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Équivalence stricte avec Thymeleaf, pour chaque template de templates/email,
+ * sources prétraitées (production) et brutes
+ */
+class TemplatePlanRendererTest {
+
+    // #temporals.format(...) : rendu par Thymeleaf
+    private static final Set<String> THYMELEAF_ONLY = Set.of("email/assurantis/claim_admin");
+
+    @Test
+    void everyTemplate_SameOutputAsThymeleaf() throws Exception {
+        for (TemplateEngine engine : List.of(preprocessedEngine(), rawEngine())) {
+            TemplatePlanRenderer renderer = new TemplatePlanRenderer(engine, true);
+            TemplateService templateService = new TemplateService(engine, renderer);
+
+            for (String template : templates()) {
+                for (Map<String, Object> variables : List.of(fullVariables(), sparseVariables())) {
+                    // When
+                    String expected = thymeleaf(engine, template, variables);
+                    String actual = templateService.generateHtmlContent(template, variables);
+
+                    // Then
+                    assertEquals(expected, actual, template);
+                }
+                assertEquals(!THYMELEAF_ONLY.contains(template), renderer.isCompiled(template), template);
+                if (renderer.isCompiled(template)) {
+                    assertNotNull(renderer.render(template, fullVariables()), template);
+                }
+            }
+        }
+    }
+
+    @Test
+    void missingMapKey_FallsBackToThymeleafError() {
+        // Given : clé absente, Thymeleaf échoue
+        TemplateEngine engine = preprocessedEngine();
+        TemplatePlanRenderer renderer = new TemplatePlanRenderer(engine, true);
+        Map<String, Object> variables = fullVariables();
+        ((Map<?, ?>) variables.get("quote")).remove("details");
+
+        // When & Then
+        assertNull(renderer.render("email/assurantis/quote_admin", variables));
+        assertThrows(RuntimeException.class, () -> new TemplateService(engine, renderer)
+                .generateHtmlContent("email/assurantis/quote_admin", variables));
+    }
+
+    private String thymeleaf(TemplateEngine engine, String template, Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(variables);
+        return engine.process(template, context);
+    }
+
+    private Map<String, Object> fullVariables() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", "Jean <b>Dupont</b> & Fils");
+        variables.put("email", "jean.dupont@test.com");
+        variables.put("phone", "+32 470 12 34 56");
+        variables.put("message", "Bonjour,\nJe voudrais \"un devis\" pour l'été — merci !");
+        variables.put("subject", "Demande d'information");
+        variables.put("company", "Dupont & Fils");
+        variables.put("reference", "QTE-20250101-1234");
+        variables.put("hasAttachments", true);
+        variables.put("attachmentCount", 2);
+        variables.put("attachments", List.of(attachment("photo.png", "image/png"), attachment("constat.pdf", "application/pdf")));
+        variables.put("attachmentLinks", List.of(new AttachmentStore.StoredAttachment(
+                "video.mp4", "video/mp4", 12_000_000, "https://mail.test/a/abc?sig=x&exp=1", LocalDateTime.now())));
+        variables.put("assets", Map.of("logo", "cid:logo.assurantis@brand"));
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("firstName", "Jean");
+        profile.put("lastName", "Dupont");
+        profile.put("email", "jean.dupont@test.com");
+        profile.put("phone", "+32 470 12 34 56");
+        profile.put("address", "Rue de l'Exemple 12, 1000 Bruxelles");
+        profile.put("birthDate", "01/01/1980");
+        Map<String, Object> needs = new LinkedHashMap<>();
+        needs.put("insuranceTypes", List.of("Auto", "Habitation <RC>"));
+        needs.put("budget", "100€ - 200€");
+        needs.put("startDate", "01/02/2025");
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("currentInsurance", "yes");
+        details.put("currentInsurer", "AXA");
+        details.put("additionalInfo", "Deux véhicules");
+        Map<String, Object> quote = new LinkedHashMap<>();
+        quote.put("profile", profile);
+        quote.put("needs", needs);
+        quote.put("details", details);
+        variables.put("quote", quote);
+
+        variables.put("title", "Nouveau message (récapitulatif de 2 message(s))");
+        variables.put("count", 2);
+        variables.put("appCode", "ASSURANTIS");
+        variables.put("firstReceivedAt", "01/01/2025 10:00");
+        variables.put("lastReceivedAt", "01/01/2025 10:05");
+        variables.put("entries", List.of(
+                new AdminDigestService.DigestEntry("CNT-1", "01/01/2025 10:00", "Jean", "jean@test.com",
+                        "+32 470 12 34 56", "Dupont & Fils", "Sujet", "Message <1>"),
+                new AdminDigestService.DigestEntry("CNT-2", "01/01/2025 10:05", "Marie", "marie@test.com",
+                        null, null, null, "Message 2")));
+        return variables;
+    }
+
+    /**
+     * Champs facultatifs absents ou vides, conditions fausses
+     */
+    private Map<String, Object> sparseVariables() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", "Marie");
+        variables.put("email", "marie@test.com");
+        variables.put("message", "");
+        variables.put("phone", null);
+        variables.put("reference", "CNT-20250101-0001");
+        variables.put("hasAttachments", false);
+        variables.put("attachmentCount", 0);
+        variables.put("assets", Map.of());
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        for (String field : List.of("firstName", "lastName", "email", "phone", "address", "birthDate")) {
+            profile.put(field, null);
+        }
+        Map<String, Object> needs = new LinkedHashMap<>();
+        needs.put("insuranceTypes", new ArrayList<>());
+        needs.put("budget", null);
+        needs.put("startDate", "");
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("currentInsurance", "no");
+        details.put("currentInsurer", null);
+        details.put("additionalInfo", null);
+        Map<String, Object> quote = new LinkedHashMap<>();
+        quote.put("profile", profile);
+        quote.put("needs", needs);
+        quote.put("details", details);
+        variables.put("quote", quote);
+
+        variables.put("entries", List.of());
+        return variables;
+    }
+
+    private FileAttachmentDto attachment(String filename, String mimeType) {
+        FileAttachmentDto attachment = new FileAttachmentDto();
+        attachment.setFilename(filename);
+        attachment.setMimeType(mimeType);
+        return attachment;
+    }
+
+    private Set<String> templates() throws Exception {
+        Set<String> templates = new TreeSet<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver()
+                .getResources("classpath:templates/email/**/*.html")) {
+            String path = resource.getURL().getPath();
+            templates.add(path.substring(path.lastIndexOf("templates/email/") + "templates/".length(),
+                    path.length() - ".html".length()));
+        }
+        assertFalse(templates.isEmpty());
+        return templates;
+    }
+
+    private TemplateEngine preprocessedEngine() {
+        PreprocessingTemplateResolver resolver = new PreprocessingTemplateResolver(new TemplatePreprocessor());
+        resolver.setApplicationContext(new GenericApplicationContext());
+        resolver.setPrefix("classpath:/templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    private TemplateEngine rawEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+}
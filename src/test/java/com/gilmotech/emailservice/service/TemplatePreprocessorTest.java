@@ -0,0 +1,72 @@
+package com.gilmotech.emailservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplatePreprocessorTest {
+
+    private static final Pattern THYMELEAF_ATTRIBUTE = Pattern.compile("th:[a-z]+=\"[^\"]*\"");
+
+    private final TemplatePreprocessor preprocessor = new TemplatePreprocessor();
+
+    @Test
+    void preprocess_InlinesCssAndKeepsThymeleafAttributes() {
+        // Given
+        String html = """
+                <!DOCTYPE html>
+                <html xmlns:th="http://www.thymeleaf.org">
+                <head>
+                    <style>
+                        .field { padding: 12px; color: #333; }
+                        .field-value { color: #000; }
+                        div.field-value { font-weight: 600; }
+                        .field:hover { background: #eee; }
+                    </style>
+                </head>
+                <body>
+                    <!-- Section contact -->
+                    <div class="field" th:if="${phone}">
+                        <div class="field-value" style="color: red;" th:text="${phone}">+32 123</div>
+                        <a th:href="'mailto:' + ${email}" th:text="${email}">email@example.com</a>
+                    </div>
+                </body>
+                </html>
+                """;
+
+        // When
+        String result = preprocessor.preprocess("test", html);
+
+        // Then
+        assertTrue(result.contains("class=\"field\" th:if=\"${phone}\" style=\"padding:12px;color:#333\""));
+        assertTrue(result.contains("style=\"color:red;font-weight:600\""));
+        assertTrue(result.contains("th:href=\"'mailto:' + ${email}\""));
+        assertTrue(result.contains(".field:hover{background:#eee}"));
+        assertFalse(result.contains("Section contact"));
+        assertFalse(result.contains("\n    "));
+    }
+
+    @Test
+    void preprocess_AllEmailTemplates_ShrinkWithoutLosingThymeleafAttributes() throws Exception {
+        Resource[] templates = new PathMatchingResourcePatternResolver()
+                .getResources("classpath:templates/email/**/*.html");
+        assertTrue(templates.length > 0);
+
+        for (Resource template : templates) {
+            String name = template.getURI().toString().replaceAll(".*/templates/", "");
+            String html = template.getContentAsString(StandardCharsets.UTF_8);
+
+            String result = preprocessor.preprocess(name, html);
+
+            assertTrue(result.length() < html.length(), name);
+            assertEquals(THYMELEAF_ATTRIBUTE.matcher(html).results().count(),
+                    THYMELEAF_ATTRIBUTE.matcher(result).results().count(), name);
+        }
+        assertEquals(templates.length, preprocessor.getReports().size());
+    }
+}
@@ -0,0 +1,182 @@
+package com.gilmotech.emailservice.service;
+
+import com.gilmotech.emailservice.dto.FileAttachmentDto;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.dto.UploadRequestDto;
+import com.gilmotech.emailservice.dto.UploadStatusDto;
+import com.gilmotech.emailservice.exception.MailSendingException;
+import com.gilmotech.emailservice.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadServiceTest {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+    private static final String CLIENT = "203.0.113.7";
+
+    @TempDir
+    Path directory;
+
+    private final FileValidationService fileValidationService =
+            new FileValidationService(new AttachmentMemoryBudget(10, 50, 5), new ContentTypeSniffer());
+
+    @Test
+    void chunksInAnyOrderWithRetry_ResolvedIntoAttachmentThenReleased() throws Exception {
+        // Given
+        UploadService service = newService(60);
+        byte[] content = png(2500);
+        UploadStatusDto created = service.create(declaration("photo.png", "image/png", content.length), CLIENT);
+        String token = created.getToken();
+
+        // When
+        write(service, token, 2, content);
+        write(service, token, 0, content);
+        write(service, token, 0, content);
+        UploadStatusDto partial = service.status(token);
+        UploadStatusDto completed = write(service, token, 1, content);
+
+        MailRequestDto request = new MailRequestDto();
+        request.setAppCode("ASSURANTIS");
+        FileAttachmentDto attachment = new FileAttachmentDto();
+        attachment.setUploadToken(token);
+        request.setAttachments(List.of(attachment));
+        List<String> tokens = service.resolve(request);
+
+        // Then
+        assertEquals(3, created.getChunkCount());
+        assertEquals(List.of(1), partial.getMissingChunks());
+        assertTrue(completed.isComplete());
+        assertArrayEquals(content, Base64.getDecoder().decode(attachment.getContent()));
+        assertEquals("photo.png", attachment.getFilename());
+        assertEquals("image/png", attachment.getMimeType());
+        assertEquals(content.length, service.getPendingBytes());
+
+        service.release(tokens);
+        assertEquals(0, service.getPendingBytes());
+        assertFalse(Files.exists(directory.resolve(token)));
+        assertThrows(MailSendingException.class, () -> service.status(token));
+    }
+
+    @Test
+    void writeChunk_ContentNotMatchingType_RejectedAndDiscarded() throws Exception {
+        // Given
+        UploadService service = newService(60);
+        byte[] content = new byte[800];
+        String token = service.create(declaration("faux.pdf", "application/pdf", content.length), CLIENT).getToken();
+
+        // When & Then
+        MailSendingException e = assertThrows(MailSendingException.class,
+                () -> service.writeChunk(token, 0, new ByteArrayInputStream(content)));
+        assertEquals("FILE_CONTENT_MISMATCH", e.getErrorCode());
+        assertEquals(0, service.getPendingBytes());
+        assertThrows(MailSendingException.class, () -> service.status(token));
+    }
+
+    @Test
+    void writeChunk_WrongSize_Rejected() throws Exception {
+        // Given
+        UploadService service = newService(60);
+        String token = service.create(declaration("photo.png", "image/png", 2048), CLIENT).getToken();
+
+        // When & Then
+        MailSendingException e = assertThrows(MailSendingException.class,
+                () -> service.writeChunk(token, 0, new ByteArrayInputStream(new byte[4096])));
+        assertEquals("CHUNK_SIZE_MISMATCH", e.getErrorCode());
+        assertEquals(List.of(0, 1), service.status(token).getMissingChunks());
+    }
+
+    @Test
+    void evictExpired_UnclaimedUploadRemoved() throws Exception {
+        // Given
+        UploadService service = newService(0);
+        String token = service.create(declaration("photo.png", "image/png", 100), CLIENT).getToken();
+        Thread.sleep(5);
+
+        // When
+        service.evictExpired();
+
+        // Then
+        assertEquals(0, service.getPendingBytes());
+        assertFalse(Files.exists(directory.resolve(token)));
+    }
+
+    @Test
+    void evictExpired_DeclarationWithoutChunk_RemovedBeforeTtl() throws Exception {
+        // Given : déclaration abandonnée et upload commencé, TTL d'une heure
+        UploadService service = newService(60, 0, 10);
+        String idle = service.create(declaration("photo.png", "image/png", 100), CLIENT).getToken();
+        byte[] content = png(2500);
+        String started = service.create(declaration("photo.png", "image/png", content.length), CLIENT).getToken();
+        write(service, started, 0, content);
+        Thread.sleep(5);
+
+        // When
+        service.evictExpired();
+
+        // Then
+        assertThrows(MailSendingException.class, () -> service.status(idle));
+        assertEquals(List.of(1, 2), service.status(started).getMissingChunks());
+        assertEquals(content.length, service.getPendingBytes());
+    }
+
+    @Test
+    void create_ClientCapacityReached_RejectedForThatClientOnly() throws Exception {
+        // Given : 1 Mo par client
+        UploadService service = newService(60, 120, 1);
+        String token = service.create(declaration("photo.png", "image/png", 800_000), CLIENT).getToken();
+
+        // When & Then
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> service.create(declaration("photo.png", "image/png", 800_000), CLIENT));
+        assertEquals("UPLOAD_CAPACITY_REACHED", e.getErrorCode());
+        assertNotNull(service.create(declaration("photo.png", "image/png", 800_000), "198.51.100.9"));
+
+        service.cancel(token);
+        assertNotNull(service.create(declaration("photo.png", "image/png", 800_000), CLIENT));
+    }
+
+    private UploadService newService(long ttlMinutes) throws Exception {
+        return newService(ttlMinutes, 120, 10);
+    }
+
+    private UploadService newService(long ttlMinutes, long idleTimeoutSeconds, long maxPendingPerClientMb)
+            throws Exception {
+        UploadService service = new UploadService(fileValidationService, 1, ttlMinutes, idleTimeoutSeconds, 10,
+                maxPendingPerClientMb, directory.toString());
+        service.init();
+        return service;
+    }
+
+    private UploadRequestDto declaration(String filename, String mimeType, long size) {
+        UploadRequestDto request = new UploadRequestDto();
+        request.setAppCode("ASSURANTIS");
+        request.setFilename(filename);
+        request.setMimeType(mimeType);
+        request.setSize(size);
+        return request;
+    }
+
+    private UploadStatusDto write(UploadService service, String token, int index, byte[] content) throws Exception {
+        int from = index * 1024;
+        byte[] chunk = Arrays.copyOfRange(content, from, Math.min(content.length, from + 1024));
+        return service.writeChunk(token, index, new ByteArrayInputStream(chunk));
+    }
+
+    private byte[] png(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        System.arraycopy(PNG_SIGNATURE, 0, content, 0, PNG_SIGNATURE.length);
+        return content;
+    }
+}
@@ -0,0 +1,137 @@
+package com.gilmotech.emailservice.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gilmotech.emailservice.config.TenantProperties;
+import com.gilmotech.emailservice.dto.MailRequestDto;
+import com.gilmotech.emailservice.service.ConfigurationService;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdditionalDataValidationTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Configurations réelles de mail-configs.yml
+        MutablePropertySources sources = new MutablePropertySources();
+        new YamlPropertySourceLoader().load("mail-configs", new ClassPathResource("mail-configs.yml"))
+                .forEach(sources::addLast);
+        TenantProperties properties = new Binder(ConfigurationPropertySources.from(sources),
+                new PropertySourcesPlaceholdersResolver(sources))
+                .bind("app", TenantProperties.class).get();
+        ConfigurationService configService = new ConfigurationService(properties);
+        configService.init();
+
+        ConstraintValidatorFactory defaultFactory = Validation.byDefaultProvider().configure()
+                .getDefaultConstraintValidatorFactory();
+        validatorFactory = Validation.byDefaultProvider().configure()
+                .constraintValidatorFactory(new ConstraintValidatorFactory() {
+                    @Override
+                    public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+                        return key == AdditionalDataConstraintValidator.class
+                                ? key.cast(new AdditionalDataConstraintValidator(configService))
+                                : defaultFactory.getInstance(key);
+                    }
+
+                    @Override
+                    public void releaseInstance(ConstraintValidator<?, ?> instance) {
+                    }
+                })
+                .buildValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void quoteRequest_ConformingToSchema_Valid() throws Exception {
+        // Given
+        MailRequestDto request = read("QUOTE_REQUEST", """
+                {"quote": {
+                  "profile": {"firstName": "Jean", "lastName": "Dupont", "email": "jean@test.com"},
+                  "needs": {"insuranceTypes": ["Auto", "Habitation"], "budget": 150},
+                  "details": {"currentInsurance": "no"}
+                }}""");
+
+        // When & Then
+        assertEquals(Set.of(), additionalDataErrors(request));
+    }
+
+    @Test
+    void quoteRequest_UnknownOversizedOrMissingFields_Rejected() throws Exception {
+        assertEquals(Set.of("Champ non autorisé: quote.profile.nationalNumber"), additionalDataErrors(read(
+                "QUOTE_REQUEST", "{\"quote\": {\"profile\": {\"nationalNumber\": \"85.07.30-033.28\"}}}")));
+
+        assertEquals(Set.of("Texte trop long: quote.profile.firstName (max 100)"), additionalDataErrors(read(
+                "QUOTE_REQUEST", "{\"quote\": {\"profile\": {\"firstName\": \"" + "x".repeat(101) + "\"}}}")));
+
+        assertEquals(Set.of("Trop d'éléments dans quote.needs.insuranceTypes (max 10)"), additionalDataErrors(read(
+                "QUOTE_REQUEST", "{\"quote\": {\"needs\": {\"insuranceTypes\": "
+                        + objectMapper.writeValueAsString(List.of("1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"))
+                        + "}}}")));
+
+        assertEquals(Set.of("Champ obligatoire manquant: quote"),
+                additionalDataErrors(read("QUOTE_REQUEST", "{\"other\": 1}")));
+    }
+
+    @Test
+    void claimRequest_UnknownKeysAllowedWithinBounds() throws Exception {
+        assertEquals(Set.of(), additionalDataErrors(read("CLAIM_REQUEST",
+                "{\"vehicle\": {\"plate\": \"1-ABC-123\"}, \"date\": \"2024-12-11\"}")));
+
+        assertEquals(Set.of("Imbrication trop profonde: vehicle[0]"), additionalDataErrors(read("CLAIM_REQUEST",
+                "{\"vehicle\": {\"owner\": {\"name\": \"Jean\"}}}")));
+    }
+
+    @Test
+    void deserializer_BeyondGlobalLimits_RejectedWhileParsing() {
+        int depth = BoundedAdditionalDataDeserializer.MAX_DEPTH + 1;
+        String deep = "{\"a\":".repeat(depth) + "1" + "}".repeat(depth);
+        String longText = "{\"a\": \"" + "x".repeat(BoundedAdditionalDataDeserializer.MAX_STRING_LENGTH + 1) + "\"}";
+
+        assertThrows(AdditionalDataRejectedException.class, () -> read("CONTACT_FORM", deep));
+        assertThrows(AdditionalDataRejectedException.class, () -> read("CONTACT_FORM", longText));
+        assertThrows(AdditionalDataRejectedException.class, () -> read("CONTACT_FORM", "[1, 2]"));
+    }
+
+    private MailRequestDto read(String mailType, String additionalData) throws Exception {
+        return objectMapper.readValue("""
+                {"appCode": "ASSURANTIS", "mailType": "%s", "name": "Jean Dupont", "email": "jean@test.com",
+                 "message": "Demande de devis pour ma voiture", "additionalData": %s}
+                """.formatted(mailType, additionalData), MailRequestDto.class);
+    }
+
+    private Set<String> additionalDataErrors(MailRequestDto request) {
+        Set<ConstraintViolation<MailRequestDto>> violations = validator.validate(request);
+        return violations.stream()
+                .filter(violation -> violation.getPropertyPath().toString().equals("additionalData"))
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toSet());
+    }
+}